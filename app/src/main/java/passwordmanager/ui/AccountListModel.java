@@ -0,0 +1,175 @@
+package passwordmanager.ui;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import passwordmanager.logic.LatencyHistogram;
+import passwordmanager.logic.Metrics;
+import passwordmanager.logic.PasswordManager;
+import passwordmanager.logic.Vault;
+import passwordmanager.logic.VaultEvents;
+import passwordmanager.logic.VaultListener;
+import passwordmanager.model.AccountEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Keeps the account list in display order and applies vault changes row by row,
+// so the ListView only re-lays-out the cells that actually changed.
+class AccountListModel implements VaultListener {
+
+    // Above this many rows a batch is merged into a new list in one pass instead of inserted row by row.
+    private static final int MERGE_THRESHOLD = 64;
+    private static final int SEARCH_LIMIT = 1000;
+    private static final LatencyHistogram REFRESH_TIME = Metrics.timer("ui.refresh");
+    private static final LatencyHistogram SEARCH_TIME = Metrics.timer("ui.search");
+
+    private final PasswordManager passwordManager;
+    private final ObservableList<AccountEntry> items = FXCollections.observableArrayList();
+    private final ObservableList<AccountEntry> searchResults = FXCollections.observableArrayList();
+    private String query = "";
+
+    AccountListModel(PasswordManager passwordManager) {
+        this.passwordManager = passwordManager;
+        items.setAll(passwordManager.getSortedEntries());
+    }
+
+    ObservableList<AccountEntry> getItems() {
+        return items;
+    }
+
+    // Returns the list to show for the filter text: every entry when it is blank, otherwise the ranked matches.
+    ObservableList<AccountEntry> filter(String text) {
+        query = text == null ? "" : text.strip();
+        if (query.isEmpty()) {
+            searchResults.clear();
+            return items;
+        }
+        long start = System.nanoTime();
+        VaultEvents.UiRefresh event = new VaultEvents.UiRefresh();
+        event.begin();
+        searchResults.setAll(passwordManager.search(query, SEARCH_LIMIT));
+        finish(event, "search", searchResults.size(), SEARCH_TIME, start);
+        return searchResults;
+    }
+
+    @Override
+    public void entriesAdded(List<AccountEntry> entries) {
+        long start = System.nanoTime();
+        VaultEvents.UiRefresh event = new VaultEvents.UiRefresh();
+        event.begin();
+        addRows(entries);
+        finish(event, "add", entries.size(), REFRESH_TIME, start);
+    }
+
+    private void addRows(List<AccountEntry> entries) {
+        refreshSearch();
+        if (entries.size() <= MERGE_THRESHOLD) {
+            for (AccountEntry entry : entries) {
+                items.add(insertionPoint(entry), entry);
+            }
+            return;
+        }
+
+        List<AccountEntry> added = new ArrayList<>(entries);
+        added.sort(Vault.DISPLAY_ORDER);
+        List<AccountEntry> merged = new ArrayList<>(items.size() + added.size());
+        int i = 0;
+        int j = 0;
+        while (i < items.size() && j < added.size()) {
+            if (Vault.DISPLAY_ORDER.compare(items.get(i), added.get(j)) <= 0) {
+                merged.add(items.get(i++));
+            } else {
+                merged.add(added.get(j++));
+            }
+        }
+        merged.addAll(items.subList(i, items.size()));
+        merged.addAll(added.subList(j, added.size()));
+        items.setAll(merged);
+    }
+
+    @Override
+    public void entryUpdated(AccountEntry previous, AccountEntry current) {
+        long start = System.nanoTime();
+        VaultEvents.UiRefresh event = new VaultEvents.UiRefresh();
+        event.begin();
+        updateRow(previous, current);
+        finish(event, "update", 1, REFRESH_TIME, start);
+    }
+
+    private void updateRow(AccountEntry previous, AccountEntry current) {
+        refreshSearch();
+        int index = indexOf(previous);
+        if (index < 0) {
+            items.add(insertionPoint(current), current);
+            return;
+        }
+
+        boolean afterPrevious = index == 0 || Vault.DISPLAY_ORDER.compare(items.get(index - 1), current) < 0;
+        boolean beforeNext = index == items.size() - 1 || Vault.DISPLAY_ORDER.compare(current, items.get(index + 1)) < 0;
+        if (afterPrevious && beforeNext) {
+            items.set(index, current);
+            return;
+        }
+        items.remove(index);
+        items.add(insertionPoint(current), current);
+    }
+
+    @Override
+    public void entryRemoved(AccountEntry entry) {
+        long start = System.nanoTime();
+        VaultEvents.UiRefresh event = new VaultEvents.UiRefresh();
+        event.begin();
+        refreshSearch();
+        int index = indexOf(entry);
+        if (index >= 0) {
+            items.remove(index);
+        }
+        finish(event, "remove", 1, REFRESH_TIME, start);
+    }
+
+    @Override
+    public void vaultReloaded() {
+        long start = System.nanoTime();
+        VaultEvents.UiRefresh event = new VaultEvents.UiRefresh();
+        event.begin();
+        refreshSearch();
+        items.setAll(passwordManager.getSortedEntries());
+        finish(event, "reload", items.size(), REFRESH_TIME, start);
+    }
+
+    private static void finish(VaultEvents.UiRefresh event, String change, long rows, LatencyHistogram time, long start) {
+        time.recordSince(start);
+        if (event.shouldCommit()) {
+            event.change = change;
+            event.rows = rows;
+            event.commit();
+        }
+    }
+
+    private void refreshSearch() {
+        if (!query.isEmpty()) {
+            searchResults.setAll(passwordManager.search(query, SEARCH_LIMIT));
+        }
+    }
+
+    private int insertionPoint(AccountEntry entry) {
+        int index = Collections.binarySearch(items, entry, Vault.DISPLAY_ORDER);
+        return index < 0 ? -index - 1 : index;
+    }
+
+    // Binary search finds the row while the entry still has the values it was sorted by;
+    // an entry that was edited in place before the update falls back to a scan by id.
+    private int indexOf(AccountEntry entry) {
+        int index = Collections.binarySearch(items, entry, Vault.DISPLAY_ORDER);
+        if (index >= 0 && items.get(index).getId().equals(entry.getId())) {
+            return index;
+        }
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).getId().equals(entry.getId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
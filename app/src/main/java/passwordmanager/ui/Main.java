@@ -0,0 +1,936 @@
+package passwordmanager.ui;
+
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.*;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import java.time.Duration;
+import java.time.Instant;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import passwordmanager.logic.BreachIndex;
+import passwordmanager.logic.LatencyHistogram;
+import passwordmanager.logic.Metrics;
+import passwordmanager.logic.PasswordManager;
+import passwordmanager.logic.MasterPasswordManager;
+import passwordmanager.logic.CryptoSession;
+import passwordmanager.logic.PasswordReuse;
+import passwordmanager.logic.PasswordStrength;
+import passwordmanager.logic.SaveStatus;
+import passwordmanager.logic.SecretCache;
+import passwordmanager.logic.VaultExporter;
+import passwordmanager.logic.VaultImporter;
+import passwordmanager.logic.VaultVerifier;
+import passwordmanager.model.AccountEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
+
+public class Main extends Application {
+
+    // Entries handed to the FX thread at a time while loading; small enough that indexing one chunk
+    // does not hold up a frame noticeably.
+    private static final int LOAD_CHUNK_SIZE = 2_000;
+    private static final LatencyHistogram LAYOUT_TIME = Metrics.timer("ui.layout");
+
+    private int failedAttempts = 0;
+    private Instant lastFailedAttempt = null;
+    private PasswordManager passwordManager = new PasswordManager();
+    private MasterPasswordManager masterPasswordManager = new MasterPasswordManager();
+    private CryptoSession session;
+    private SecretCache secrets;
+    private PasswordReuse reuse;
+    private BreachIndex breachIndex;
+    private Task<Boolean> loadTask;
+    // Work that runs on the session and writes to the vault; stopped before the session goes away.
+    private final List<Thread> backgroundWork = new ArrayList<>();
+
+    @Override
+    public void start(Stage primaryStage) {
+        showLoginScreen(primaryStage);
+    }
+
+    private void showLoginScreen(Stage stage) {
+
+        VBox loginLayout = new VBox(10);
+        loginLayout.setStyle("-fx-padding: 20; -fx-alignment: center;");
+
+        Scene loginScene = new Scene(loginLayout, 300, 230);
+        stage.setScene(loginScene);
+        stage.setTitle("Password Manager - Login");
+        stage.show();
+
+        if (!masterPasswordManager.isPasswordSet()) {
+
+            Label label = new Label("Set master password:");
+            PasswordField newPasswordField = new PasswordField();
+            newPasswordField.setPromptText("Password");
+
+            Label strengthLabel = new Label("Password strength: ");
+            strengthLabel.setStyle("-fx-font-weight: bold;");
+
+            Button setButton = new Button("Set Password");
+
+            loginLayout.getChildren().addAll(label, newPasswordField, strengthLabel, setButton);
+
+            newPasswordField.textProperty().addListener((obs, oldVal, newVal) -> {
+                if (newVal.length() < 6) {
+                    strengthLabel.setText("Password strength: VERY WEAK");
+                    strengthLabel.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
+                } else if (!masterPasswordManager.isStrongPassword(newVal)) {
+                    strengthLabel.setText("Password strength: MEDIUM");
+                    strengthLabel.setStyle("-fx-text-fill: orange; -fx-font-weight: bold;");
+                } else {
+                    strengthLabel.setText("Password strength: STRONG");
+                    strengthLabel.setStyle("-fx-text-fill: green; -fx-font-weight: bold;");
+                }
+            });
+
+            setButton.setOnAction(e -> {
+                String newPassword = newPasswordField.getText();
+
+                if (!masterPasswordManager.isStrongPassword(newPassword)) {
+                    new Alert(Alert.AlertType.ERROR,
+                            "Password is too weak!\n\n" +
+                                    "Requirements:\n" +
+                                    "- at least 8 characters\n" +
+                                    "- one uppercase letter\n" +
+                                    "- one lowercase letter\n" +
+                                    "- one digit\n" +
+                                    "- one special character").showAndWait();
+                    return;
+                }
+
+                masterPasswordManager.setPassword(newPassword);
+                new Alert(Alert.AlertType.INFORMATION,
+                        "Strong password set.\nPlease log in.").showAndWait();
+                showLoginScreen(stage);
+            });
+
+            loginScene.setOnKeyPressed(event -> {
+                if (event.getCode() == KeyCode.ENTER) {
+                    setButton.fire();
+                }
+            });
+
+        } else {
+
+            Label label = new Label("Enter master password:");
+            PasswordField passwordField = new PasswordField();
+            passwordField.setPromptText("Password");
+            Button loginButton = new Button("Login");
+
+            loginLayout.getChildren().addAll(label, passwordField, loginButton);
+
+            loginButton.setOnAction(e -> {
+
+                if (isLoginBlocked()) {
+                    long remaining = getSecondsToWait() - Duration.between(lastFailedAttempt, Instant.now()).getSeconds();
+                    if (remaining < 0) remaining = 0;
+
+                    new Alert(Alert.AlertType.WARNING,
+                            "Too many failed attempts.\nPlease wait " + formatWaitTime(remaining)).showAndWait();
+                    return;
+                }
+
+                String inputPassword = passwordField.getText();
+                CryptoSession unlocked;
+                try {
+                    unlocked = masterPasswordManager.unlock(inputPassword);
+                } catch (UncheckedIOException ex) {
+                    new Alert(Alert.AlertType.ERROR, ex.getCause().getMessage()).showAndWait();
+                    return;
+                }
+                if (unlocked != null) {
+                    session = unlocked;
+                    passwordManager.setCipher(unlocked.fileCipher());
+                    secrets = new SecretCache(unlocked);
+                    reuse = new PasswordReuse(unlocked, passwordManager);
+                    failedAttempts = 0;
+                    lastFailedAttempt = null;
+                    showMainApp(stage);
+                } else {
+                    failedAttempts++;
+                    lastFailedAttempt = Instant.now();
+                    new Alert(Alert.AlertType.ERROR, "Invalid master password").showAndWait();
+                }
+            });
+
+            loginScene.setOnKeyPressed(event -> {
+                if (event.getCode() == KeyCode.ENTER) {
+                    loginButton.fire();
+                }
+            });
+        }
+    }
+
+    private void showMainApp(Stage stage) {
+        if (breachIndex == null) {
+            breachIndex = BreachIndex.openDefault();
+        }
+
+        VBox layout = new VBox(10);
+        layout.setStyle("-fx-padding: 20;");
+
+        AccountListModel listModel = new AccountListModel(passwordManager);
+        passwordManager.setVaultListener(listModel);
+        ListView<AccountEntry> listView = new ListView<>(listModel.getItems());
+        TextField searchField = new TextField();
+        searchField.setPromptText("Search platform or login");
+        searchField.textProperty().addListener((obs, oldVal, newVal) -> listView.setItems(listModel.filter(newVal)));
+        // Cells are recycled while scrolling and a fixed height spares the ListView from measuring rows.
+        listView.setFixedCellSize(24);
+        listView.setCellFactory(view -> new ListCell<>() {
+            @Override
+            protected void updateItem(AccountEntry entry, boolean empty) {
+                super.updateItem(entry, empty);
+                setText(empty || entry == null ? null : entry.getPlatform() + " - " + entry.getLogin());
+            }
+        });
+        final AccountEntry[] selectedEntry = {null};
+        final AccountEntry[] editingEntry = {null};
+
+        TextField platformField = new TextField();
+        platformField.setPromptText("Platform");
+
+        TextField loginField = new TextField();
+        loginField.setPromptText("Login");
+
+        PasswordField passwordField = new PasswordField();
+        passwordField.setPromptText("Password");
+
+        TextField visiblePasswordField = new TextField();
+        visiblePasswordField.setPromptText("Password");
+        visiblePasswordField.setManaged(false);
+        visiblePasswordField.setVisible(false);
+
+        Label passwordStrengthLabel = new Label("Password strength: ");
+        passwordStrengthLabel.setStyle("-fx-font-weight: bold;");
+        Label reuseLabel = new Label();
+        reuseLabel.setStyle("-fx-text-fill: #ffaa00;");
+
+        Label saveStatusLabel = new Label("All changes saved");
+        passwordManager.setSaveStatusListener(status -> Platform.runLater(() -> showSaveStatus(saveStatusLabel, status)));
+
+        Button togglePasswordButton = new Button("Show");
+        Button generatePasswordButton = new Button("Generate Password");
+        Button addButton = new Button("Add");
+        Button editButton = new Button("Edit");
+        Button deleteButton = new Button("Delete");
+        Button exitButton = new Button("Exit");
+        Button lockButton = new Button("Lock");
+        Button exportButton = new Button("Export");
+        Button auditButton = new Button("Audit");
+        Button importButton = new Button("Import");
+        Button masterPasswordButton = new Button("Change Master");
+        auditButton.setDisable(breachIndex == null);
+
+        ProgressIndicator loadingIndicator = new ProgressIndicator();
+        loadingIndicator.setPrefSize(16, 16);
+        Label loadingLabel = new Label("Loading...");
+        HBox listHeader = new HBox(10, new Label("Saved Accounts:"), loadingIndicator, loadingLabel);
+        // Import, export and audit need the whole vault, so they wait until it has loaded.
+        importButton.setDisable(true);
+        exportButton.setDisable(true);
+        auditButton.setDisable(true);
+
+        editButton.setDisable(true);
+        deleteButton.setDisable(true);
+
+        HBox passwordBox = new HBox(10);
+        HBox.setHgrow(passwordField, Priority.ALWAYS);
+        HBox.setHgrow(visiblePasswordField, Priority.ALWAYS);
+        passwordField.setMaxWidth(Double.MAX_VALUE);
+        visiblePasswordField.setMaxWidth(Double.MAX_VALUE);
+        togglePasswordButton.setPrefWidth(70);
+        passwordBox.getChildren().addAll(passwordField, visiblePasswordField, togglePasswordButton);
+
+        Runnable updateStrength = () -> {
+            String pass = passwordField.isVisible() ? passwordField.getText() : visiblePasswordField.getText();
+            showReuse(reuseLabel, pass, editingEntry[0]);
+            if (pass.isEmpty()) {
+                passwordStrengthLabel.setText("Password strength: ");
+                passwordStrengthLabel.setStyle("-fx-text-fill: #bbbbbb; -fx-font-weight: bold;");
+                return;
+            }
+            if (breachIndex != null && breachIndex.isBreached(pass)) {
+                passwordStrengthLabel.setText("Password strength: BREACHED (found in a known data breach)");
+                passwordStrengthLabel.setStyle("-fx-text-fill: #ff6666; -fx-font-weight: bold;");
+                return;
+            }
+            PasswordStrength.Result strength = PasswordStrength.evaluate(pass);
+            String reasons = strength.getLevel() == PasswordStrength.Level.STRONG
+                    ? "" : " (" + String.join(", ", strength.reasons()) + ")";
+            switch (strength.getLevel()) {
+                case VERY_WEAK, WEAK -> {
+                    passwordStrengthLabel.setText("Password strength: WEAK" + reasons);
+                    passwordStrengthLabel.setStyle("-fx-text-fill: #ff6666; -fx-font-weight: bold;");
+                }
+                case MEDIUM -> {
+                    passwordStrengthLabel.setText("Password strength: MEDIUM" + reasons);
+                    passwordStrengthLabel.setStyle("-fx-text-fill: #ffaa00; -fx-font-weight: bold;");
+                }
+                case STRONG -> {
+                    passwordStrengthLabel.setText("Password strength: STRONG");
+                    passwordStrengthLabel.setStyle("-fx-text-fill: #66ff66; -fx-font-weight: bold;");
+                }
+            }
+        };
+
+        passwordField.textProperty().addListener((obs, o, n) -> updateStrength.run());
+        visiblePasswordField.textProperty().addListener((obs, o, n) -> updateStrength.run());
+
+        togglePasswordButton.setOnAction(e -> {
+            if (togglePasswordButton.getText().equals("Show")) {
+                visiblePasswordField.setText(passwordField.getText());
+                visiblePasswordField.setVisible(true);
+                visiblePasswordField.setManaged(true);
+                passwordField.setVisible(false);
+                passwordField.setManaged(false);
+                togglePasswordButton.setText("Hide");
+            } else {
+                passwordField.setText(visiblePasswordField.getText());
+                passwordField.setVisible(true);
+                passwordField.setManaged(true);
+                visiblePasswordField.setVisible(false);
+                visiblePasswordField.setManaged(false);
+                togglePasswordButton.setText("Show");
+            }
+        });
+
+        generatePasswordButton.setOnAction(e -> {
+            String generated = generateStrongPassword(12);
+            passwordField.setText(generated);
+            visiblePasswordField.setText(generated);
+            updateStrength.run();
+        });
+
+        addButton.setOnAction(e -> {
+            String platform = platformField.getText();
+            String login = loginField.getText();
+            String password = passwordField.isVisible() ? passwordField.getText() : visiblePasswordField.getText();
+
+            if (!platform.isEmpty() && !login.isEmpty() && !password.isEmpty()) {
+                String encryptedPassword = session.encrypt(password);
+                byte[] passwordTag = session.passwordTag(password);
+                if (editingEntry[0] != null) {
+                    // Edit a copy so the list can still find the row by its old platform and login.
+                    AccountEntry updated = new AccountEntry(editingEntry[0]);
+                    updated.setPlatform(platform);
+                    updated.setLogin(login);
+                    updated.setPassword(encryptedPassword);
+                    updated.setPasswordTag(passwordTag);
+                    passwordManager.updateEntry(updated);
+                    editingEntry[0] = null;
+                    addButton.setText("Add");
+                } else {
+                    AccountEntry added = new AccountEntry(platform, login, encryptedPassword);
+                    added.setPasswordTag(passwordTag);
+                    passwordManager.addEntry(added);
+                }
+                platformField.clear();
+                loginField.clear();
+                passwordField.clear();
+                visiblePasswordField.clear();
+                passwordStrengthLabel.setText("Password strength: ");
+                reuseLabel.setText("");
+                editButton.setDisable(true);
+                deleteButton.setDisable(true);
+            }
+        });
+
+        editButton.setOnAction(e -> {
+            if (selectedEntry[0] != null) {
+                AccountEntry entry = selectedEntry[0];
+                platformField.setText(entry.getPlatform());
+                loginField.setText(entry.getLogin());
+                String decrypted = secrets.reveal(entry);
+                passwordField.setText(decrypted);
+                visiblePasswordField.setText(decrypted);
+                updateStrength.run();
+                editingEntry[0] = entry;
+                addButton.setText("Save");
+            }
+        });
+
+        deleteButton.setOnAction(e -> {
+            if (selectedEntry[0] != null) {
+                passwordManager.removeEntry(selectedEntry[0]);
+                secrets.invalidate(selectedEntry[0].getId());
+                editButton.setDisable(true);
+                deleteButton.setDisable(true);
+            }
+        });
+
+        exitButton.setOnAction(e -> {
+            closeVault();
+            stage.close();
+        });
+        stage.setOnCloseRequest(e -> closeVault());
+
+        lockButton.setOnAction(e -> lock(stage));
+
+        exportButton.setOnAction(e -> {
+            ChoiceDialog<String> dialog = new ChoiceDialog<>("Plaintext CSV", "Plaintext CSV", "Encrypted JSON");
+            dialog.setTitle("Export Format");
+            dialog.setHeaderText("Choose export format");
+            dialog.showAndWait().ifPresent(choice -> {
+                if (choice.equals("Plaintext CSV")) exportToCSV(stage);
+                else exportToEncryptedJSON(stage);
+            });
+        });
+
+        auditButton.setOnAction(e -> auditVault(stage));
+
+        masterPasswordButton.setOnAction(e -> changeMasterPassword(stage));
+
+        importButton.setOnAction(e -> {
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("Import entries");
+            chooser.getExtensionFilters().addAll(
+                    new FileChooser.ExtensionFilter("CSV or JSON export", "*.csv", "*.json"),
+                    new FileChooser.ExtensionFilter("All files", "*.*"));
+            File source = chooser.showOpenDialog(stage);
+            if (source != null) {
+                importFrom(source);
+            }
+        });
+
+        listView.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal != null) {
+                selectedEntry[0] = newVal;
+                editButton.setDisable(false);
+                deleteButton.setDisable(false);
+            }
+        });
+
+        listView.setOnMouseClicked(event -> {
+            if (event.getClickCount() == 2) {
+                AccountEntry entry = listView.getSelectionModel().getSelectedItem();
+                if (entry != null) {
+                    Dialog<Void> dialog = new Dialog<>();
+                    dialog.setTitle("Account Details");
+                    dialog.setHeaderText(entry.getPlatform());
+
+                    Label loginLabel = new Label("Login: " + entry.getLogin());
+                    PasswordField hidden = new PasswordField();
+                    TextField visible = new TextField();
+                    String decrypted = secrets.reveal(entry);
+
+                    hidden.setText(decrypted);
+                    visible.setText(decrypted);
+                    hidden.setEditable(false);
+                    visible.setEditable(false);
+                    visible.setVisible(false);
+                    visible.setManaged(false);
+
+                    Button toggle = new Button("Show");
+                    toggle.setOnAction(e -> {
+                        if (toggle.getText().equals("Show")) {
+                            visible.setVisible(true);
+                            visible.setManaged(true);
+                            hidden.setVisible(false);
+                            hidden.setManaged(false);
+                            toggle.setText("Hide");
+                        } else {
+                            hidden.setVisible(true);
+                            hidden.setManaged(true);
+                            visible.setVisible(false);
+                            visible.setManaged(false);
+                            toggle.setText("Show");
+                        }
+                    });
+
+                    Button copy = new Button("Copy password");
+                    copy.setOnAction(e -> {
+                        Clipboard clipboard = Clipboard.getSystemClipboard();
+                        ClipboardContent content = new ClipboardContent();
+                        content.putString(decrypted);
+                        clipboard.setContent(content);
+                        new Alert(Alert.AlertType.INFORMATION, "Password copied!").showAndWait();
+                    });
+
+                    HBox box = new HBox(10, hidden, visible, toggle);
+                    VBox content = new VBox(10, loginLabel, box, copy);
+                    dialog.getDialogPane().setContent(content);
+                    dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+
+                    dialog.getDialogPane().getStylesheets().add("data:text/css," +
+                            ".root { -fx-base: #2b2b2b; } .label { -fx-text-fill: white; }");
+
+                    dialog.showAndWait();
+                }
+            }
+        });
+
+        HBox leftButtons = new HBox(10, addButton, editButton, deleteButton, generatePasswordButton, importButton, exportButton, auditButton, masterPasswordButton);
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        HBox fullRow = new HBox(10, leftButtons, spacer, saveStatusLabel, lockButton, exitButton);
+
+        layout.getChildren().addAll(
+                listHeader,
+                searchField,
+                listView,
+                new Label("Add New Entry:"),
+                platformField,
+                loginField,
+                passwordBox,
+                passwordStrengthLabel,
+                reuseLabel,
+                fullRow
+        );
+
+        Scene scene = new Scene(layout, 830, 590);
+        // Time spent laying out each frame, which is where a slow list refresh shows up on screen.
+        long[] pulseStart = {0};
+        scene.addPreLayoutPulseListener(() -> pulseStart[0] = System.nanoTime());
+        scene.addPostLayoutPulseListener(() -> LAYOUT_TIME.recordSince(pulseStart[0]));
+
+        scene.getStylesheets().add("data:text/css," +
+                ".root { -fx-base: #2b2b2b; -fx-background: #2b2b2b; }" +
+                ".label { -fx-text-fill: #bbbbbb; }" +
+                ".list-view { -fx-control-inner-background: #3c3f41; }" +
+                ".text-field, .password-field { -fx-text-fill: white; -fx-background-color: #45494a; }" +
+                ".button { -fx-base: #4e5052; }"
+        );
+
+        stage.setScene(scene);
+        stage.setTitle("Password Manager");
+        stage.show();
+
+        loadVault(loadingLabel, () -> {
+            listHeader.getChildren().removeAll(loadingIndicator, loadingLabel);
+            importButton.setDisable(false);
+            exportButton.setDisable(false);
+            auditButton.setDisable(false);
+            verifyVault();
+            tagPasswords(reuse);
+        });
+    }
+
+    // Reads the vault in the background and adds it to the list in chunks, so the window is usable right away and
+    // already loaded entries can be searched and opened. At most two chunks wait on the FX thread at a time.
+    private void loadVault(Label progressLabel, Runnable onLoaded) {
+        passwordManager.beginLoading();
+        Semaphore queued = new Semaphore(2);
+        Task<Boolean> task = new Task<>() {
+            @Override
+            protected Boolean call() {
+                return passwordManager.readSavedEntries(LOAD_CHUNK_SIZE, chunk -> {
+                    try {
+                        queued.acquire();
+                    } catch (InterruptedException e) {
+                        throw new CancellationException();
+                    }
+                    Platform.runLater(() -> {
+                        try {
+                            if (isCancelled()) return;
+                            passwordManager.addLoadedEntries(chunk);
+                            progressLabel.setText("Loading... " + passwordManager.size() + " entries");
+                        } finally {
+                            queued.release();
+                        }
+                    });
+                });
+            }
+        };
+
+        task.setOnSucceeded(e -> {
+            if (!task.getValue()) {
+                progressLabel.setText("Could not load the vault");
+                progressLabel.setStyle("-fx-text-fill: #ff6666;");
+                return;
+            }
+            passwordManager.finishLoading();
+            onLoaded.run();
+        });
+        task.setOnFailed(e -> {
+            progressLabel.setText("Could not load the vault");
+            progressLabel.setStyle("-fx-text-fill: #ff6666;");
+        });
+
+        loadTask = task;
+        Thread thread = new Thread(task, "vault-load");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Entries saved by older versions have no password tag yet; they are tagged once in the background.
+    private void tagPasswords(PasswordReuse reuse) {
+        startBackgroundWork(new Thread(() -> {
+            int tagged = reuse.tagMissing();
+            if (tagged > 0) System.out.println("Tagged " + tagged + " passwords for reuse checks");
+        }, "password-tags"));
+    }
+
+    // Checks every loaded entry in the background, so a damaged one is reported once, up front, rather than as a
+    // decryption error when it is opened. The user decides whether damaged entries go to quarantine.
+    private void verifyVault() {
+        VaultVerifier verifier = new VaultVerifier(session, passwordManager);
+        startBackgroundWork(new Thread(() -> {
+            VaultVerifier.Report report = verifier.verify();
+            if (Thread.currentThread().isInterrupted()) return;
+            System.out.println(report);
+            if (report.isClean()) return;
+            Platform.runLater(() -> showDamage(report));
+        }, "vault-verify"));
+    }
+
+    private void startBackgroundWork(Thread thread) {
+        backgroundWork.removeIf(running -> !running.isAlive());
+        backgroundWork.add(thread);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Interrupts the work and waits for it, so nothing it still had in hand reaches the vault after the session.
+    private void stopBackgroundWork() {
+        for (Thread thread : backgroundWork) {
+            thread.interrupt();
+        }
+        boolean interrupted = false;
+        for (Thread thread : backgroundWork) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        backgroundWork.clear();
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private void showDamage(VaultVerifier.Report report) {
+        StringBuilder message = new StringBuilder();
+        if (report.getSkippedRecords() > 0) {
+            message.append(report.getSkippedRecords()).append(" unreadable records were left out of the vault;")
+                    .append(" the damaged file was kept as passwords.vault.damaged.\n\n");
+        }
+        List<VaultVerifier.Damage> damaged = report.getDamaged();
+        if (damaged.isEmpty() || report.looksLikeWrongKey()) {
+            if (!damaged.isEmpty()) message.append("Most saved passwords cannot be decrypted with this master password.");
+            new Alert(Alert.AlertType.WARNING, message.toString()).showAndWait();
+            return;
+        }
+        message.append("These entries are damaged:\n\n");
+        for (VaultVerifier.Damage damage : damaged.subList(0, Math.min(damaged.size(), 20))) {
+            message.append("- ").append(damage).append("\n");
+        }
+        if (damaged.size() > 20) message.append("... and ").append(damaged.size() - 20).append(" more\n");
+        message.append("\nMove them to passwords.quarantine?");
+        new Alert(Alert.AlertType.CONFIRMATION, message.toString()).showAndWait()
+                .filter(button -> button == ButtonType.OK)
+                .ifPresent(button -> {
+                    try {
+                        passwordManager.quarantine(damaged);
+                    } catch (IOException e) {
+                        new Alert(Alert.AlertType.ERROR, "Quarantine failed: " + e.getMessage()).showAndWait();
+                    }
+                });
+    }
+
+    private void showReuse(Label label, String password, AccountEntry editing) {
+        int uses = password.isEmpty() || reuse == null ? 0
+                : reuse.findUses(password, editing == null ? null : editing.getId()).size();
+        label.setText(uses == 0 ? "" : "This password is already used on " + uses
+                + (uses == 1 ? " other account" : " other accounts"));
+    }
+
+    private void cancelLoading() {
+        if (loadTask != null) {
+            loadTask.cancel();
+            loadTask = null;
+        }
+    }
+
+    private void showSaveStatus(Label label, SaveStatus status) {
+        switch (status) {
+            case SAVING -> {
+                label.setText("Saving...");
+                label.setStyle("-fx-text-fill: #bbbbbb;");
+            }
+            case SAVED -> {
+                label.setText("All changes saved");
+                label.setStyle("-fx-text-fill: #bbbbbb;");
+            }
+            case FAILED -> {
+                label.setText("Save failed");
+                label.setStyle("-fx-text-fill: #ff6666;");
+            }
+        }
+    }
+
+    private void importFrom(File source) {
+        VaultImporter importer = new VaultImporter(session);
+        VaultImporter.Report report = new VaultImporter.Report();
+        // Parsing and encryption run in the background; only the dedupe against the vault and the commit touch it.
+        Task<List<AccountEntry>> task = new Task<>() {
+            @Override
+            protected List<AccountEntry> call() throws Exception {
+                return importer.read(source, null, report);
+            }
+        };
+
+        task.setOnSucceeded(e -> {
+            VaultImporter.commit(task.getValue(), passwordManager, report);
+            StringBuilder message = new StringBuilder(report.toString());
+            for (String error : report.getErrors().subList(0, Math.min(10, report.getErrors().size()))) {
+                message.append("\n").append(error);
+            }
+            new Alert(Alert.AlertType.INFORMATION, message.toString()).showAndWait();
+        });
+        task.setOnFailed(e -> new Alert(Alert.AlertType.ERROR,
+                "Import failed: " + task.getException().getMessage()).showAndWait());
+
+        Thread thread = new Thread(task, "import");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void changeMasterPassword(Stage owner) {
+        PasswordField currentField = new PasswordField();
+        currentField.setPromptText("Current password");
+        PasswordField newField = new PasswordField();
+        newField.setPromptText("New password");
+        PasswordField confirmField = new PasswordField();
+        confirmField.setPromptText("Repeat new password");
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.initOwner(owner);
+        dialog.setTitle("Change Master Password");
+        dialog.setHeaderText("Only the vault key is re-encrypted, so this is instant at any vault size.");
+        dialog.getDialogPane().setContent(new VBox(10, currentField, newField, confirmField));
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+
+        dialog.showAndWait().filter(button -> button == ButtonType.OK).ifPresent(button -> {
+            String newPassword = newField.getText();
+            if (!newPassword.equals(confirmField.getText())) {
+                new Alert(Alert.AlertType.ERROR, "The new passwords do not match").showAndWait();
+            } else if (!masterPasswordManager.isStrongPassword(newPassword)) {
+                new Alert(Alert.AlertType.ERROR, "New password is too weak!").showAndWait();
+            } else if (!masterPasswordManager.changePassword(currentField.getText(), newPassword)) {
+                new Alert(Alert.AlertType.ERROR, "Invalid master password").showAndWait();
+            } else {
+                new Alert(Alert.AlertType.INFORMATION, "Master password changed").showAndWait();
+            }
+        });
+    }
+
+    // Decrypting and hashing every password takes a while on a large vault, so the breach check runs in the
+    // background behind a progress dialog.
+    private void auditVault(Stage owner) {
+        if (breachIndex == null) {
+            showAudit(List.of(), List.of());
+            return;
+        }
+        BreachIndex index = breachIndex;
+        CryptoSession auditSession = session;
+        List<AccountEntry> entries = passwordManager.getAllEntries();
+        Task<BreachIndex.Report> task = new Task<>() {
+            @Override
+            protected BreachIndex.Report call() {
+                return index.findBreached(entries, auditSession, this::updateProgress);
+            }
+        };
+
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(300);
+        progressBar.progressProperty().bind(task.progressProperty());
+
+        Dialog<Void> dialog = new Dialog<>();
+        dialog.initOwner(owner);
+        dialog.setTitle("Audit");
+        dialog.setHeaderText("Checking passwords against the breach list...");
+        dialog.getDialogPane().setContent(progressBar);
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CANCEL);
+        dialog.setOnCloseRequest(e -> task.cancel());
+
+        task.setOnSucceeded(e -> {
+            dialog.close();
+            BreachIndex.Report report = task.getValue();
+            if (!report.isComplete()) return;
+            showAudit(report.getBreached(), report.getUnreadable());
+        });
+        task.setOnFailed(e -> {
+            dialog.close();
+            new Alert(Alert.AlertType.ERROR, "Audit failed: " + task.getException().getMessage()).showAndWait();
+        });
+
+        startBackgroundWork(new Thread(task, "audit"));
+        dialog.show();
+    }
+
+    private void showAudit(List<AccountEntry> breached, List<AccountEntry> unreadable) {
+        List<List<AccountEntry>> reused = reuse.findReused();
+        if (breached.isEmpty() && reused.isEmpty() && unreadable.isEmpty()) {
+            new Alert(Alert.AlertType.INFORMATION, breachIndex == null
+                    ? "No password is used on more than one account."
+                    : "No saved password was found in the breach list or is used on more than one account.")
+                    .showAndWait();
+            return;
+        }
+
+        StringBuilder message = new StringBuilder();
+        if (!breached.isEmpty()) {
+            message.append("These passwords appear in a known data breach:\n\n");
+            for (AccountEntry entry : breached) {
+                message.append("- ").append(entry.getPlatform()).append(" - ").append(entry.getLogin()).append("\n");
+            }
+        }
+        for (List<AccountEntry> group : reused) {
+            message.append(message.length() == 0 ? "" : "\n")
+                    .append("These ").append(group.size()).append(" accounts share one password:\n");
+            for (AccountEntry entry : group) {
+                message.append("- ").append(entry.getPlatform()).append(" - ").append(entry.getLogin()).append("\n");
+            }
+        }
+        if (!unreadable.isEmpty()) {
+            message.append(message.length() == 0 ? "" : "\n")
+                    .append("These passwords could not be decrypted and were not checked:\n");
+            for (AccountEntry entry : unreadable.subList(0, Math.min(unreadable.size(), 20))) {
+                message.append("- ").append(entry.getPlatform()).append(" - ").append(entry.getLogin()).append("\n");
+            }
+            if (unreadable.size() > 20) message.append("... and ").append(unreadable.size() - 20).append(" more\n");
+        }
+        new Alert(Alert.AlertType.WARNING, message.toString()).showAndWait();
+    }
+
+    private void exportToCSV(Stage owner) {
+        VaultExporter exporter = new VaultExporter(session, secrets);
+        List<AccountEntry> entries = passwordManager.getAllEntries();
+        runExport(owner, exporter, "Exported to " + VaultExporter.CSV_FILE,
+                progress -> exporter.exportCsv(entries, new File(VaultExporter.CSV_FILE), progress));
+    }
+
+    private void exportToEncryptedJSON(Stage owner) {
+        VaultExporter exporter = new VaultExporter(session);
+        List<AccountEntry> entries = passwordManager.getAllEntries();
+        runExport(owner, exporter, "Encrypted export completed",
+                progress -> exporter.exportEncryptedJson(entries, new File(VaultExporter.JSON_FILE), progress));
+    }
+
+    private interface ExportJob {
+        long run(VaultExporter.Progress progress) throws Exception;
+    }
+
+    private void runExport(Stage owner, VaultExporter exporter, String successMessage, ExportJob job) {
+        Task<Long> task = new Task<>() {
+            @Override
+            protected Long call() throws Exception {
+                return job.run(this::updateProgress);
+            }
+        };
+
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(300);
+        progressBar.progressProperty().bind(task.progressProperty());
+
+        Dialog<Void> dialog = new Dialog<>();
+        dialog.initOwner(owner);
+        dialog.setTitle("Export");
+        dialog.setHeaderText("Exporting entries...");
+        dialog.getDialogPane().setContent(progressBar);
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CANCEL);
+        dialog.setOnCloseRequest(e -> {
+            if (task.isRunning()) {
+                exporter.cancel();
+            }
+        });
+
+        task.setOnSucceeded(e -> {
+            dialog.close();
+            new Alert(Alert.AlertType.INFORMATION, successMessage).showAndWait();
+        });
+        task.setOnFailed(e -> {
+            dialog.close();
+            if (!exporter.isCancelled()) {
+                new Alert(Alert.AlertType.ERROR, "Export failed").showAndWait();
+            }
+        });
+
+        Thread thread = new Thread(task, "export");
+        thread.setDaemon(true);
+        thread.start();
+        dialog.show();
+    }
+
+    private String generateStrongPassword(int length) {
+        String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789!@#$%^&*-_=+";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append(chars.charAt((int) (Math.random() * chars.length())));
+        }
+        return sb.toString();
+    }
+
+    private boolean isLoginBlocked() {
+        if (failedAttempts < 3 || lastFailedAttempt == null) return false;
+        long seconds = Duration.between(lastFailedAttempt, Instant.now()).getSeconds();
+        return seconds < getSecondsToWait();
+    }
+
+    private long getSecondsToWait() {
+        return switch (failedAttempts) {
+            case 3 -> 30;
+            case 4 -> 60;
+            case 5 -> 180;
+            case 6 -> 300;
+            case 7 -> 1200;
+            case 8 -> 3600;
+            default -> 86400;
+        };
+    }
+
+    private String formatWaitTime(long seconds) {
+        if (seconds >= 3600) return (seconds / 3600) + " hour(s)";
+        if (seconds >= 60) return (seconds / 60) + " minute(s)";
+        return seconds + " second(s)";
+    }
+
+    // Wipes every cached plaintext and drops the session; pending writes are flushed so the vault reloads intact.
+    private void lock(Stage stage) {
+        cancelLoading();
+        stopBackgroundWork();
+        passwordManager.flush();
+        passwordManager.setCipher(null);
+        closeSecrets();
+        session = null;
+        reuse = null;
+        showLoginScreen(stage);
+    }
+
+    private void closeSecrets() {
+        if (secrets != null) {
+            secrets.close();
+            secrets = null;
+        }
+    }
+
+    private void closeVault() {
+        cancelLoading();
+        stopBackgroundWork();
+        closeSecrets();
+        passwordManager.close();
+    }
+
+    @Override
+    public void stop() {
+        closeVault();
+    }
+
+    public static void main(String[] args) {
+        launch(args);
+    }
+}
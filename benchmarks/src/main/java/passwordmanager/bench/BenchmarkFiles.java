@@ -0,0 +1,27 @@
+package passwordmanager.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+final class BenchmarkFiles {
+
+    private BenchmarkFiles() {
+    }
+
+    static File createDirectory() throws IOException {
+        return Files.createTempDirectory("password-manager-bench").toFile();
+    }
+
+    static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        if (!file.delete()) {
+            System.err.println("Cannot delete " + file);
+        }
+    }
+}
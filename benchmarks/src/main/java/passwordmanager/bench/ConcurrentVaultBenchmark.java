@@ -0,0 +1,97 @@
+package passwordmanager.bench;
+
+import org.openjdk.jmh.annotations.*;
+import passwordmanager.logic.Vault;
+import passwordmanager.model.AccountEntry;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Readers running next to a writer that keeps changing the vault. Compare the "reads" group with "readsWhileWriting",
+// and run with -tg (threads per method, e.g. -tg 8,1,1) to see how read throughput scales with more readers.
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class ConcurrentVaultBenchmark {
+
+    @Param({"100000"})
+    public int entries;
+
+    private Vault vault;
+    private AccountEntry[] generated;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        vault = new Vault();
+        generated = new AccountEntry[entries];
+        for (int i = 0; i < entries; i++) {
+            generated[i] = new AccountEntry("platform-" + (i % 5000), "user" + i + "@example.com", "x");
+            vault.add(generated[i]);
+        }
+    }
+
+    private AccountEntry randomEntry() {
+        return generated[ThreadLocalRandom.current().nextInt(generated.length)];
+    }
+
+    // Replaces an entry with an edited copy, so the vault keeps its size.
+    private AccountEntry edit() {
+        AccountEntry updated = new AccountEntry(randomEntry());
+        updated.setLogin("edited-" + ThreadLocalRandom.current().nextInt(1000) + "@example.com");
+        return vault.update(updated);
+    }
+
+    @Benchmark
+    @Group("reads")
+    @GroupThreads(3)
+    public AccountEntry get() {
+        return vault.get(randomEntry().getId());
+    }
+
+    @Benchmark
+    @Group("reads")
+    @GroupThreads(1)
+    public List<AccountEntry> findByPlatform() {
+        return vault.findByPlatform(randomEntry().getPlatform());
+    }
+
+    @Benchmark
+    @Group("readsWhileWriting")
+    @GroupThreads(3)
+    public AccountEntry getWhileWriting() {
+        return vault.get(randomEntry().getId());
+    }
+
+    @Benchmark
+    @Group("readsWhileWriting")
+    @GroupThreads(1)
+    public List<AccountEntry> findByPlatformWhileWriting() {
+        return vault.findByPlatform(randomEntry().getPlatform());
+    }
+
+    @Benchmark
+    @Group("readsWhileWriting")
+    @GroupThreads(1)
+    public AccountEntry update() {
+        return edit();
+    }
+
+    // A snapshot is rebuilt only after a change, and then shared by every reader until the next one.
+    @Benchmark
+    @Group("snapshotWhileWriting")
+    @GroupThreads(3)
+    public int snapshot() {
+        return vault.snapshot().size();
+    }
+
+    @Benchmark
+    @Group("snapshotWhileWriting")
+    @GroupThreads(1)
+    public AccountEntry updateDuringSnapshots() {
+        return edit();
+    }
+}
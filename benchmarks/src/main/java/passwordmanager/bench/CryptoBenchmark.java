@@ -0,0 +1,81 @@
+package passwordmanager.bench;
+
+import org.openjdk.jmh.annotations.*;
+import passwordmanager.logic.CryptoSession;
+import passwordmanager.logic.CryptoUtils;
+import passwordmanager.logic.SecretBuffer;
+import passwordmanager.logic.SecretCache;
+import passwordmanager.model.AccountEntry;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoBenchmark {
+
+    private static final String MASTER_PASSWORD = "Benchmark-Master-1!";
+    private static final String PLAINTEXT = "correct-horse-battery-staple-42";
+
+    private CryptoSession session;
+    private String ciphertext;
+    private String legacyCiphertext;
+    private SecretCache secrets;
+    private AccountEntry entry;
+
+    @Setup
+    public void setUp() {
+        session = CryptoSession.open(MASTER_PASSWORD, new byte[16]);
+        ciphertext = session.encrypt(PLAINTEXT);
+        legacyCiphertext = CryptoUtils.encrypt(PLAINTEXT, MASTER_PASSWORD);
+        secrets = new SecretCache(session);
+        entry = new AccountEntry("platform", "login", ciphertext);
+    }
+
+    @TearDown
+    public void tearDown() {
+        secrets.close();
+    }
+
+    @Benchmark
+    public String sessionEncrypt() {
+        return session.encrypt(PLAINTEXT);
+    }
+
+    @Benchmark
+    public String sessionDecrypt() {
+        return session.decrypt(ciphertext);
+    }
+
+    @Benchmark
+    public char[] sessionDecryptChars() {
+        return session.decryptChars(ciphertext);
+    }
+
+    // Off-heap plaintext from the arena; closing it wipes the slot and returns it.
+    @Benchmark
+    public int sessionDecryptSecret() {
+        try (SecretBuffer secret = session.decryptSecret(ciphertext)) {
+            return secret.length();
+        }
+    }
+
+    // A hot entry: after the first call every access is served from the cache without touching the cipher.
+    @Benchmark
+    public int cachedSecret() {
+        return secrets.withSecret(entry, SecretBuffer::length);
+    }
+
+    @Benchmark
+    public String legacyEncrypt() {
+        return CryptoUtils.encrypt(PLAINTEXT, MASTER_PASSWORD);
+    }
+
+    @Benchmark
+    public String legacyDecrypt() {
+        return CryptoUtils.decrypt(legacyCiphertext, MASTER_PASSWORD);
+    }
+}
@@ -0,0 +1,159 @@
+package passwordmanager.bench;
+
+import passwordmanager.logic.CryptoSession;
+import passwordmanager.logic.MasterPasswordManager;
+import passwordmanager.logic.PasswordManager;
+import passwordmanager.logic.VaultClient;
+import passwordmanager.logic.VaultDaemon;
+import passwordmanager.model.AccountEntry;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load generator for VaultDaemon. Starts a daemon over a generated vault, then runs client connections that each
+// keep `pipeline` GET requests in flight, checks every answer and reports throughput and latency percentiles.
+//
+//   java -cp benchmarks/target/benchmarks.jar passwordmanager.bench.DaemonLoad [connections] [pipeline] [seconds] [unix|tcp] [entries]
+public class DaemonLoad {
+
+    private static final String MASTER_PASSWORD = "Benchmark-Master-1!";
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int pipeline = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        boolean tcp = args.length > 3 && args[3].equals("tcp");
+        int entries = args.length > 4 ? Integer.parseInt(args[4]) : 10_000;
+
+        File directory = BenchmarkFiles.createDirectory();
+        boolean passed;
+        try {
+            passed = run(directory, connections, pipeline, seconds, tcp, entries);
+        } finally {
+            BenchmarkFiles.delete(directory);
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static boolean run(File directory, int connections, int pipeline, int seconds, boolean tcp, int entries)
+            throws Exception {
+        MasterPasswordManager masterPasswordManager = new MasterPasswordManager(directory);
+        masterPasswordManager.setPassword(MASTER_PASSWORD);
+        CryptoSession session = masterPasswordManager.openSession(MASTER_PASSWORD);
+
+        PasswordManager passwordManager = new PasswordManager(directory);
+        List<AccountEntry> generated = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            generated.add(new AccountEntry("platform-" + (i % 500), "user" + i + "@example.com",
+                    session.encrypt("password-" + i)));
+        }
+        passwordManager.addEntries(generated);
+
+        SocketAddress address = tcp
+                ? new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)
+                : UnixDomainSocketAddress.of(new File(directory, VaultDaemon.SOCKET_FILE).getPath());
+        File tokenFile = new File(directory, VaultDaemon.TOKEN_FILE);
+        VaultDaemon daemon = VaultDaemon.bind(address, passwordManager, session, tokenFile);
+        Thread server = new Thread(() -> {
+            try {
+                daemon.serve();
+            } catch (IOException e) {
+                System.err.println("Daemon error: " + e.getMessage());
+            }
+        }, "daemon-accept");
+        server.start();
+        String token = VaultDaemon.readToken(tokenFile);
+
+        AtomicLong failures = new AtomicLong();
+        long[][] latencies = new long[connections][];
+        List<Thread> clients = new ArrayList<>();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        for (int c = 0; c < connections; c++) {
+            int connection = c;
+            clients.add(new Thread(() -> {
+                try (VaultClient client = VaultClient.connect(daemon.getAddress(), token)) {
+                    latencies[connection] = drive(client, pipeline, entries, deadline, failures);
+                } catch (IOException e) {
+                    System.err.println("Client error: " + e.getMessage());
+                    failures.incrementAndGet();
+                    latencies[connection] = new long[0];
+                }
+            }, "daemon-load-" + c));
+        }
+        long start = System.nanoTime();
+        for (Thread client : clients) {
+            client.start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        daemon.close();
+        server.join();
+        passwordManager.close();
+
+        int total = 0;
+        for (long[] connectionLatencies : latencies) {
+            total += connectionLatencies.length;
+        }
+        long[] all = new long[total];
+        int position = 0;
+        for (long[] connectionLatencies : latencies) {
+            System.arraycopy(connectionLatencies, 0, all, position, connectionLatencies.length);
+            position += connectionLatencies.length;
+        }
+        Arrays.sort(all);
+
+        System.out.printf("%s, %d connections, %d in flight each, %.1f s%n",
+                tcp ? "loopback TCP" : "Unix socket", connections, pipeline, elapsed);
+        System.out.printf("  lookups: %,d (%,.0f/s)%n", total, total / elapsed);
+        System.out.printf("  latency: p50 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms%n",
+                percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999), percentile(all, 1.0));
+        System.out.println(failures.get() == 0 ? "PASSED" : "FAILED: " + failures.get() + " wrong answers");
+        return failures.get() == 0;
+    }
+
+    // Sends a batch of lookups, then reads their answers; latency is from the batch leaving to each answer.
+    private static long[] drive(VaultClient client, int pipeline, int entries, long deadline, AtomicLong failures)
+            throws IOException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] latencies = new long[1 << 16];
+        int count = 0;
+        int[] expected = new int[pipeline];
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < pipeline; i++) {
+                int index = random.nextInt(entries);
+                expected[i] = index;
+                client.send(VaultDaemon.GET, "platform-" + (index % 500), "user" + index + "@example.com");
+            }
+            long sent = System.nanoTime();
+            client.flush();
+            for (int i = 0; i < pipeline; i++) {
+                VaultClient.Response response = client.receive();
+                long latency = System.nanoTime() - sent;
+                VaultClient.Entry entry = response.entry();
+                if (entry == null || !new String(entry.getPassword()).equals("password-" + expected[i])) {
+                    failures.incrementAndGet();
+                }
+                if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+                latencies[count++] = latency;
+            }
+        }
+        return Arrays.copyOf(latencies, count);
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,62 @@
+package passwordmanager.bench;
+
+import org.openjdk.jmh.annotations.*;
+import passwordmanager.logic.CryptoSession;
+import passwordmanager.logic.MasterPasswordManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MasterPasswordBenchmark {
+
+    private static final String MASTER_PASSWORD = "Benchmark-Master-1!";
+    private static final String OTHER_PASSWORD = "Benchmark-Master-2!";
+
+    private File directory;
+    private MasterPasswordManager masterPasswordManager;
+    private boolean changed;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = BenchmarkFiles.createDirectory();
+        masterPasswordManager = new MasterPasswordManager(directory);
+        masterPasswordManager.setPassword(MASTER_PASSWORD);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkFiles.delete(directory);
+    }
+
+    @Benchmark
+    public boolean verifyPassword() {
+        return masterPasswordManager.verifyPassword(changed ? OTHER_PASSWORD : MASTER_PASSWORD);
+    }
+
+    @Benchmark
+    public boolean verifyWrongPassword() {
+        return masterPasswordManager.verifyPassword("not-the-master-password");
+    }
+
+    @Benchmark
+    public CryptoSession openSession() {
+        return masterPasswordManager.openSession(changed ? OTHER_PASSWORD : MASTER_PASSWORD);
+    }
+
+    // Independent of vault size: only the wrapped keys in master.hash are rewritten.
+    @Benchmark
+    public boolean changePassword() {
+        boolean result = changed
+                ? masterPasswordManager.changePassword(OTHER_PASSWORD, MASTER_PASSWORD)
+                : masterPasswordManager.changePassword(MASTER_PASSWORD, OTHER_PASSWORD);
+        changed = !changed;
+        return result;
+    }
+}
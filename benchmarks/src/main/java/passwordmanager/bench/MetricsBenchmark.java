@@ -0,0 +1,39 @@
+package passwordmanager.bench;
+
+import org.openjdk.jmh.annotations.*;
+import passwordmanager.logic.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+
+// The cost the instrumentation adds to every measured call; run with -t 4 to see it under contention.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private final LatencyHistogram timer = new LatencyHistogram();
+    private final LatencyHistogram sampled = new LatencyHistogram(16);
+
+    @Benchmark
+    public void record() {
+        timer.record(1234);
+    }
+
+    @Benchmark
+    public void timed() {
+        timer.recordSince(System.nanoTime());
+    }
+
+    @Benchmark
+    public void sampled() {
+        sampled.stop(sampled.start());
+    }
+
+    @Benchmark
+    public long snapshot() {
+        return timer.snapshot().percentileNanos(0.99);
+    }
+}
@@ -0,0 +1,41 @@
+package passwordmanager.bench;
+
+import org.openjdk.jmh.annotations.*;
+import passwordmanager.logic.Vault;
+import passwordmanager.model.AccountEntry;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class SearchBenchmark {
+
+    private static final String[] PLATFORMS = {"GitHub", "GitLab", "Google", "Netflix", "Amazon", "Facebook"};
+
+    @Param({"100000", "1000000"})
+    public int entries;
+
+    @Param({"git", "gthub", "netflx", "user123", "example.com"})
+    public String query;
+
+    private Vault vault;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        vault = new Vault();
+        for (int i = 0; i < entries; i++) {
+            String platform = i % 10 == 0 ? PLATFORMS[i % PLATFORMS.length] : "platform-" + (i % 50000);
+            vault.add(new AccountEntry(platform, "user" + i + "@example.com", "x"));
+        }
+    }
+
+    @Benchmark
+    public List<AccountEntry> search() {
+        return vault.search(query, 1000);
+    }
+}
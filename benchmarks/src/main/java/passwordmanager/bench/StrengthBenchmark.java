@@ -0,0 +1,28 @@
+package passwordmanager.bench;
+
+import org.openjdk.jmh.annotations.*;
+import passwordmanager.logic.PasswordStrength;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StrengthBenchmark {
+
+    @Param({"password", "qwerty123456", "Tr0ub4dor&3", "xK9#mQ2$vL7!pZ-correct-horse"})
+    public String password;
+
+    @Benchmark
+    public PasswordStrength.Result evaluate() {
+        return PasswordStrength.evaluate(password);
+    }
+
+    @Benchmark
+    public boolean meetsPolicy() {
+        return PasswordStrength.meetsPolicy(password);
+    }
+}
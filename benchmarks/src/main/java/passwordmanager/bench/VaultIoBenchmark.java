@@ -0,0 +1,84 @@
+package passwordmanager.bench;
+
+import org.openjdk.jmh.annotations.*;
+import passwordmanager.logic.CryptoSession;
+import passwordmanager.logic.PasswordManager;
+import passwordmanager.logic.VaultCipher;
+import passwordmanager.model.AccountEntry;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class VaultIoBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int entries;
+
+    // Whether the vault file and journal are encrypted with the session's file key.
+    @Param({"false", "true"})
+    public boolean encrypted;
+
+    private File directory;
+    private VaultCipher cipher;
+    private PasswordManager loaded;
+    private String middleId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = BenchmarkFiles.createDirectory();
+        CryptoSession session = CryptoSession.open("Benchmark-Master-1!", new byte[16]);
+        String ciphertext = session.encrypt("correct-horse-battery");
+        cipher = encrypted ? session.fileCipher() : null;
+
+        List<AccountEntry> generated = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            generated.add(new AccountEntry("platform-" + (i % 5000), "user" + i + "@example.com", ciphertext));
+        }
+        PasswordManager writer = new PasswordManager(directory);
+        writer.setCipher(cipher);
+        writer.addEntries(generated);
+        writer.saveToFile();
+        writer.close();
+
+        loaded = new PasswordManager(directory);
+        loaded.setCipher(cipher);
+        loaded.loadFromFile();
+        middleId = generated.get(entries / 2).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        loaded.close();
+        BenchmarkFiles.delete(directory);
+    }
+
+    @Benchmark
+    public int load() {
+        PasswordManager passwordManager = new PasswordManager(directory);
+        passwordManager.setCipher(cipher);
+        passwordManager.loadFromFile();
+        int size = passwordManager.size();
+        passwordManager.close();
+        return size;
+    }
+
+    @Benchmark
+    public void save() {
+        loaded.saveToFile();
+    }
+
+    // One lookup through the snapshot's index; should not grow with the vault size.
+    @Benchmark
+    public AccountEntry readOneEntry() {
+        return loaded.readSavedEntry(middleId);
+    }
+}
@@ -0,0 +1,228 @@
+package passwordmanager.bench;
+
+import passwordmanager.logic.PasswordManager;
+import passwordmanager.logic.Vault;
+import passwordmanager.model.AccountEntry;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Stress test for concurrent use of PasswordManager: reader threads check snapshots, lookups and searches while
+// writer threads add, edit and remove entries. Afterwards the vault, and the vault reloaded from disk, must hold
+// exactly what the writers left behind.
+//
+//   java -cp benchmarks/target/benchmarks.jar passwordmanager.bench.VaultStress [readers] [writers] [seconds] [entries]
+public class VaultStress {
+
+    private static final int MAX_FAILURES = 20;
+
+    private final PasswordManager passwordManager;
+    private final int writers;
+    // Each writer owns the entries whose ids it put here, so it knows their final state.
+    private final List<Map<String, AccountEntry>> expected = new ArrayList<>();
+    private final ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+    private String[] initialIds;
+    private final AtomicLong reads = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong snapshots = new AtomicLong();
+    private volatile boolean running = true;
+
+    private VaultStress(PasswordManager passwordManager, int writers) {
+        this.passwordManager = passwordManager;
+        this.writers = writers;
+        for (int i = 0; i < writers; i++) {
+            expected.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int readers = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int writers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int entries = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+
+        File directory = BenchmarkFiles.createDirectory();
+        boolean passed;
+        try {
+            passed = run(directory, readers, writers, seconds, entries);
+        } finally {
+            BenchmarkFiles.delete(directory);
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static boolean run(File directory, int readers, int writers, int seconds, int entries)
+            throws InterruptedException {
+        PasswordManager passwordManager = new PasswordManager(directory);
+        VaultStress stress = new VaultStress(passwordManager, writers);
+        List<AccountEntry> initial = new ArrayList<>(entries);
+        stress.initialIds = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            AccountEntry entry = new AccountEntry("platform-" + (i % 500), "user" + i + "@example.com", "v2:initial");
+            stress.expected.get(i % writers).put(entry.getId(), entry);
+            stress.initialIds[i] = entry.getId();
+            initial.add(entry);
+        }
+        passwordManager.addEntries(initial);
+        passwordManager.saveToFile();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < readers; i++) {
+            threads.add(new Thread(stress::read, "stress-reader-" + i));
+        }
+        for (int i = 0; i < writers; i++) {
+            int writer = i;
+            threads.add(new Thread(() -> stress.write(writer), "stress-writer-" + i));
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        stress.running = false;
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        stress.verify(passwordManager, "in memory");
+        passwordManager.close();
+        PasswordManager reloaded = new PasswordManager(directory);
+        reloaded.loadFromFile();
+        stress.verify(reloaded, "reloaded from disk");
+        reloaded.close();
+
+        System.out.printf("%d readers, %d writers, %.1f s%n", readers, writers, elapsed);
+        System.out.printf("  reads:     %,.0f/s (%,.0f/s per reader)%n",
+                stress.reads.get() / elapsed, stress.reads.get() / elapsed / Math.max(1, readers));
+        System.out.printf("  snapshots: %,.0f/s%n", stress.snapshots.get() / elapsed);
+        System.out.printf("  writes:    %,.0f/s%n", stress.writes.get() / elapsed);
+        if (stress.failures.isEmpty()) {
+            System.out.println("PASSED");
+            return true;
+        }
+        for (String failure : stress.failures) {
+            System.out.println("  " + failure);
+        }
+        System.out.println("FAILED");
+        return false;
+    }
+
+    private void read() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running) {
+            int operation = random.nextInt(100);
+            if (operation < 2) {
+                checkSnapshot(passwordManager.snapshot());
+                snapshots.incrementAndGet();
+            } else if (operation < 10) {
+                String platform = "platform-" + random.nextInt(500);
+                for (AccountEntry entry : passwordManager.findByPlatform(platform)) {
+                    if (!platform.equals(entry.getPlatform())) {
+                        report("findByPlatform(" + platform + ") returned " + entry.getPlatform());
+                    }
+                }
+            } else if (operation < 15) {
+                if (passwordManager.search("platform-" + random.nextInt(500), 20) == null) {
+                    report("search returned null");
+                }
+            } else {
+                // May have been removed meanwhile; if it is there, it must be the right one.
+                String id = initialIds[random.nextInt(initialIds.length)];
+                AccountEntry entry = passwordManager.findById(id);
+                if (entry != null && !id.equals(entry.getId())) {
+                    report("findById(" + id + ") returned " + entry.getId());
+                }
+            }
+            reads.incrementAndGet();
+        }
+    }
+
+    // A snapshot must be internally consistent and must not change, whatever the writers do meanwhile.
+    private void checkSnapshot(Vault.Snapshot snapshot) {
+        List<AccountEntry> entries = snapshot.entries();
+        List<AccountEntry> sorted = snapshot.sortedEntries();
+        if (entries.size() != snapshot.size() || sorted.size() != snapshot.size()) {
+            report("snapshot sizes differ: " + entries.size() + ", " + sorted.size() + ", " + snapshot.size());
+            return;
+        }
+        Set<String> ids = new HashSet<>();
+        for (AccountEntry entry : entries) {
+            if (!ids.add(entry.getId())) report("snapshot holds " + entry.getId() + " twice");
+        }
+        for (AccountEntry entry : sorted) {
+            if (!ids.contains(entry.getId())) report("snapshot orders differ at " + entry.getId());
+        }
+        try {
+            entries.clear();
+            report("snapshot entries can be modified");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        Thread.yield();
+        if (snapshot.entries().size() != ids.size()) report("snapshot changed while it was read");
+    }
+
+    private void write(int writer) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<String, AccountEntry> owned = expected.get(writer);
+        List<String> ids = new ArrayList<>(owned.keySet());
+        long sequence = 0;
+        while (running) {
+            int operation = random.nextInt(10);
+            int index = ids.isEmpty() ? -1 : random.nextInt(ids.size());
+            String id = index < 0 ? null : ids.get(index);
+            if (operation < 3 || id == null) {
+                AccountEntry entry = new AccountEntry("platform-" + random.nextInt(500),
+                        "writer" + writer + "-" + sequence++ + "@example.com", "v2:added");
+                owned.put(entry.getId(), entry);
+                ids.add(entry.getId());
+                passwordManager.addEntry(entry);
+            } else if (operation < 8) {
+                AccountEntry updated = new AccountEntry(owned.get(id));
+                updated.setLogin("edited" + sequence++ + "@example.com");
+                updated.setPassword("v2:edited" + sequence);
+                owned.put(id, updated);
+                passwordManager.updateEntry(updated);
+            } else {
+                ids.set(index, ids.get(ids.size() - 1));
+                ids.remove(ids.size() - 1);
+                passwordManager.removeEntry(owned.remove(id));
+            }
+            writes.incrementAndGet();
+        }
+    }
+
+    private void verify(PasswordManager passwordManager, String stage) {
+        int total = 0;
+        for (Map<String, AccountEntry> owned : expected) {
+            total += owned.size();
+            for (AccountEntry entry : owned.values()) {
+                AccountEntry actual = passwordManager.findById(entry.getId());
+                if (actual == null) {
+                    report(stage + ": " + entry.getId() + " is missing");
+                } else if (!Objects.equals(actual.getLogin(), entry.getLogin())
+                        || !Objects.equals(actual.getPassword(), entry.getPassword())) {
+                    report(stage + ": " + entry.getId() + " has an old version");
+                }
+            }
+        }
+        if (passwordManager.size() != total) {
+            report(stage + ": " + passwordManager.size() + " entries, expected " + total);
+        }
+        checkSnapshot(passwordManager.snapshot());
+    }
+
+    private void report(String failure) {
+        if (failures.size() < MAX_FAILURES) failures.add(failure);
+    }
+}
@@ -0,0 +1,355 @@
+package passwordmanager.cli;
+
+import passwordmanager.logic.BreachIndex;
+import passwordmanager.logic.CryptoSession;
+import passwordmanager.logic.MasterPasswordManager;
+import passwordmanager.logic.PasswordManager;
+import passwordmanager.logic.PasswordReuse;
+import passwordmanager.logic.VaultClient;
+import passwordmanager.logic.VaultDaemon;
+import passwordmanager.logic.VaultExporter;
+import passwordmanager.logic.VaultFootprint;
+import passwordmanager.logic.VaultImporter;
+import passwordmanager.logic.VaultVerifier;
+import passwordmanager.model.AccountEntry;
+
+import java.io.BufferedReader;
+import java.io.Console;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.SocketAddress;
+import java.util.Arrays;
+import java.util.List;
+
+public class VaultCli {
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            printUsage();
+            System.exit(1);
+        }
+
+        try {
+            switch (args[0]) {
+                case "build-breach-index" -> buildBreachIndex(args);
+                case "export" -> export(args);
+                case "import" -> importFile(args);
+                case "recalibrate" -> recalibrate(args);
+                case "footprint" -> footprint();
+                case "reuse" -> reuse();
+                case "serve" -> serve(args);
+                case "get" -> get(args);
+                case "verify" -> verify(args);
+                case "metrics" -> metrics(args);
+                default -> {
+                    printUsage();
+                    System.exit(1);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void buildBreachIndex(String[] args) throws IOException {
+        if (args.length < 2) {
+            printUsage();
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        long count = BreachIndex.build(new File(args[1]),
+                new File(BreachIndex.BLOOM_FILE), new File(BreachIndex.HASH_FILE));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.println("Indexed " + count + " hashes into " + BreachIndex.BLOOM_FILE
+                + " and " + BreachIndex.HASH_FILE + " in " + millis + " ms");
+    }
+
+    private static void export(String[] args) throws IOException {
+        String format = args.length > 1 ? args[1] : "csv";
+        if (!format.equals("csv") && !format.equals("json")) {
+            printUsage();
+            System.exit(1);
+        }
+        boolean csv = format.equals("csv");
+        File target = new File(args.length > 2 ? args[2] : csv ? VaultExporter.CSV_FILE : VaultExporter.JSON_FILE);
+
+        CryptoSession session = unlock();
+        PasswordManager passwordManager = new PasswordManager();
+        passwordManager.setCipher(session.fileCipher());
+        passwordManager.loadFromFile();
+
+        VaultExporter exporter = new VaultExporter(session);
+        VaultExporter.Progress progress = new VaultExporter.Progress() {
+            private long lastPercent = -1;
+
+            @Override
+            public void update(long done, long total) {
+                long percent = total == 0 ? 100 : done * 100 / total;
+                if (percent / 10 != lastPercent / 10) {
+                    System.err.println("Exported " + done + "/" + total);
+                    lastPercent = percent;
+                }
+            }
+        };
+
+        long start = System.nanoTime();
+        long count = csv
+                ? exporter.exportCsv(passwordManager.getAllEntries(), target, progress)
+                : exporter.exportEncryptedJson(passwordManager.getAllEntries(), target, progress);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        passwordManager.close();
+        System.out.println("Exported " + count + " entries to " + target + " in " + millis + " ms");
+    }
+
+    private static void importFile(String[] args) throws IOException {
+        if (args.length < 2) {
+            printUsage();
+            System.exit(1);
+        }
+
+        CryptoSession session = unlock();
+        PasswordManager passwordManager = new PasswordManager();
+        passwordManager.setCipher(session.fileCipher());
+        passwordManager.loadFromFile();
+
+        VaultImporter.Report report = new VaultImporter(session).importFile(new File(args[1]), passwordManager);
+        passwordManager.close();
+
+        System.out.println(report);
+        for (String error : report.getErrors()) {
+            System.err.println("  " + error);
+        }
+        if (report.getInvalid() > report.getErrors().size()) {
+            System.err.println("  ... and " + (report.getInvalid() - report.getErrors().size()) + " more");
+        }
+    }
+
+    private static void recalibrate(String[] args) throws IOException {
+        long targetMillis = MasterPasswordManager.TARGET_UNLOCK_MILLIS;
+        if (args.length > 1) {
+            try {
+                targetMillis = Long.parseLong(args[1]);
+            } catch (NumberFormatException e) {
+                targetMillis = 0;
+            }
+            if (targetMillis <= 0) {
+                printUsage();
+                System.exit(1);
+            }
+        }
+
+        MasterPasswordManager masterPasswordManager = requireMasterPassword();
+        int previous = masterPasswordManager.getIterations();
+        String password = readPassword("Master password: ");
+        int iterations = password == null ? -1 : masterPasswordManager.recalibrate(password, targetMillis);
+        if (iterations < 0) {
+            System.err.println("Invalid master password");
+            System.exit(1);
+        }
+        System.out.println("Key derivation now uses " + iterations + " PBKDF2 iterations (was " + previous
+                + "), about " + targetMillis + " ms per unlock on this machine");
+    }
+
+    // Needs the master password only when the vault file is encrypted; otherwise the stored entries are loaded
+    // as they are, passwords still encrypted.
+    private static void footprint() throws IOException {
+        PasswordManager passwordManager = new PasswordManager();
+        if (passwordManager.isEncrypted()) {
+            passwordManager.setCipher(unlock().fileCipher());
+        }
+        long before = usedHeap();
+        passwordManager.loadFromFile();
+        long loaded = usedHeap() - before;
+
+        System.out.println(VaultFootprint.of(passwordManager.getAllEntries()));
+        System.out.printf("heap used by the loaded vault, indexes included: %.1f MB%n", loaded / (1024.0 * 1024.0));
+        passwordManager.close();
+    }
+
+    // Lists the passwords used by more than one entry; no password is printed.
+    private static void reuse() throws IOException {
+        CryptoSession session = unlock();
+        PasswordManager passwordManager = new PasswordManager();
+        passwordManager.setCipher(session.fileCipher());
+        passwordManager.loadFromFile();
+        PasswordReuse reuse = new PasswordReuse(session, passwordManager);
+
+        long start = System.nanoTime();
+        int tagged = reuse.tagMissing();
+        if (tagged > 0) {
+            System.err.println("Computed " + tagged + " password tags in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+        start = System.nanoTime();
+        List<List<AccountEntry>> groups = reuse.findReused();
+        double millis = (System.nanoTime() - start) / 1e6;
+        passwordManager.close();
+
+        int reused = 0;
+        for (List<AccountEntry> group : groups) {
+            reused += group.size();
+            System.out.println(group.size() + " accounts share a password:");
+            for (AccountEntry entry : group) {
+                System.out.println("  " + entry.getPlatform() + " - " + entry.getLogin());
+            }
+        }
+        System.out.printf("%d reused passwords across %d of %d entries (checked in %.2f ms)%n",
+                groups.size(), reused, passwordManager.size(), millis);
+    }
+
+    // Unlocks once and answers lookups until the process is stopped.
+    private static void serve(String[] args) throws IOException {
+        SocketAddress address = VaultDaemon.parseAddress(args.length > 1 ? args[1] : VaultDaemon.SOCKET_FILE);
+        CryptoSession session = unlock();
+        PasswordManager passwordManager = new PasswordManager();
+        passwordManager.setCipher(session.fileCipher());
+        passwordManager.loadFromFile();
+
+        VaultDaemon daemon = VaultDaemon.bind(address, passwordManager, session, new File(VaultDaemon.TOKEN_FILE));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                daemon.close();
+            } catch (IOException e) {
+                System.err.println("Daemon shutdown error: " + e.getMessage());
+            }
+            passwordManager.close();
+        }));
+        System.out.println("Serving " + passwordManager.size() + " entries on " + daemon.getAddress()
+                + " (token in " + VaultDaemon.TOKEN_FILE + ")");
+        daemon.serve();
+    }
+
+    // Prints one password, for scripts; needs a running daemon instead of the master password.
+    private static void get(String[] args) throws IOException {
+        if (args.length < 3) {
+            printUsage();
+            System.exit(1);
+        }
+
+        SocketAddress address = VaultDaemon.parseAddress(args.length > 3 ? args[3] : VaultDaemon.SOCKET_FILE);
+        File tokenFile = new File(VaultDaemon.TOKEN_FILE);
+        if (!tokenFile.exists()) {
+            System.err.println("No daemon is running here (" + VaultDaemon.TOKEN_FILE + " not found). Start one with: serve");
+            System.exit(1);
+        }
+        String token = VaultDaemon.readToken(tokenFile);
+        VaultClient.Entry entry;
+        try (VaultClient client = VaultClient.connect(address, token)) {
+            entry = client.get(args[1], args[2]);
+        }
+        if (entry == null) {
+            System.err.println("No entry for " + args[2] + " on " + args[1]);
+            System.exit(2);
+        }
+        System.out.println(entry.getPassword());
+        Arrays.fill(entry.getPassword(), '\0');
+    }
+
+    // Prints the latency histograms and counters of a running daemon, in the Prometheus text format.
+    private static void metrics(String[] args) throws IOException {
+        SocketAddress address = VaultDaemon.parseAddress(args.length > 1 ? args[1] : VaultDaemon.SOCKET_FILE);
+        File tokenFile = new File(VaultDaemon.TOKEN_FILE);
+        if (!tokenFile.exists()) {
+            System.err.println("No daemon is running here (" + VaultDaemon.TOKEN_FILE + " not found). Start one with: serve");
+            System.exit(1);
+        }
+        try (VaultClient client = VaultClient.connect(address, VaultDaemon.readToken(tokenFile))) {
+            System.out.print(client.metrics());
+        }
+    }
+
+    // Checks every entry; with --quarantine, damaged ones are moved to passwords.quarantine. Exits with 2 while
+    // damaged entries remain, so it can run from a scheduled job.
+    private static void verify(String[] args) throws IOException {
+        boolean quarantine = args.length > 1 && args[1].equals("--quarantine");
+        if (args.length > 1 && !quarantine) {
+            printUsage();
+            System.exit(1);
+        }
+
+        CryptoSession session = unlock();
+        PasswordManager passwordManager = new PasswordManager();
+        passwordManager.setCipher(session.fileCipher());
+        passwordManager.loadFromFile();
+        VaultVerifier.Report report = new VaultVerifier(session, passwordManager).verify();
+
+        System.out.println(report);
+        for (VaultVerifier.Damage damage : report.getDamaged()) {
+            System.out.println("  " + damage);
+        }
+        int remaining = report.getDamaged().size();
+        if (quarantine && remaining > 0) {
+            if (report.looksLikeWrongKey()) {
+                System.err.println("Most entries fail with this key; nothing was quarantined");
+            } else {
+                remaining -= passwordManager.quarantine(report.getDamaged());
+            }
+        }
+        passwordManager.close();
+        if (remaining > 0) System.exit(2);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    static CryptoSession unlock() throws IOException {
+        MasterPasswordManager masterPasswordManager = requireMasterPassword();
+        String password = readPassword("Master password: ");
+        CryptoSession session;
+        try {
+            session = password == null ? null : masterPasswordManager.unlock(password);
+        } catch (UncheckedIOException e) {
+            System.err.println(e.getCause().getMessage());
+            System.exit(1);
+            return null;
+        }
+        if (session == null) {
+            System.err.println("Invalid master password");
+            System.exit(1);
+        }
+        return session;
+    }
+
+    private static MasterPasswordManager requireMasterPassword() {
+        MasterPasswordManager masterPasswordManager = new MasterPasswordManager();
+        if (!masterPasswordManager.isPasswordSet()) {
+            System.err.println("No master password set. Run the app once to create the vault.");
+            System.exit(1);
+        }
+        return masterPasswordManager;
+    }
+
+    private static String readPassword(String prompt) throws IOException {
+        Console console = System.console();
+        if (console != null) {
+            char[] password = console.readPassword(prompt);
+            return password == null ? null : new String(password);
+        }
+        // Without a terminal (scripts, pipes) the password is read as the first line of standard input.
+        return new BufferedReader(new InputStreamReader(System.in)).readLine();
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java passwordmanager.cli.VaultCli <command> [arguments]");
+        System.err.println();
+        System.err.println("Commands:");
+        System.err.println("  build-breach-index <sha1-list.txt>   build breach.bloom and breach.sha1 from a sorted SHA-1 list");
+        System.err.println("  export [csv|json] [file]             export the vault (plaintext CSV or encrypted JSON)");
+        System.err.println("  import <file.csv|file.json>          import entries from a CSV or JSON export");
+        System.err.println("  recalibrate [target-ms]              re-tune the master password key derivation for this machine");
+        System.err.println("  footprint                            report the heap used by the loaded vault");
+        System.err.println("  reuse                                list entries that share a password");
+        System.err.println("  serve [socket-file|port]             unlock once and serve lookups (default " + VaultDaemon.SOCKET_FILE + ")");
+        System.err.println("  get <platform> <login> [socket|port] print a password from a running daemon");
+        System.err.println("  verify [--quarantine]                check every entry; move damaged ones to passwords.quarantine");
+        System.err.println("  metrics [socket|port]                print the latency histograms and counters of a running daemon");
+    }
+}
@@ -0,0 +1,315 @@
+package passwordmanager.logic;
+
+import passwordmanager.model.AccountEntry;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+// Offline breach corpus: a Bloom filter answers most lookups, a sorted SHA-1 file confirms the rest.
+// Both files are memory-mapped, so the corpus never lives on the Java heap.
+public class BreachIndex implements Closeable {
+
+    public static final String BLOOM_FILE = "breach.bloom";
+    public static final String HASH_FILE = "breach.sha1";
+
+    private static final int MAGIC = 0x504D4246;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int HASH_LENGTH = 20;
+    private static final int BITS_PER_ENTRY = 10;
+    private static final int HASH_FUNCTIONS = 7;
+    private static final int MAX_HASH_FUNCTIONS = 32;
+    private static final int PROGRESS_INTERVAL = 256;
+    private static final long BLOOM_SEGMENT = 1L << 30;
+    // A whole number of records, so no record straddles two mapped segments.
+    private static final long HASH_SEGMENT = HASH_LENGTH * (1L << 25);
+
+    private final FileChannel bloomChannel;
+    private final FileChannel hashChannel;
+    private final MappedByteBuffer[] bloomSegments;
+    private final MappedByteBuffer[] hashSegments;
+    private final long bitCount;
+    private final int hashFunctions;
+    private final long hashCount;
+    private final ThreadLocal<MessageDigest> sha1 = ThreadLocal.withInitial(BreachIndex::newSha1);
+
+    public static class Report {
+        private final List<AccountEntry> breached = new ArrayList<>();
+        private final List<AccountEntry> unreadable = new ArrayList<>();
+        private boolean complete;
+
+        public List<AccountEntry> getBreached() {
+            return breached;
+        }
+
+        // Entries whose password could not be decrypted, and so were not checked.
+        public List<AccountEntry> getUnreadable() {
+            return unreadable;
+        }
+
+        // False when the check was interrupted before it reached every entry.
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+
+    private BreachIndex(File bloomFile, File hashFile) throws IOException {
+        this.bloomChannel = FileChannel.open(bloomFile.toPath(), StandardOpenOption.READ);
+        try {
+            this.hashChannel = FileChannel.open(hashFile.toPath(), StandardOpenOption.READ);
+        } catch (IOException | RuntimeException e) {
+            bloomChannel.close();
+            throw e;
+        }
+
+        // Both channels are closed again if the files turn out to be unusable.
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            bloomChannel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a breach index: " + bloomFile);
+            }
+            this.bitCount = header.getLong();
+            this.hashFunctions = header.getInt();
+            // Checked before anything is mapped: a zero bit count fails every lookup, a huge number of hash
+            // functions makes each one loop for ages, and a filter longer than the file cannot be mapped.
+            if (bitCount <= 0 || bitCount > (bloomChannel.size() - HEADER_SIZE) * 8
+                    || hashFunctions < 1 || hashFunctions > MAX_HASH_FUNCTIONS) {
+                throw new IOException("Damaged breach index header: " + bloomFile);
+            }
+
+            this.bloomSegments = map(bloomChannel, HEADER_SIZE, (bitCount + 7) / 8, BLOOM_SEGMENT, FileChannel.MapMode.READ_ONLY);
+            this.hashCount = hashChannel.size() / HASH_LENGTH;
+            this.hashSegments = map(hashChannel, 0, hashCount * HASH_LENGTH, HASH_SEGMENT, FileChannel.MapMode.READ_ONLY);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public static BreachIndex open(File bloomFile, File hashFile) throws IOException {
+        return new BreachIndex(bloomFile, hashFile);
+    }
+
+    // Returns null when no index has been built, so callers can simply skip breach checks.
+    public static BreachIndex openDefault() {
+        File bloomFile = new File(BLOOM_FILE);
+        File hashFile = new File(HASH_FILE);
+        if (!bloomFile.exists() || !hashFile.exists()) return null;
+
+        try {
+            return open(bloomFile, hashFile);
+        } catch (IOException e) {
+            System.err.println("Breach index error: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public long size() {
+        return hashCount;
+    }
+
+    public boolean isBreached(String password) {
+        return containsHash(sha1.get().digest(password.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public boolean containsHash(byte[] hash) {
+        return mightContain(hash) && binarySearch(hash);
+    }
+
+    // Hashed from a heap copy that is wiped right after, since a digest keeps its own unwiped copy of whatever
+    // it reads from a direct buffer.
+    public boolean isBreached(SecretBuffer password) {
+        byte[] bytes = password.toBytes();
+        try {
+            return containsHash(sha1.get().digest(bytes));
+        } finally {
+            Arrays.fill(bytes, (byte) 0);
+        }
+    }
+
+    // Checks every entry's password, reporting progress every few hundred entries. An entry that does not decrypt
+    // is listed as unreadable rather than ending the check; an interrupt ends it early with an incomplete report.
+    public Report findBreached(Collection<AccountEntry> entries, CryptoSession session,
+                               VaultExporter.Progress progress) {
+        Report report = new Report();
+        long done = 0;
+        for (AccountEntry entry : entries) {
+            if (Thread.currentThread().isInterrupted()) return report;
+            SecretBuffer password = decryptOrNull(entry, session);
+            if (password == null) {
+                report.unreadable.add(entry);
+            } else {
+                try (password) {
+                    if (isBreached(password)) report.breached.add(entry);
+                }
+            }
+            if (++done % PROGRESS_INTERVAL == 0) progress.update(done, entries.size());
+        }
+        progress.update(done, entries.size());
+        report.complete = true;
+        return report;
+    }
+
+    private static SecretBuffer decryptOrNull(AccountEntry entry, CryptoSession session) {
+        try {
+            return session.decryptSecret(entry.getPassword());
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        bloomChannel.close();
+        hashChannel.close();
+    }
+
+    // Source is a SHA-1 list sorted by hash, one "HASH" or "HASH:COUNT" per line (the "ordered by hash" HIBP download).
+    public static long build(File source, File bloomFile, File hashFile) throws IOException {
+        long count = 0;
+        try (BufferedReader reader = openSource(source)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) count++;
+            }
+        }
+
+        long bitCount = Math.max(64, count * BITS_PER_ENTRY);
+        try (FileChannel bloom = FileChannel.open(bloomFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             OutputStream hashes = new BufferedOutputStream(new FileOutputStream(hashFile), 1 << 20);
+             BufferedReader reader = openSource(source)) {
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(bitCount).putInt(HASH_FUNCTIONS).putInt(0);
+            header.flip();
+            bloom.write(header, 0);
+
+            MappedByteBuffer[] segments = map(bloom, HEADER_SIZE, (bitCount + 7) / 8, BLOOM_SEGMENT, FileChannel.MapMode.READ_WRITE);
+            byte[] previous = null;
+            byte[] hash = new byte[HASH_LENGTH];
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+                parseHex(line, hash, lineNumber);
+                if (previous != null && Arrays.compareUnsigned(previous, hash) > 0) {
+                    throw new IOException("Source is not sorted by hash at line " + lineNumber);
+                }
+                hashes.write(hash);
+                long h1 = getLong(hash, 0);
+                long h2 = getLong(hash, 8);
+                for (int i = 0; i < HASH_FUNCTIONS; i++) {
+                    long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+                    long byteIndex = bit >>> 3;
+                    MappedByteBuffer segment = segments[(int) (byteIndex / BLOOM_SEGMENT)];
+                    int offset = (int) (byteIndex % BLOOM_SEGMENT);
+                    segment.put(offset, (byte) (segment.get(offset) | (1 << (bit & 7))));
+                }
+                previous = previous == null ? hash.clone() : copyInto(hash, previous);
+            }
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        }
+        return count;
+    }
+
+    private boolean mightContain(byte[] hash) {
+        long h1 = getLong(hash, 0);
+        long h2 = getLong(hash, 8);
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            long byteIndex = bit >>> 3;
+            byte value = bloomSegments[(int) (byteIndex / BLOOM_SEGMENT)].get((int) (byteIndex % BLOOM_SEGMENT));
+            if ((value & (1 << (bit & 7))) == 0) return false;
+        }
+        return true;
+    }
+
+    private boolean binarySearch(byte[] hash) {
+        long low = 0;
+        long high = hashCount - 1;
+        while (low <= high) {
+            long middle = (low + high) >>> 1;
+            int comparison = compareRecord(middle, hash);
+            if (comparison < 0) low = middle + 1;
+            else if (comparison > 0) high = middle - 1;
+            else return true;
+        }
+        return false;
+    }
+
+    private int compareRecord(long record, byte[] hash) {
+        long position = record * HASH_LENGTH;
+        MappedByteBuffer segment = hashSegments[(int) (position / HASH_SEGMENT)];
+        int offset = (int) (position % HASH_SEGMENT);
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            int difference = Byte.toUnsignedInt(segment.get(offset + i)) - Byte.toUnsignedInt(hash[i]);
+            if (difference != 0) return difference;
+        }
+        return 0;
+    }
+
+    private static MappedByteBuffer[] map(FileChannel channel, long start, long length, long segmentSize,
+                                          FileChannel.MapMode mode) throws IOException {
+        int segmentCount = (int) ((length + segmentSize - 1) / segmentSize);
+        MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long offset = i * segmentSize;
+            segments[i] = channel.map(mode, start + offset, Math.min(segmentSize, length - offset));
+        }
+        return segments;
+    }
+
+    private static BufferedReader openSource(File source) throws IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(source), StandardCharsets.US_ASCII), 1 << 20);
+    }
+
+    private static void parseHex(String line, byte[] target, long lineNumber) throws IOException {
+        if (line.length() < HASH_LENGTH * 2) {
+            throw new IOException("Invalid SHA-1 at line " + lineNumber);
+        }
+        for (int i = 0; i < HASH_LENGTH; i++) {
+            int high = Character.digit(line.charAt(2 * i), 16);
+            int low = Character.digit(line.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IOException("Invalid SHA-1 at line " + lineNumber);
+            }
+            target[i] = (byte) ((high << 4) | low);
+        }
+    }
+
+    private static byte[] copyInto(byte[] source, byte[] target) {
+        System.arraycopy(source, 0, target, 0, source.length);
+        return target;
+    }
+
+    private static long getLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static MessageDigest newSha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (Exception e) {
+            throw new RuntimeException("SHA-1 not available");
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package passwordmanager.logic;
+
+import passwordmanager.model.AccountEntry;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+
+public class CryptoSession {
+
+    static final int KDF_ITERATIONS = 210_000;
+    // Entries are Base64(nonce || ciphertext || tag) under AES-GCM with a fresh random nonce each.
+    private static final String VERSION_PREFIX = "v3:";
+    // Entries from before GCM: AES in ECB mode under the data key. Read but no longer written.
+    private static final String ECB_PREFIX = "v2:";
+    private static final String ENTRY_ALGORITHM = "AES/GCM/NoPadding";
+    private static final int NONCE_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final String ENTRY_KEY_LABEL = "entry-encryption";
+    private static final String PASSWORD_TAG_LABEL = "password-reuse-tag";
+    private static final String FILE_KEY_LABEL = "vault-file-encryption";
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKeySpec entryKey;
+    private final ThreadLocal<Cipher> entryCipher;
+    private final ThreadLocal<Cipher> ecbDecryptCipher;
+    private final ThreadLocal<Cipher> legacyDecryptCipher;
+    private final ThreadLocal<Mac> tagMac;
+    private final VaultCipher fileCipher;
+
+    private CryptoSession(SecretKeySpec key, SecretKeySpec legacyKey) {
+        this.entryKey = CryptoUtils.deriveSubkey(key, ENTRY_KEY_LABEL);
+        // Initialised per entry with its own nonce, so only the instance is reused.
+        this.entryCipher = ThreadLocal.withInitial(() -> CryptoUtils.createCipher(ENTRY_ALGORITHM));
+        this.ecbDecryptCipher = ThreadLocal.withInitial(() -> CryptoUtils.createCipher(Cipher.DECRYPT_MODE, key));
+        // Null for vaults created with a session, which have no entries without a version prefix.
+        this.legacyDecryptCipher = legacyKey == null ? null
+                : ThreadLocal.withInitial(() -> CryptoUtils.createCipher(Cipher.DECRYPT_MODE, legacyKey));
+        SecretKeySpec tagKey = CryptoUtils.deriveSubkey(key, PASSWORD_TAG_LABEL);
+        this.tagMac = ThreadLocal.withInitial(() -> CryptoUtils.createMac(tagKey));
+        this.fileCipher = new VaultCipher(CryptoUtils.deriveSubkey(key, FILE_KEY_LABEL));
+    }
+
+    public static CryptoSession open(String masterPassword, byte[] salt) {
+        SecretKeySpec key = CryptoUtils.deriveKey(masterPassword, salt, KDF_ITERATIONS);
+        return new CryptoSession(key, CryptoUtils.getKey(masterPassword));
+    }
+
+    // Session over keys unwrapped from the master file, so it no longer depends on the current master password.
+    static CryptoSession withKeys(SecretKeySpec dataKey, SecretKeySpec legacyKey) {
+        return new CryptoSession(dataKey, legacyKey);
+    }
+
+    public String encrypt(String data) {
+        long start = CryptoUtils.ENCRYPT_TIME.start();
+        VaultEvents.Crypto event = new VaultEvents.Crypto();
+        event.begin();
+        try {
+            byte[] plain = data.getBytes(StandardCharsets.UTF_8);
+            byte[] nonce = new byte[NONCE_LENGTH];
+            RANDOM.nextBytes(nonce);
+            Cipher cipher = entryCipher.get();
+            cipher.init(Cipher.ENCRYPT_MODE, entryKey, new GCMParameterSpec(TAG_BITS, nonce));
+            byte[] sealed = Arrays.copyOf(nonce, NONCE_LENGTH + cipher.getOutputSize(plain.length));
+            cipher.doFinal(plain, 0, plain.length, sealed, NONCE_LENGTH);
+            Arrays.fill(plain, (byte) 0);
+            return VERSION_PREFIX + Base64.getEncoder().encodeToString(sealed);
+        } catch (Exception e) {
+            throw CryptoUtils.failure("encrypt", e, "Encryption error");
+        } finally {
+            CryptoUtils.finish(event, "encrypt", CryptoUtils.ENCRYPT_TIME, start);
+        }
+    }
+
+    public String decrypt(String encryptedData) {
+        long start = CryptoUtils.DECRYPT_TIME.start();
+        VaultEvents.Crypto event = new VaultEvents.Crypto();
+        event.begin();
+        try {
+            return new String(decryptBytes(encryptedData), charsetFor(encryptedData));
+        } catch (Exception e) {
+            throw CryptoUtils.failure("decrypt", e, "Decryption error");
+        } finally {
+            CryptoUtils.finish(event, "decrypt", CryptoUtils.DECRYPT_TIME, start);
+        }
+    }
+
+    // Plaintext as a char[] the caller can wipe; the intermediate bytes are wiped here.
+    public char[] decryptChars(String encryptedData) {
+        long start = CryptoUtils.DECRYPT_TIME.start();
+        VaultEvents.Crypto event = new VaultEvents.Crypto();
+        event.begin();
+        byte[] plain = null;
+        CharBuffer chars = null;
+        try {
+            plain = decryptBytes(encryptedData);
+            chars = charsetFor(encryptedData).decode(ByteBuffer.wrap(plain));
+            return Arrays.copyOf(chars.array(), chars.limit());
+        } catch (Exception e) {
+            throw CryptoUtils.failure("decrypt", e, "Decryption error");
+        } finally {
+            if (plain != null) Arrays.fill(plain, (byte) 0);
+            if (chars != null) Arrays.fill(chars.array(), '\0');
+            CryptoUtils.finish(event, "decrypt", CryptoUtils.DECRYPT_TIME, start);
+        }
+    }
+
+    // Plaintext off the heap (see SecretBuffer); the caller closes it. The intermediate bytes are wiped here.
+    public SecretBuffer decryptSecret(String encryptedData) {
+        long start = CryptoUtils.DECRYPT_TIME.start();
+        VaultEvents.Crypto event = new VaultEvents.Crypto();
+        event.begin();
+        byte[] plain = null;
+        try {
+            plain = decryptBytes(encryptedData);
+            if (charsetFor(encryptedData) == StandardCharsets.UTF_8) {
+                return SecretBuffer.wrapAndWipe(plain);
+            }
+            // Entries from before sessions were encoded with the platform charset; the secret is always UTF-8.
+            CharBuffer chars = charsetFor(encryptedData).decode(ByteBuffer.wrap(plain));
+            ByteBuffer encoded = StandardCharsets.UTF_8.encode(chars);
+            try {
+                return SecretBuffer.allocate(encoded.remaining()).append(encoded);
+            } finally {
+                Arrays.fill(chars.array(), '\0');
+                Arrays.fill(encoded.array(), (byte) 0);
+            }
+        } catch (Exception e) {
+            throw CryptoUtils.failure("decrypt", e, "Decryption error");
+        } finally {
+            if (plain != null) Arrays.fill(plain, (byte) 0);
+            CryptoUtils.finish(event, "decrypt", CryptoUtils.DECRYPT_TIME, start);
+        }
+    }
+
+    // Encrypts the vault file and journal; see PasswordManager.setCipher.
+    public VaultCipher fileCipher() {
+        return fileCipher;
+    }
+
+    // Keyed hash of a plaintext password: equal passwords get equal tags, but without the vault key a tag
+    // cannot be checked against guesses. Used to find reused passwords without decrypting the vault.
+    public byte[] passwordTag(char[] password) {
+        ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        try {
+            Mac mac = tagMac.get();
+            mac.update(encoded.duplicate());
+            return Arrays.copyOf(mac.doFinal(), AccountEntry.PASSWORD_TAG_LENGTH);
+        } finally {
+            Arrays.fill(encoded.array(), (byte) 0);
+        }
+    }
+
+    public byte[] passwordTag(String password) {
+        char[] chars = password.toCharArray();
+        try {
+            return passwordTag(chars);
+        } finally {
+            Arrays.fill(chars, '\0');
+        }
+    }
+
+    public byte[] passwordTag(SecretBuffer password) {
+        Mac mac = tagMac.get();
+        mac.update(password.bytes());
+        return Arrays.copyOf(mac.doFinal(), AccountEntry.PASSWORD_TAG_LENGTH);
+    }
+
+    // The tag of an encrypted password; the plaintext is wiped as soon as it has been hashed.
+    public byte[] passwordTagOf(String encryptedData) {
+        char[] password = decryptChars(encryptedData);
+        try {
+            return passwordTag(password);
+        } finally {
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    // Entries written before sessions existed carry no prefix and use the password-copy key.
+    private byte[] decryptBytes(String encryptedData) throws Exception {
+        if (encryptedData.startsWith(VERSION_PREFIX)) {
+            byte[] decoded = Base64.getDecoder().decode(encryptedData.substring(VERSION_PREFIX.length()));
+            if (decoded.length < NONCE_LENGTH + TAG_BITS / 8) throw new GeneralSecurityException("Truncated password");
+            Cipher cipher = entryCipher.get();
+            cipher.init(Cipher.DECRYPT_MODE, entryKey, new GCMParameterSpec(TAG_BITS, decoded, 0, NONCE_LENGTH));
+            return cipher.doFinal(decoded, NONCE_LENGTH, decoded.length - NONCE_LENGTH);
+        }
+        if (encryptedData.startsWith(ECB_PREFIX)) {
+            byte[] decoded = Base64.getDecoder().decode(encryptedData.substring(ECB_PREFIX.length()));
+            return ecbDecryptCipher.get().doFinal(decoded);
+        }
+        if (legacyDecryptCipher == null) throw new GeneralSecurityException("No legacy key for an unprefixed password");
+        return legacyDecryptCipher.get().doFinal(Base64.getDecoder().decode(encryptedData));
+    }
+
+    private static Charset charsetFor(String encryptedData) {
+        return encryptedData.startsWith(VERSION_PREFIX) || encryptedData.startsWith(ECB_PREFIX)
+                ? StandardCharsets.UTF_8 : Charset.defaultCharset();
+    }
+}
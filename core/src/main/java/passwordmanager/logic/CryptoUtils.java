@@ -0,0 +1,195 @@
+package passwordmanager.logic;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+public class CryptoUtils {
+
+    private static final String ALGORITHM = "AES";
+    private static final String KDF_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int KEY_LENGTH = 256;
+    private static final String WRAP_ALGORITHM = "AES/GCM/NoPadding";
+    private static final int WRAP_IV_LENGTH = 12;
+    private static final int WRAP_TAG_BITS = 128;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int CALIBRATION_ITERATIONS = 20_000;
+    private static final int CALIBRATION_ROUNDS = 3;
+    static final int MIN_ITERATIONS = CryptoSession.KDF_ITERATIONS;
+    static final int MAX_ITERATIONS = 50_000_000;
+    // A password takes well under a microsecond to encrypt or decrypt, so one call in 16 is timed.
+    static final LatencyHistogram ENCRYPT_TIME = Metrics.sampledTimer("crypto.encrypt", 16);
+    static final LatencyHistogram DECRYPT_TIME = Metrics.sampledTimer("crypto.decrypt", 16);
+
+    static SecretKeySpec getKey(String masterPassword) {
+        byte[] keyBytes = new byte[16];
+        byte[] passwordBytes = masterPassword.getBytes();
+
+        for (int i = 0; i < keyBytes.length && i < passwordBytes.length; i++) {
+            keyBytes[i] = passwordBytes[i];
+        }
+
+        return new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    static SecretKeySpec deriveKey(String masterPassword, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(masterPassword.toCharArray(), salt, iterations, KEY_LENGTH);
+        try {
+            SecretKeyFactory factory = SecretKeyFactory.getInstance(KDF_ALGORITHM);
+            return new SecretKeySpec(factory.generateSecret(spec).getEncoded(), ALGORITHM);
+        } catch (Exception e) {
+            throw new RuntimeException("Key derivation error");
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    // Independent keys from one derived key, so a single PBKDF2 run serves both verification and unwrapping.
+    static SecretKeySpec deriveSubkey(SecretKeySpec key, String label) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key.getEncoded(), "HmacSHA256"));
+            return new SecretKeySpec(mac.doFinal(label.getBytes(StandardCharsets.UTF_8)), ALGORITHM);
+        } catch (Exception e) {
+            throw new RuntimeException("Key derivation error");
+        }
+    }
+
+    // Times a short PBKDF2 run on this machine and scales it to the iteration count that takes targetMillis.
+    // Never goes below the previous fixed cost, so slow machines get slower unlocks rather than weaker keys.
+    static int calibrateIterations(long targetMillis) {
+        byte[] salt = new byte[16];
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+            long start = System.nanoTime();
+            deriveKey("calibration", salt, CALIBRATION_ITERATIONS);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        long iterations = CALIBRATION_ITERATIONS * targetMillis * 1_000_000L / Math.max(best, 1);
+        return (int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, iterations));
+    }
+
+    static SecretKeySpec generateKey() {
+        byte[] keyBytes = new byte[KEY_LENGTH / 8];
+        RANDOM.nextBytes(keyBytes);
+        return new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    // Encrypts a key under a key-encryption key with AES-GCM; the result is Base64(iv || ciphertext || tag).
+    static String wrapKey(SecretKeySpec key, SecretKeySpec wrappingKey) {
+        try {
+            byte[] iv = new byte[WRAP_IV_LENGTH];
+            RANDOM.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance(WRAP_ALGORITHM);
+            cipher.init(Cipher.ENCRYPT_MODE, wrappingKey, new GCMParameterSpec(WRAP_TAG_BITS, iv));
+            byte[] wrapped = cipher.doFinal(key.getEncoded());
+            return Base64.getEncoder().encodeToString(
+                    ByteBuffer.allocate(iv.length + wrapped.length).put(iv).put(wrapped).array());
+        } catch (Exception e) {
+            throw new RuntimeException("Key wrap error");
+        }
+    }
+
+    // Fails when the wrapping key is wrong, since the GCM tag does not verify.
+    static SecretKeySpec unwrapKey(String wrapped, SecretKeySpec wrappingKey) {
+        try {
+            byte[] decoded = Base64.getDecoder().decode(wrapped);
+            Cipher cipher = Cipher.getInstance(WRAP_ALGORITHM);
+            cipher.init(Cipher.DECRYPT_MODE, wrappingKey, new GCMParameterSpec(WRAP_TAG_BITS, decoded, 0, WRAP_IV_LENGTH));
+            byte[] key = cipher.doFinal(decoded, WRAP_IV_LENGTH, decoded.length - WRAP_IV_LENGTH);
+            return new SecretKeySpec(key, ALGORITHM);
+        } catch (Exception e) {
+            throw new RuntimeException("Key unwrap error");
+        }
+    }
+
+    static Mac createMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key.getEncoded(), "HmacSHA256"));
+            return mac;
+        } catch (Exception e) {
+            throw new RuntimeException("MAC init error");
+        }
+    }
+
+    static Cipher createCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (Exception e) {
+            throw new RuntimeException("Cipher initialization error");
+        }
+    }
+
+    // ECB, for reading entries from before GCM; see CryptoSession.
+    static Cipher createCipher(int mode, SecretKeySpec key) {
+        try {
+            Cipher cipher = Cipher.getInstance(ALGORITHM);
+            cipher.init(mode, key);
+            return cipher;
+        } catch (Exception e) {
+            throw new RuntimeException("Cipher initialization error");
+        }
+    }
+
+    // The unauthenticated format of entries from before sessions (ECB under the password-copy key). New entries
+    // go through CryptoSession; this stays for reading old vaults and for benchmarks against them.
+    public static String encrypt(String data, String masterPassword) {
+        long start = ENCRYPT_TIME.start();
+        VaultEvents.Crypto event = new VaultEvents.Crypto();
+        event.begin();
+        try {
+            Cipher cipher = Cipher.getInstance(ALGORITHM);
+            cipher.init(Cipher.ENCRYPT_MODE, getKey(masterPassword));
+            byte[] encrypted = cipher.doFinal(data.getBytes());
+            return Base64.getEncoder().encodeToString(encrypted);
+        } catch (Exception e) {
+            throw failure("encrypt", e, "Encryption error");
+        } finally {
+            finish(event, "encrypt", ENCRYPT_TIME, start);
+        }
+    }
+
+    public static String decrypt(String encryptedData, String masterPassword) {
+        long start = DECRYPT_TIME.start();
+        VaultEvents.Crypto event = new VaultEvents.Crypto();
+        event.begin();
+        try {
+            Cipher cipher = Cipher.getInstance(ALGORITHM);
+            cipher.init(Cipher.DECRYPT_MODE, getKey(masterPassword));
+            byte[] decoded = Base64.getDecoder().decode(encryptedData);
+            return new String(cipher.doFinal(decoded));
+        } catch (Exception e) {
+            throw failure("decrypt", e, "Decryption error");
+        } finally {
+            finish(event, "decrypt", DECRYPT_TIME, start);
+        }
+    }
+
+    // The message stays generic; the cause is chained for stack traces, and counted and recorded here.
+    static RuntimeException failure(String operation, Exception cause, String message) {
+        Metrics.counter("crypto." + operation + ".failures").increment();
+        VaultEvents.CryptoFailure event = new VaultEvents.CryptoFailure();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.cause = cause.getClass().getName();
+            event.commit();
+        }
+        return new RuntimeException(message, cause);
+    }
+
+    static void finish(VaultEvents.Crypto event, String operation, LatencyHistogram time, long start) {
+        time.stop(start);
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.commit();
+        }
+    }
+}
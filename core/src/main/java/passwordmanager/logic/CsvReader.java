@@ -0,0 +1,91 @@
+package passwordmanager.logic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Minimal RFC 4180 reader: quoted fields may contain commas, doubled quotes and line breaks.
+public class CsvReader implements Closeable {
+
+    private final Reader reader;
+    private final char[] buffer = new char[64 * 1024];
+    private int position;
+    private int limit;
+    private long line = 1;
+
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    public long getLine() {
+        return line;
+    }
+
+    // Returns null at end of input.
+    public List<String> readRow() throws IOException {
+        int c = read();
+        if (c == -1) return null;
+
+        List<String> row = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean fieldStarted = false;
+
+        while (true) {
+            if (quoted) {
+                if (c == -1) throw new IOException("Unterminated quoted field at line " + line);
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') line++;
+                    field.append((char) c);
+                }
+            } else if (c == '"' && !fieldStarted) {
+                quoted = true;
+                fieldStarted = true;
+            } else if (c == ',') {
+                row.add(field.toString());
+                field.setLength(0);
+                fieldStarted = false;
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n' && next != -1) position--;
+                }
+                if (c != -1) line++;
+                row.add(field.toString());
+                return row;
+            } else {
+                field.append((char) c);
+                fieldStarted = true;
+            }
+            c = read();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+}
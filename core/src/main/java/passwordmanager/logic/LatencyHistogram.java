@@ -0,0 +1,134 @@
+package passwordmanager.logic;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latencies in nanoseconds, counted in log-linear buckets: every power of two is split into 8 buckets, so a
+// percentile is off by at most 12.5% whatever the range, and the whole histogram is a fixed array of counters.
+// Recording takes no lock and allocates nothing, so it can sit on paths that run millions of times.
+//
+// For operations that take well under a microsecond, reading the clock twice would cost a good part of the
+// operation itself. Such a histogram is sampled: start() counts every call but only times a random
+// one in `sampleEvery`, and the sum is scaled up from the timed calls.
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private final int sampleMask;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    // A consistent enough copy to read percentiles from; recording goes on meanwhile.
+    public static class Snapshot {
+        private final long[] counts;
+        private final long timed;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long timedSum, long max) {
+            long timed = 0;
+            for (long bucket : counts) {
+                timed += bucket;
+            }
+            this.counts = counts;
+            this.timed = timed;
+            this.count = Math.max(count, timed);
+            this.sum = timed == 0 ? 0 : (long) (timedSum * ((double) this.count / timed));
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getSumNanos() {
+            return sum;
+        }
+
+        public long getMaxNanos() {
+            return max;
+        }
+
+        // The latency below which `fraction` of the recorded values fall, as the upper edge of its bucket.
+        public long percentileNanos(double fraction) {
+            if (timed == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(fraction * timed));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(max, upperBound(i));
+            }
+            return max;
+        }
+    }
+
+    public LatencyHistogram() {
+        this(1);
+    }
+
+    // sampleEvery is rounded up to a power of two.
+    public LatencyHistogram(int sampleEvery) {
+        int rounded = sampleEvery <= 1 ? 1 : Integer.highestOneBit(sampleEvery - 1) << 1;
+        this.sampleMask = rounded - 1;
+    }
+
+    public void record(long nanos) {
+        calls.increment();
+        add(nanos);
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    // Counts a call and, if this one is sampled, returns its start time for stop().
+    public long start() {
+        calls.increment();
+        if (sampleMask != 0 && (ThreadLocalRandom.current().nextInt() & sampleMask) != 0) return NOT_TIMED;
+        return System.nanoTime();
+    }
+
+    public void stop(long start) {
+        if (start != NOT_TIMED) add(System.nanoTime() - start);
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy, calls.sum(), sum.sum(), max.get());
+    }
+
+    private void add(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucket(nanos));
+        sum.add(nanos);
+        long current;
+        while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+            // another thread raised the maximum meanwhile; check again
+        }
+    }
+
+    static int bucket(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
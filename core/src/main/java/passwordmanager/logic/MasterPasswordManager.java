@@ -0,0 +1,304 @@
+package passwordmanager.logic;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// master.hash holds the KDF parameters, a salted verifier and the vault keys wrapped by a key derived from the
+// master password. Entries are encrypted with the data key, so changing the master password only re-wraps two keys.
+public class MasterPasswordManager {
+
+    public static final long TARGET_UNLOCK_MILLIS = 250;
+
+    private static final String MASTER_FILE = "master.hash";
+    private static final String KDF = "PBKDF2WithHmacSHA256";
+    private static final String VERIFIER_LABEL = "master-password-verifier";
+    private static final String WRAPPING_LABEL = "vault-key-wrapping";
+    private static final int SALT_LENGTH = 16;
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+    private static final LatencyHistogram VERIFY_TIME = Metrics.timer("master.verify");
+
+    private static class MasterRecord {
+        private String kdf;
+        private int iterations;
+        // Unlock latency the iterations were calibrated for; recalibrate keeps to it unless given another.
+        private long targetMillis;
+        private String salt;
+        private String verifier;
+        private String dataKey;
+        private String legacyKey;
+        // Unsalted SHA-256 of the password, only present in files written before the verifier existed.
+        private String hash;
+    }
+
+    private static class VaultKeys {
+        private final SecretKeySpec dataKey;
+        private final SecretKeySpec legacyKey;
+
+        private VaultKeys(SecretKeySpec dataKey, SecretKeySpec legacyKey) {
+            this.dataKey = dataKey;
+            this.legacyKey = legacyKey;
+        }
+    }
+
+    private final File masterFile;
+
+    public MasterPasswordManager() {
+        this(new File("."));
+    }
+
+    public MasterPasswordManager(File directory) {
+        this.masterFile = new File(directory, MASTER_FILE);
+    }
+
+    public boolean isPasswordSet() {
+        return masterFile.exists();
+    }
+
+    public void setPassword(String password) {
+        try {
+            // A new vault has no entries from before sessions existed, so it carries no legacy key.
+            writeKeys(password, new VaultKeys(CryptoUtils.generateKey(), null),
+                    CryptoUtils.calibrateIterations(TARGET_UNLOCK_MILLIS), TARGET_UNLOCK_MILLIS);
+        } catch (IOException e) {
+            System.err.println("Master password entry error.");
+        }
+    }
+
+    // Costs one full key derivation; use unlock when a session is needed afterwards.
+    public boolean verifyPassword(String inputPassword) {
+        if (!masterFile.exists()) return false;
+
+        try {
+            return unlockKeys(readRecord(), inputPassword) != null;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    // Verifies the password and opens the vault with a single key derivation; returns null for a wrong password.
+    // Older files are upgraded to a calibrated verifier. Calibrating takes a while and the caller may be the UI
+    // thread, so a file whose cost no longer fits this machine is only reported; recalibrate re-tunes it.
+    // Throws UncheckedIOException when the upgrade cannot be written: a file without a salt gets a new data key,
+    // and anything encrypted under a key that was never stored could not be read again.
+    public CryptoSession unlock(String password) {
+        MasterRecord record;
+        try {
+            record = readRecord();
+        } catch (IOException e) {
+            System.err.println("Cannot read " + MASTER_FILE + ": " + e.getMessage());
+            return null;
+        }
+
+        long start = System.nanoTime();
+        VaultKeys keys = unlockKeys(record, password);
+        if (keys == null) return null;
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        long targetMillis = targetMillis(record);
+        if (record.verifier == null) {
+            try {
+                writeKeys(password, keys, CryptoUtils.calibrateIterations(targetMillis), targetMillis);
+            } catch (IOException e) {
+                throw new UncheckedIOException(
+                        new IOException("Cannot upgrade " + MASTER_FILE + ": " + e.getMessage(), e));
+            }
+        } else if (millis > targetMillis * 2 || millis < targetMillis / 2) {
+            System.out.println("Unlocking took " + millis + " ms against a target of " + targetMillis
+                    + " ms; run VaultCli recalibrate to re-tune it for this machine");
+        }
+        return CryptoSession.withKeys(keys.dataKey, keys.legacyKey);
+    }
+
+    public CryptoSession openSession(String password) {
+        CryptoSession session = unlock(password);
+        if (session == null) throw new RuntimeException("Invalid master password");
+        return session;
+    }
+
+    // Re-wraps the vault keys for the new password; the entries themselves are not touched.
+    public boolean changePassword(String currentPassword, String newPassword) {
+        try {
+            MasterRecord record = readRecord();
+            VaultKeys keys = unlockKeys(record, currentPassword);
+            if (keys == null) return false;
+
+            long targetMillis = targetMillis(record);
+            int iterations = record.verifier == null
+                    ? CryptoUtils.calibrateIterations(targetMillis) : record.iterations;
+            writeKeys(newPassword, keys, iterations, targetMillis);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Master password change error: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Benchmarks this machine again and stores the new cost; returns the iteration count, or -1 for a wrong password.
+    public int recalibrate(String password, long targetMillis) {
+        try {
+            VaultKeys keys = unlockKeys(readRecord(), password);
+            if (keys == null) return -1;
+
+            int iterations = CryptoUtils.calibrateIterations(targetMillis);
+            writeKeys(password, keys, iterations, targetMillis);
+            return iterations;
+        } catch (IOException e) {
+            System.err.println("Recalibration error: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    public int getIterations() {
+        try {
+            MasterRecord record = readRecord();
+            return record.verifier == null ? CryptoSession.KDF_ITERATIONS : record.iterations;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    // Every path that checks the master password goes through here, so this is where the check is measured.
+    private VaultKeys unlockKeys(MasterRecord record, String password) {
+        long start = System.nanoTime();
+        VaultEvents.MasterPassword event = new VaultEvents.MasterPassword();
+        event.begin();
+        VaultKeys keys = null;
+        try {
+            keys = record.verifier == null ? unlockLegacyKeys(record, password) : unlockVerifiedKeys(record, password);
+            return keys;
+        } finally {
+            VERIFY_TIME.recordSince(start);
+            if (keys == null) Metrics.counter("master.rejected").increment();
+            if (event.shouldCommit()) {
+                event.scheme = record.verifier == null ? "legacy" : "pbkdf2";
+                event.accepted = keys != null;
+                event.iterations = record.iterations;
+                event.commit();
+            }
+        }
+    }
+
+    private VaultKeys unlockVerifiedKeys(MasterRecord record, String password) {
+        SecretKeySpec masterKey = CryptoUtils.deriveKey(password, decodeSalt(record), record.iterations);
+        byte[] verifier = CryptoUtils.deriveSubkey(masterKey, VERIFIER_LABEL).getEncoded();
+        if (!MessageDigest.isEqual(verifier, Base64.getDecoder().decode(record.verifier))) return null;
+
+        SecretKeySpec wrappingKey = CryptoUtils.deriveSubkey(masterKey, WRAPPING_LABEL);
+        return new VaultKeys(CryptoUtils.unwrapKey(record.dataKey, wrappingKey),
+                record.legacyKey == null ? null : CryptoUtils.unwrapKey(record.legacyKey, wrappingKey));
+    }
+
+    // Files from before the verifier are checked against the unsalted hash. Wrapped keys, if present, used the
+    // fixed iteration count directly as the wrapping key. Older still, v2 entries used the key derived from the
+    // password and salt, which becomes the data key, and a file without a salt has no v2 entries yet.
+    private VaultKeys unlockLegacyKeys(MasterRecord record, String password) {
+        if (record.hash == null || !record.hash.equals(hashPassword(password))) return null;
+
+        boolean hasSalt = record.salt != null && !record.salt.isBlank();
+        if (record.dataKey != null) {
+            SecretKeySpec wrappingKey = CryptoUtils.deriveKey(password, decodeSalt(record), CryptoSession.KDF_ITERATIONS);
+            return new VaultKeys(CryptoUtils.unwrapKey(record.dataKey, wrappingKey),
+                    CryptoUtils.unwrapKey(record.legacyKey, wrappingKey));
+        }
+        SecretKeySpec dataKey = hasSalt
+                ? CryptoUtils.deriveKey(password, decodeSalt(record), CryptoSession.KDF_ITERATIONS)
+                : CryptoUtils.generateKey();
+        return new VaultKeys(dataKey, CryptoUtils.getKey(password));
+    }
+
+    private static long targetMillis(MasterRecord record) {
+        return record.targetMillis > 0 ? record.targetMillis : TARGET_UNLOCK_MILLIS;
+    }
+
+    // Each write gets a fresh salt, so the wrapping key never repeats across master passwords.
+    private void writeKeys(String password, VaultKeys keys, int iterations, long targetMillis) throws IOException {
+        MasterRecord record = new MasterRecord();
+        record.kdf = KDF;
+        record.iterations = iterations;
+        record.targetMillis = targetMillis;
+        record.salt = newSalt();
+        SecretKeySpec masterKey = CryptoUtils.deriveKey(password, decodeSalt(record), iterations);
+        record.verifier = Base64.getEncoder().encodeToString(
+                CryptoUtils.deriveSubkey(masterKey, VERIFIER_LABEL).getEncoded());
+        SecretKeySpec wrappingKey = CryptoUtils.deriveSubkey(masterKey, WRAPPING_LABEL);
+        record.dataKey = CryptoUtils.wrapKey(keys.dataKey, wrappingKey);
+        // Only vaults upgraded from a file without a verifier may still hold entries that need the legacy key.
+        record.legacyKey = keys.legacyKey == null ? null : CryptoUtils.wrapKey(keys.legacyKey, wrappingKey);
+        writeRecord(record);
+    }
+
+    private MasterRecord readRecord() throws IOException {
+        String content = Files.readString(masterFile.toPath(), StandardCharsets.UTF_8);
+        if (content.stripLeading().startsWith("{")) {
+            try {
+                MasterRecord record = GSON.fromJson(content, MasterRecord.class);
+                if (record == null) throw new IOException("Empty " + MASTER_FILE);
+                if (record.verifier != null && !KDF.equals(record.kdf)) {
+                    throw new IOException("Unsupported key derivation: " + record.kdf);
+                }
+                // The count is read before the password is checked: too low weakens the key, too high hangs unlock.
+                if (record.verifier != null && (record.iterations < CryptoUtils.MIN_ITERATIONS
+                        || record.iterations > CryptoUtils.MAX_ITERATIONS)) {
+                    throw new IOException("Implausible iteration count in " + MASTER_FILE + ": " + record.iterations);
+                }
+                return record;
+            } catch (JsonParseException e) {
+                throw new IOException("Malformed " + MASTER_FILE);
+            }
+        }
+
+        // Oldest files: the hash on the first line, optionally followed by the salt.
+        String[] lines = content.split("\\R");
+        MasterRecord record = new MasterRecord();
+        record.hash = lines[0];
+        record.salt = lines.length > 1 ? lines[1] : null;
+        return record;
+    }
+
+    // Written to a temporary file and renamed, so a crash leaves either the old or the new file. Both wrap
+    // the same data key, so either one still opens the vault.
+    private void writeRecord(MasterRecord record) throws IOException {
+        File temp = new File(masterFile.getPath() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            output.write(GSON.toJson(record).getBytes(StandardCharsets.UTF_8));
+            output.getChannel().force(true);
+        }
+        Files.move(temp.toPath(), masterFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte[] decodeSalt(MasterRecord record) {
+        return Base64.getDecoder().decode(record.salt);
+    }
+
+    private String newSalt() {
+        byte[] salt = new byte[SALT_LENGTH];
+        new SecureRandom().nextBytes(salt);
+        return Base64.getEncoder().encodeToString(salt);
+    }
+
+    private String hashPassword(String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(password.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not available");
+        }
+    }
+
+    public boolean isStrongPassword(String password) {
+        return PasswordStrength.meetsPolicy(password);
+    }
+}
@@ -0,0 +1,83 @@
+package passwordmanager.logic;
+
+import jdk.jfr.FlightRecorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process-wide latency histograms and counters, by name. Call sites look their metric up once and keep it in a
+// constant. dump() renders everything in the Prometheus text format; the daemon serves it (VaultCli metrics) and
+// Flight Recorder gets a summary with every recording chunk (VaultEvents.LatencySummary).
+public final class Metrics {
+
+    private static final String PREFIX = "passwordmanager_";
+    private static final Map<String, LatencyHistogram> TIMERS = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+
+    static {
+        FlightRecorder.addPeriodicEvent(VaultEvents.LatencySummary.class, Metrics::emitSummaries);
+    }
+
+    private Metrics() {
+    }
+
+    public static LatencyHistogram timer(String name) {
+        return TIMERS.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    // For operations of a microsecond or less; see LatencyHistogram.start().
+    public static LatencyHistogram sampledTimer(String name, int sampleEvery) {
+        return TIMERS.computeIfAbsent(name, key -> new LatencyHistogram(sampleEvery));
+    }
+
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    public static String dump() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram> timer : new TreeMap<>(TIMERS).entrySet()) {
+            String name = PREFIX + sanitize(timer.getKey()) + "_seconds";
+            LatencyHistogram.Snapshot snapshot = timer.getValue().snapshot();
+            out.append("# TYPE ").append(name).append(" summary\n");
+            for (String quantile : new String[]{"0.5", "0.9", "0.99", "0.999"}) {
+                out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                        .append(seconds(snapshot.percentileNanos(Double.parseDouble(quantile)))).append('\n');
+            }
+            out.append(name).append("_sum ").append(seconds(snapshot.getSumNanos())).append('\n');
+            out.append(name).append("_count ").append(snapshot.getCount()).append('\n');
+            out.append("# TYPE ").append(name).append("_max gauge\n");
+            out.append(name).append("_max ").append(seconds(snapshot.getMaxNanos())).append('\n');
+        }
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<>(COUNTERS).entrySet()) {
+            String name = PREFIX + sanitize(counter.getKey()) + "_total";
+            out.append("# TYPE ").append(name).append(" counter\n");
+            out.append(name).append(' ').append(counter.getValue().sum()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void emitSummaries() {
+        for (Map.Entry<String, LatencyHistogram> timer : TIMERS.entrySet()) {
+            LatencyHistogram.Snapshot snapshot = timer.getValue().snapshot();
+            VaultEvents.LatencySummary event = new VaultEvents.LatencySummary();
+            event.metric = timer.getKey();
+            event.count = snapshot.getCount();
+            event.p50 = snapshot.percentileNanos(0.5);
+            event.p99 = snapshot.percentileNanos(0.99);
+            event.p999 = snapshot.percentileNanos(0.999);
+            event.max = snapshot.getMaxNanos();
+            event.commit();
+        }
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^A-Za-z0-9_]", "_");
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+}
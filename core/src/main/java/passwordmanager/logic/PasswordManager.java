@@ -0,0 +1,748 @@
+package passwordmanager.logic;
+
+import com.google.gson.Gson;
+import passwordmanager.model.AccountEntry;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// Safe to share between threads. Reads go straight to the vault and never wait for a writer; changes are
+// serialized on writeLock so the vault, the journal and the listeners see them in the same order.
+public class PasswordManager {
+    private static final long COMPACT_THRESHOLD = 1024 * 1024;
+    private static final long WRITE_BEHIND_DELAY_MS = 50;
+    private static final int LOAD_CHUNK_SIZE = 10_000;
+    private static final LatencyHistogram LOAD_TIME = Metrics.timer("vault.load");
+    private static final LatencyHistogram SNAPSHOT_TIME = Metrics.timer("vault.snapshot");
+    private static final LatencyHistogram PATCH_TIME = Metrics.timer("vault.patch");
+    private static final LatencyHistogram JOURNAL_FLUSH_TIME = Metrics.timer("journal.flush");
+
+    private final Vault vault = new Vault();
+    private final Object writeLock = new Object();
+    private final String FILE_NAME = "passwords.vault";
+    // Snapshot format of older versions, converted on first load; JSON remains the import/export format.
+    private final String LEGACY_FILE_NAME = "passwords.json";
+    private final String JOURNAL_FILE_NAME = "passwords.journal";
+    // Entries taken out of the vault by an integrity check, one JSON line each (encrypted like the journal).
+    private final String QUARANTINE_FILE_NAME = "passwords.quarantine";
+    // A copy of a snapshot with unreadable records, kept before a rewrite drops them.
+    private final String DAMAGED_FILE_NAME = "passwords.vault.damaged";
+    private final File directory;
+    private final VaultJournal journal;
+    private final AtomicBoolean compacting = new AtomicBoolean(false);
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final ScheduledExecutorService persistence = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "vault-persistence");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Encrypts the snapshot and the journal; null until a session is given, and for tools that run without one.
+    private volatile VaultCipher cipher;
+    private volatile Consumer<SaveStatus> saveStatusListener = status -> {};
+    private volatile VaultListener vaultListener = new VaultListener() {};
+    // Changes since the last snapshot, so compaction can patch the snapshot in place when nothing was added.
+    private final Set<String> changedIds = new HashSet<>();
+    private boolean addedSinceSnapshot;
+    // Set when a compaction failed after its change set was taken: the next one writes a full snapshot instead.
+    private volatile boolean fullSnapshotNeeded;
+    // Set while a progressive load is under way, or after one failed: a snapshot of a partly loaded vault
+    // would drop the entries that are missing, so only the journal is written.
+    private volatile boolean loading;
+    private volatile boolean rewriteAfterLoad;
+    private volatile boolean convertLegacy;
+    private volatile int skippedRecords;
+
+    // A line of the quarantine file.
+    private static class Quarantined {
+        private final String reason;
+        private final String time;
+        private final AccountEntry entry;
+
+        private Quarantined(String reason, String time, AccountEntry entry) {
+            this.reason = reason;
+            this.time = time;
+            this.entry = entry;
+        }
+    }
+
+    // Collects entries into lists of at most `size` and hands each full list on.
+    private static class Chunker implements Consumer<AccountEntry> {
+        private final int size;
+        private final Consumer<List<AccountEntry>> target;
+        private List<AccountEntry> chunk;
+
+        private Chunker(int size, Consumer<List<AccountEntry>> target) {
+            this.size = size;
+            this.target = target;
+        }
+
+        @Override
+        public void accept(AccountEntry entry) {
+            if (chunk == null) chunk = new ArrayList<>(Math.min(size, 1024));
+            chunk.add(entry);
+            if (chunk.size() >= size) flush();
+        }
+
+        private void flush() {
+            if (chunk == null) return;
+            target.accept(chunk);
+            chunk = null;
+        }
+    }
+
+    public PasswordManager() {
+        this(new File("."));
+    }
+
+    public PasswordManager(File directory) {
+        this.directory = directory;
+        this.journal = new VaultJournal(new File(directory, JOURNAL_FILE_NAME).getPath());
+    }
+
+    public void addEntry(AccountEntry entry) {
+        synchronized (writeLock) {
+            checkWritable();
+            AccountEntry previous = vault.add(entry);
+            trackChange(entry.getId(), previous == null);
+            record(new VaultJournal.Record(VaultJournal.ADD, entry.getId(), entry));
+            if (previous != null) {
+                vaultListener.entryUpdated(previous, entry);
+            } else {
+                vaultListener.entriesAdded(List.of(entry));
+            }
+        }
+    }
+
+    // Bulk path for imports: all entries are persisted as a single journal record.
+    public void addEntries(List<AccountEntry> entries) {
+        if (entries.isEmpty()) return;
+        synchronized (writeLock) {
+            checkWritable();
+            for (AccountEntry entry : entries) {
+                trackChange(entry.getId(), vault.add(entry) == null);
+            }
+            List<AccountEntry> added = new ArrayList<>(entries);
+            record(VaultJournal.Record.batch(added));
+            vaultListener.entriesAdded(Collections.unmodifiableList(added));
+        }
+    }
+
+    // Entries are shared with readers on other threads, so a change is made on a copy and passed in here
+    // rather than by modifying the stored entry.
+    public void updateEntry(AccountEntry entry) {
+        synchronized (writeLock) {
+            checkWritable();
+            AccountEntry previous = vault.update(entry);
+            trackChange(entry.getId(), previous == null);
+            record(new VaultJournal.Record(VaultJournal.UPDATE, entry.getId(), entry));
+            if (previous != null) {
+                vaultListener.entryUpdated(previous, entry);
+            } else {
+                vaultListener.entriesAdded(List.of(entry));
+            }
+        }
+    }
+
+    // Call before loading: an encrypted vault cannot be read without the cipher. A vault saved unencrypted is
+    // still read, and is encrypted by the snapshot written once it has loaded.
+    public void setCipher(VaultCipher cipher) {
+        this.cipher = cipher;
+        journal.setCipher(cipher);
+    }
+
+    // Whether the saved vault is encrypted, so a caller knows to unlock before loading it.
+    public boolean isEncrypted() {
+        return VaultCipher.isEncrypted(new File(directory, FILE_NAME));
+    }
+
+    public void setSaveStatusListener(Consumer<SaveStatus> listener) {
+        this.saveStatusListener = listener;
+    }
+
+    public void setVaultListener(VaultListener listener) {
+        this.vaultListener = listener == null ? new VaultListener() {} : listener;
+    }
+
+    // An immutable view of the vault as it is now; it can be iterated or exported while writers carry on.
+    public Vault.Snapshot snapshot() {
+        return vault.snapshot();
+    }
+
+    // Immutable, in insertion order.
+    public List<AccountEntry> getAllEntries() {
+        return vault.entries();
+    }
+
+    // Immutable, in display order.
+    public List<AccountEntry> getSortedEntries() {
+        return vault.sortedEntries();
+    }
+
+    public AccountEntry findById(String id) {
+        return vault.get(id);
+    }
+
+    public List<AccountEntry> findByPlatform(String platform) {
+        return vault.findByPlatform(platform);
+    }
+
+    public AccountEntry findByPlatformAndLogin(String platform, String login) {
+        return vault.findByPlatformAndLogin(platform, login);
+    }
+
+    // Ranked type-ahead search over platform and login, including close misspellings.
+    public List<AccountEntry> search(String query, int limit) {
+        return vault.search(query, limit);
+    }
+
+    // Entries using the password with this tag (see CryptoSession.passwordTag).
+    public List<AccountEntry> findByPasswordTag(byte[] tag) {
+        return vault.findByPasswordTag(tag);
+    }
+
+    // Groups of entries sharing a password, largest first; entries without a tag are not included.
+    public List<List<AccountEntry>> findReusedPasswords() {
+        return vault.findReusedPasswords();
+    }
+
+    // Stores tags computed for entries that had none, as a single journal record. An entry whose password changed
+    // since its tag was computed is skipped. Only the tags change, which no view shows, so listeners are not told.
+    public int addPasswordTags(List<AccountEntry> tagged) {
+        List<AccountEntry> updated = new ArrayList<>(tagged.size());
+        synchronized (writeLock) {
+            checkWritable();
+            for (AccountEntry entry : tagged) {
+                AccountEntry current = vault.get(entry.getId());
+                if (current == null || current.hasPasswordTag()
+                        || !Objects.equals(current.getPassword(), entry.getPassword())) continue;
+                AccountEntry copy = new AccountEntry(current);
+                copy.setPasswordTag(entry.getPasswordTag());
+                vault.update(copy);
+                trackChange(copy.getId(), false);
+                updated.add(copy);
+            }
+            if (!updated.isEmpty()) {
+                record(VaultJournal.Record.batch(updated));
+            }
+        }
+        return updated.size();
+    }
+
+    public int size() {
+        return vault.size();
+    }
+
+    // Returns false when the snapshot could not be written; the journal then still holds every change.
+    public boolean saveToFile() {
+        if (loading) {
+            System.err.println("Save skipped: the vault has not finished loading");
+            return false;
+        }
+        // Held until the snapshot is written: a change recorded in between would be lost by journal.reset().
+        synchronized (writeLock) {
+            List<AccountEntry> snapshot = copyEntries();
+            try {
+                persistence.submit(() -> {
+                    journal.flushPending();
+                    writeSnapshot(snapshot);
+                    journal.reset();
+                    return null;
+                }).get();
+                // Only now: after a failed save the changes are still needed to patch the old snapshot.
+                clearChanges();
+                fullSnapshotNeeded = false;
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.err.println("Save interrupted");
+            } catch (ExecutionException e) {
+                System.err.println("Save error: " + e.getCause().getMessage());
+            }
+            return false;
+        }
+    }
+
+    public void loadFromFile() {
+        List<AccountEntry> loaded = new ArrayList<>();
+        if (!readSavedEntries(LOAD_CHUNK_SIZE, loaded::addAll)) {
+            // Saving what did load would replace the files that could not be read.
+            loading = true;
+            return;
+        }
+
+        synchronized (writeLock) {
+            vault.clear();
+            for (AccountEntry entry : loaded) {
+                vault.add(entry);
+            }
+            clearChanges();
+            vaultListener.vaultReloaded();
+            finishLoading();
+        }
+    }
+
+    // Progressive loading, for a UI that shows entries while the rest are still being read. beginLoading(),
+    // addLoadedEntries() and finishLoading() run on the thread that owns the vault, readSavedEntries() on a
+    // background thread. Snapshots are not written until loading has finished.
+    public void beginLoading() {
+        synchronized (writeLock) {
+            loading = true;
+            vault.clear();
+            clearChanges();
+            vaultListener.vaultReloaded();
+        }
+    }
+
+    // Streams the saved vault (the snapshot with the journal applied) in chunks, in vault order, without touching
+    // the loaded vault. Returns false if the files could not be read.
+    public boolean readSavedEntries(int chunkSize, Consumer<List<AccountEntry>> consumer) {
+        String source = new File(directory, FILE_NAME).exists() ? FILE_NAME
+                : new File(directory, LEGACY_FILE_NAME).exists() ? LEGACY_FILE_NAME : JOURNAL_FILE_NAME;
+        long start = System.nanoTime();
+        VaultEvents.Io event = new VaultEvents.Io();
+        event.begin();
+        long[] count = {0};
+        boolean loaded = false;
+        try {
+            loaded = readSaved(chunkSize, chunk -> {
+                count[0] += chunk.size();
+                consumer.accept(chunk);
+            });
+            return loaded;
+        } finally {
+            LOAD_TIME.recordSince(start);
+            commit(event, "load", source, count[0], loaded);
+            if (loaded) {
+                System.out.println("Loaded " + count[0] + " entries from " + source + " in "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms");
+            }
+        }
+    }
+
+    private boolean readSaved(int chunkSize, Consumer<List<AccountEntry>> consumer) {
+        File file = new File(directory, FILE_NAME);
+        File legacyFile = new File(directory, LEGACY_FILE_NAME);
+        boolean legacy = !file.exists() && legacyFile.exists();
+
+        // The journal is read first, so each saved entry can be replaced by its latest version as it streams by.
+        // An entry removed at some point is skipped; if it was added again it is among the journal's additions.
+        Map<String, AccountEntry> journaled = new LinkedHashMap<>();
+        Set<String> removed = new HashSet<>();
+        // A compaction still patching the snapshot in place must finish before it is read.
+        flush();
+        try {
+            journal.replay(record -> {
+                switch (record.getOp()) {
+                    case VaultJournal.ADD, VaultJournal.UPDATE -> journaled.put(record.getId(), record.getEntry());
+                    case VaultJournal.REMOVE -> {
+                        journaled.remove(record.getId());
+                        removed.add(record.getId());
+                    }
+                    case VaultJournal.BATCH -> {
+                        for (AccountEntry entry : record.getEntries()) {
+                            journaled.put(entry.getId(), entry);
+                        }
+                    }
+                    default -> System.err.println("Unknown journal operation: " + record.getOp());
+                }
+            });
+        } catch (UncheckedIOException e) {
+            System.err.println("Load error: " + e.getCause().getMessage());
+            return false;
+        }
+
+        Chunker chunker = new Chunker(chunkSize, consumer);
+        boolean[] missingIds = {false};
+        Consumer<AccountEntry> collect = entry -> {
+            if (entry.getId() == null) {
+                entry.setId(UUID.randomUUID().toString());
+                missingIds[0] = true;
+            } else if (removed.contains(entry.getId())) {
+                return;
+            }
+            AccountEntry newer = journaled.remove(entry.getId());
+            chunker.accept(newer != null ? newer : entry);
+        };
+
+        VaultCipher cipher = this.cipher;
+        boolean unencrypted = false;
+        try {
+            if (file.exists()) {
+                unencrypted = cipher != null && !VaultCipher.isEncrypted(file);
+                try (VaultFile vaultFile = VaultFile.open(file, cipher)) {
+                    vaultFile.forEach(collect);
+                    skippedRecords = vaultFile.getSkippedCount();
+                }
+                if (skippedRecords > 0) keepDamagedCopy(file);
+            } else if (legacy) {
+                VaultReader.forEach(legacyFile, collect);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Load error: " + e.getMessage());
+            return false;
+        }
+        for (AccountEntry entry : journaled.values()) {
+            chunker.accept(entry);
+        }
+        chunker.flush();
+
+        // Files written before entries had ids must be rewritten once so journal records can refer to them,
+        // a journal left over from an interrupted compaction is folded in before a new one can start, and a vault
+        // saved before it was encrypted is encrypted.
+        convertLegacy = legacy;
+        rewriteAfterLoad = legacy || missingIds[0] || journal.hasRolledFile() || unencrypted;
+        return true;
+    }
+
+    // Entries that are already in the vault were changed while loading, so the vault's version is the newer one.
+    public void addLoadedEntries(List<AccountEntry> entries) {
+        List<AccountEntry> added = new ArrayList<>(entries.size());
+        synchronized (writeLock) {
+            for (AccountEntry entry : entries) {
+                if (vault.get(entry.getId()) == null) {
+                    vault.add(entry);
+                    added.add(entry);
+                }
+            }
+            if (!added.isEmpty()) {
+                vaultListener.entriesAdded(Collections.unmodifiableList(added));
+            }
+        }
+    }
+
+    public void finishLoading() {
+        synchronized (writeLock) {
+            loading = false;
+            if (!rewriteAfterLoad) return;
+
+            rewriteAfterLoad = false;
+            boolean saved = saveToFile();
+            // A passwords.json from an older version is kept as a backup once it has been converted.
+            if (saved && convertLegacy && !new File(directory, LEGACY_FILE_NAME)
+                    .renameTo(new File(directory, LEGACY_FILE_NAME + ".bak"))) {
+                System.err.println("Cannot rename " + LEGACY_FILE_NAME + " after converting it");
+            }
+        }
+    }
+
+    // Records of the saved snapshot that were unreadable on the last load.
+    public int getSkippedRecords() {
+        return skippedRecords;
+    }
+
+    // Moves damaged entries (see VaultVerifier) out of the vault into passwords.quarantine, with the reason, so the
+    // rest of the vault stays usable and nothing is lost. Entries changed since they were checked are left alone.
+    // The quarantine file is synced before the entries are removed. Returns the number of entries moved.
+    public int quarantine(List<VaultVerifier.Damage> damaged) throws IOException {
+        synchronized (writeLock) {
+            checkWritable();
+            List<VaultVerifier.Damage> current = new ArrayList<>();
+            for (VaultVerifier.Damage damage : damaged) {
+                AccountEntry entry = damage.getEntry();
+                if (entry.getId() != null && vault.get(entry.getId()) == entry) current.add(damage);
+            }
+            if (current.isEmpty()) return 0;
+
+            Gson gson = new Gson();
+            VaultCipher cipher = this.cipher;
+            String time = Instant.now().toString();
+            try (FileOutputStream output = new FileOutputStream(new File(directory, QUARANTINE_FILE_NAME), true)) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+                for (VaultVerifier.Damage damage : current) {
+                    String json = gson.toJson(new Quarantined(damage.getReason(), time, damage.getEntry()));
+                    writer.write((cipher == null ? json : cipher.encryptLine(json)) + "\n");
+                }
+                writer.flush();
+                output.getChannel().force(false);
+            }
+            for (VaultVerifier.Damage damage : current) {
+                removeEntry(damage.getEntry());
+            }
+            System.out.println("Moved " + current.size() + " damaged entries to " + QUARANTINE_FILE_NAME);
+            return current.size();
+        }
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public void removeEntry(AccountEntry entry) {
+        synchronized (writeLock) {
+            checkWritable();
+            AccountEntry removed = vault.remove(entry.getId());
+            // Nothing to journal for an entry that was already gone.
+            if (removed == null) return;
+            trackChange(entry.getId(), false);
+            record(new VaultJournal.Record(VaultJournal.REMOVE, entry.getId(), null));
+            vaultListener.entryRemoved(removed);
+        }
+    }
+
+    public void saveToFile(Writer writer) {
+        try {
+            VaultWriter vaultWriter = new VaultWriter(writer);
+            for (AccountEntry entry : vault.entries()) {
+                vaultWriter.write(entry);
+            }
+            vaultWriter.finish();
+        } catch (IOException e) {
+            System.err.println("Export to writer failed: " + e.getMessage());
+        }
+    }
+
+    // Streams the saved snapshot without loading it, so callers only hold the entries they keep.
+    public void forEachSavedEntry(Consumer<AccountEntry> consumer) {
+        File file = new File(directory, FILE_NAME);
+        File legacyFile = new File(directory, LEGACY_FILE_NAME);
+        try {
+            if (file.exists()) {
+                try (VaultFile vaultFile = VaultFile.open(file, cipher)) {
+                    vaultFile.forEach(consumer);
+                }
+            } else if (legacyFile.exists()) {
+                VaultReader.forEach(legacyFile, consumer);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Load error: " + e.getMessage());
+        }
+    }
+
+    // Reads one entry from the saved snapshot through its index, without loading the rest of the file.
+    public AccountEntry readSavedEntry(String id) {
+        File file = new File(directory, FILE_NAME);
+        if (!file.exists()) return null;
+
+        try (VaultFile vaultFile = VaultFile.open(file, cipher)) {
+            return vaultFile.read(id);
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Load error: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Blocks until every queued change is on disk.
+    public void flush() {
+        try {
+            persistence.submit(this::flushJournal).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Flush error: " + e.getCause().getMessage());
+        }
+    }
+
+    public void close() {
+        if (!closed.compareAndSet(false, true)) return;
+
+        flush();
+        persistence.shutdown();
+        try {
+            persistence.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+
+    // Records are serialized on the caller and written behind; a burst of edits shares one write and one fsync.
+    private void record(VaultJournal.Record record) {
+        journal.append(record);
+        if (flushScheduled.compareAndSet(false, true)) {
+            saveStatusListener.accept(SaveStatus.SAVING);
+            persistence.schedule(this::flushJournal, WRITE_BEHIND_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+        compactIfNeeded();
+    }
+
+    private void flushJournal() {
+        flushScheduled.set(false);
+        long start = System.nanoTime();
+        try {
+            journal.flushPending();
+            JOURNAL_FLUSH_TIME.recordSince(start);
+            if (!flushScheduled.get()) {
+                saveStatusListener.accept(SaveStatus.SAVED);
+            }
+        } catch (IOException e) {
+            Metrics.counter("journal.write.failures").increment();
+            System.err.println("Journal write error: " + e.getMessage());
+            saveStatusListener.accept(SaveStatus.FAILED);
+        }
+    }
+
+    // Called with writeLock held, so the copied entries and the journal roll describe the same moment.
+    private void compactIfNeeded() {
+        if (loading || journal.size() < COMPACT_THRESHOLD || !compacting.compareAndSet(false, true)) return;
+
+        List<AccountEntry> snapshot = copyEntries();
+        // A rolled journal still there was left by a failed compaction or a crash, and holds changes that are not
+        // in the change set any more, so only a full snapshot covers it.
+        boolean full = addedSinceSnapshot || fullSnapshotNeeded || journal.hasRolledFile();
+        Map<String, AccountEntry> changes = full ? null : copyChanges();
+        clearChanges();
+        journal.markRoll();
+        persistence.execute(() -> {
+            try {
+                journal.flushPending();
+                if (changes == null || !patchSnapshot(changes)) {
+                    writeSnapshot(snapshot);
+                }
+                fullSnapshotNeeded = false;
+                File rolled = journal.getRolledFile();
+                if (rolled.exists() && !rolled.delete()) {
+                    System.err.println("Compaction error: cannot delete " + rolled);
+                }
+            } catch (IOException | RuntimeException e) {
+                // The change set was cleared for this compaction; the rolled journal is kept and the next
+                // compaction writes everything.
+                fullSnapshotNeeded = true;
+                System.err.println("Compaction error: " + e.getMessage());
+            } finally {
+                compacting.set(false);
+            }
+        });
+    }
+
+    // Checked before the vault is changed, so a change the journal would refuse is not made in memory either.
+    private void checkWritable() {
+        if (!journal.isWritable()) throw new IllegalStateException("The vault is locked; unlock it to make changes");
+    }
+
+    // The change set is guarded by writeLock.
+    private void trackChange(String id, boolean added) {
+        changedIds.add(id);
+        addedSinceSnapshot |= added;
+    }
+
+    private void clearChanges() {
+        changedIds.clear();
+        addedSinceSnapshot = false;
+    }
+
+    // Copies of the changed entries by id; removed entries map to null.
+    private Map<String, AccountEntry> copyChanges() {
+        Map<String, AccountEntry> changes = new HashMap<>();
+        for (String id : changedIds) {
+            AccountEntry entry = vault.get(id);
+            changes.put(id, entry == null ? null : new AccountEntry(entry));
+        }
+        return changes;
+    }
+
+    // Rewrites only the changed records of the snapshot. Returns false when a full snapshot is needed instead:
+    // an entry outgrew its record, deleted records take up too much of the file, or the file is encrypted.
+    private boolean patchSnapshot(Map<String, AccountEntry> changes) throws IOException {
+        File target = new File(directory, FILE_NAME);
+        if (!target.exists() || cipher != null) return false;
+
+        long start = System.nanoTime();
+        VaultEvents.Io event = new VaultEvents.Io();
+        event.begin();
+        boolean patched = false;
+        try (VaultFile vaultFile = VaultFile.openForUpdate(target)) {
+            for (Map.Entry<String, AccountEntry> change : changes.entrySet()) {
+                boolean applied = change.getValue() == null
+                        ? vaultFile.remove(change.getKey())
+                        : vaultFile.update(change.getValue());
+                if (!applied) return false;
+            }
+            if (vaultFile.getDeletedCount() > vaultFile.size() / 4) return false;
+            vaultFile.force();
+            patched = true;
+        } finally {
+            PATCH_TIME.recordSince(start);
+            commit(event, "patch", FILE_NAME, changes.size(), patched);
+        }
+        System.out.println("Saved " + changes.size() + " changes in place to " + FILE_NAME + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return true;
+    }
+
+    private List<AccountEntry> copyEntries() {
+        List<AccountEntry> entries = vault.entries();
+        List<AccountEntry> copy = new ArrayList<>(entries.size());
+        for (AccountEntry entry : entries) {
+            copy.add(new AccountEntry(entry));
+        }
+        return copy;
+    }
+
+    private void writeSnapshot(List<AccountEntry> snapshot) throws IOException {
+        File target = new File(directory, FILE_NAME);
+        File temp = new File(directory, FILE_NAME + ".tmp");
+        VaultCipher cipher = this.cipher;
+        // Without the cipher (the vault was locked meanwhile) an encrypted vault is never replaced by a plain one.
+        if (cipher == null && VaultCipher.isEncrypted(target)) {
+            throw new IOException("The vault is locked; snapshot not written");
+        }
+        long start = System.nanoTime();
+        VaultEvents.Io event = new VaultEvents.Io();
+        event.begin();
+        boolean saved = false;
+        try {
+            VaultFile.write(temp, snapshot, cipher);
+            Files.move(temp.toPath(), target.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(target.getAbsoluteFile().getParentFile());
+            saved = true;
+        } finally {
+            SNAPSHOT_TIME.recordSince(start);
+            commit(event, "snapshot", FILE_NAME, snapshot.size(), saved);
+        }
+        System.out.println("Saved " + snapshot.size() + " entries to " + FILE_NAME + " in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    private static void commit(VaultEvents.Io event, String operation, String file, long entries, boolean succeeded) {
+        if (!event.shouldCommit()) return;
+        event.operation = operation;
+        event.file = file;
+        event.entries = entries;
+        event.succeeded = succeeded;
+        event.commit();
+    }
+
+    // The next snapshot leaves out records that could not be read, so the file as it was is kept for recovery.
+    private void keepDamagedCopy(File file) {
+        try {
+            Files.copy(file.toPath(), new File(directory, DAMAGED_FILE_NAME).toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+            System.err.println(skippedRecords + " damaged records skipped; the file was copied to " + DAMAGED_FILE_NAME);
+        } catch (IOException e) {
+            System.err.println("Cannot copy the damaged vault file: " + e.getMessage());
+        }
+    }
+
+    private void syncDirectory(File directory) {
+        // Makes the rename itself durable; not every platform allows opening a directory, which is fine to skip.
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // ignored
+        }
+    }
+
+}
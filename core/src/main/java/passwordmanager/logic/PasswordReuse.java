@@ -0,0 +1,65 @@
+package passwordmanager.logic;
+
+import passwordmanager.model.AccountEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// Password reuse by keyed hash: every entry carries a tag of its plaintext (CryptoSession.passwordTag) that the
+// vault indexes, so checking a new password or listing reuse across the vault decrypts nothing and compares no pairs.
+public class PasswordReuse {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private final CryptoSession session;
+    private final PasswordManager passwordManager;
+
+    public PasswordReuse(CryptoSession session, PasswordManager passwordManager) {
+        this.session = session;
+        this.passwordManager = passwordManager;
+    }
+
+    // Other entries already using this password; excludeId is the entry being edited, or null.
+    public List<AccountEntry> findUses(String password, String excludeId) {
+        List<AccountEntry> uses = new ArrayList<>();
+        for (AccountEntry entry : passwordManager.findByPasswordTag(session.passwordTag(password))) {
+            if (!entry.getId().equals(excludeId)) uses.add(entry);
+        }
+        return uses;
+    }
+
+    // Entries saved before tags existed (or imported without them) are decrypted once, in parallel chunks, and
+    // their tags stored with the vault. Returns the number of entries tagged. An interrupt stops it between chunks.
+    public int tagMissing() {
+        List<AccountEntry> untagged = new ArrayList<>();
+        for (AccountEntry entry : passwordManager.getAllEntries()) {
+            if (!entry.hasPasswordTag() && entry.getPassword() != null) untagged.add(entry);
+        }
+
+        int tagged = 0;
+        for (int start = 0; start < untagged.size() && !Thread.currentThread().isInterrupted(); start += CHUNK_SIZE) {
+            List<AccountEntry> chunk = untagged.subList(start, Math.min(untagged.size(), start + CHUNK_SIZE));
+            List<AccountEntry> copies = chunk.parallelStream().map(this::tagged).filter(Objects::nonNull).toList();
+            tagged += passwordManager.addPasswordTags(copies);
+        }
+        return tagged;
+    }
+
+    // Groups of entries sharing a password, largest first; call tagMissing() first to include older entries.
+    public List<List<AccountEntry>> findReused() {
+        return passwordManager.findReusedPasswords();
+    }
+
+    private AccountEntry tagged(AccountEntry entry) {
+        try {
+            AccountEntry copy = new AccountEntry(entry);
+            copy.setPasswordTag(session.passwordTagOf(entry.getPassword()));
+            return copy;
+        } catch (RuntimeException e) {
+            System.err.println("Cannot tag the password of " + entry.getPlatform() + " / " + entry.getLogin()
+                    + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
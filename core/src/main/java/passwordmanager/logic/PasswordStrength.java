@@ -0,0 +1,205 @@
+package passwordmanager.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class PasswordStrength {
+
+    public static final int UPPER = 1;
+    public static final int LOWER = 1 << 1;
+    public static final int DIGIT = 1 << 2;
+    public static final int SPECIAL = 1 << 3;
+    public static final int ALL_CLASSES = UPPER | LOWER | DIGIT | SPECIAL;
+
+    public static final int TOO_SHORT = 1 << 4;
+    public static final int REPEATS = 1 << 5;
+    public static final int SEQUENCE = 1 << 6;
+    public static final int KEYBOARD_WALK = 1 << 7;
+
+    public static final int MIN_LENGTH = 8;
+
+    public enum Level {
+        VERY_WEAK,
+        WEAK,
+        MEDIUM,
+        STRONG
+    }
+
+    public static final class Result {
+        private final Level level;
+        private final double entropyBits;
+        private final int flags;
+
+        private Result(Level level, double entropyBits, int flags) {
+            this.level = level;
+            this.entropyBits = entropyBits;
+            this.flags = flags;
+        }
+
+        public Level getLevel() {
+            return level;
+        }
+
+        public double getEntropyBits() {
+            return entropyBits;
+        }
+
+        public int getFlags() {
+            return flags;
+        }
+
+        public boolean has(int flag) {
+            return (flags & flag) != 0;
+        }
+
+        public List<String> reasons() {
+            List<String> reasons = new ArrayList<>();
+            if (has(TOO_SHORT)) reasons.add("shorter than " + MIN_LENGTH + " characters");
+            if (!has(UPPER)) reasons.add("no uppercase letter");
+            if (!has(LOWER)) reasons.add("no lowercase letter");
+            if (!has(DIGIT)) reasons.add("no digit");
+            if (!has(SPECIAL)) reasons.add("no special character");
+            if (has(REPEATS)) reasons.add("repeated characters");
+            if (has(SEQUENCE)) reasons.add("character sequence");
+            if (has(KEYBOARD_WALK)) reasons.add("keyboard pattern");
+            return reasons;
+        }
+    }
+
+    private static final int PATTERN_RUN = 3;
+    private static final double REPEAT_BITS = 1.0;
+    private static final double PATTERN_BITS = 1.5;
+    private static final double WEAK_BITS = 28;
+    private static final double MEDIUM_BITS = 36;
+    private static final double STRONG_BITS = 60;
+
+    private static final String[] KEYBOARD_ROWS = {
+            "`1234567890-=",
+            "qwertyuiop[]\\",
+            "asdfghjkl;'",
+            "zxcvbnm,./"
+    };
+    private static final String[] SHIFTED_ROWS = {
+            "~!@#$%^&*()_+",
+            "QWERTYUIOP{}|",
+            "ASDFGHJKL:\"",
+            "ZXCVBNM<>?"
+    };
+    private static final byte[] KEY_ROW = new byte[128];
+    private static final byte[] KEY_COLUMN = new byte[128];
+
+    static {
+        Arrays.fill(KEY_ROW, (byte) -1);
+        for (int row = 0; row < KEYBOARD_ROWS.length; row++) {
+            for (int column = 0; column < KEYBOARD_ROWS[row].length(); column++) {
+                KEY_ROW[KEYBOARD_ROWS[row].charAt(column)] = (byte) row;
+                KEY_COLUMN[KEYBOARD_ROWS[row].charAt(column)] = (byte) column;
+                KEY_ROW[SHIFTED_ROWS[row].charAt(column)] = (byte) row;
+                KEY_COLUMN[SHIFTED_ROWS[row].charAt(column)] = (byte) column;
+            }
+        }
+    }
+
+    private PasswordStrength() {
+    }
+
+    public static int characterClasses(CharSequence password) {
+        int classes = 0;
+        for (int i = 0, length = password.length(); i < length && classes != ALL_CLASSES; i++) {
+            classes |= classify(password.charAt(i));
+        }
+        return classes;
+    }
+
+    public static boolean meetsPolicy(CharSequence password) {
+        return password != null
+                && password.length() >= MIN_LENGTH
+                && characterClasses(password) == ALL_CLASSES;
+    }
+
+    // One pass: classes, repeats, sequences ("abc", "321") and keyboard walks ("qwer", "asdf") are found together.
+    public static Result evaluate(CharSequence password) {
+        int length = password.length();
+        int flags = 0;
+        int freeChars = 0;
+        int repeatChars = 0;
+        int patternChars = 0;
+        int repeatRun = 1;
+        int sequenceRun = 1;
+        int walkRun = 1;
+        int sequenceStep = 0;
+        char previous = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = password.charAt(i);
+            flags |= classify(c);
+
+            if (i > 0) {
+                int step = c - previous;
+                repeatRun = step == 0 ? repeatRun + 1 : 1;
+                if ((step == 1 || step == -1) && Character.isLetterOrDigit(c)) {
+                    sequenceRun = step == sequenceStep ? sequenceRun + 1 : 2;
+                    sequenceStep = step;
+                } else {
+                    sequenceRun = 1;
+                    sequenceStep = 0;
+                }
+                walkRun = step != 0 && isAdjacentKey(previous, c) ? walkRun + 1 : 1;
+            }
+
+            if (repeatRun >= 2) {
+                repeatChars++;
+                if (repeatRun >= PATTERN_RUN) flags |= REPEATS;
+            } else if (sequenceRun >= 2 || walkRun >= 2) {
+                patternChars++;
+                if (sequenceRun >= PATTERN_RUN) flags |= SEQUENCE;
+                if (walkRun >= PATTERN_RUN) flags |= KEYBOARD_WALK;
+            } else {
+                freeChars++;
+            }
+            previous = c;
+        }
+
+        if (length < MIN_LENGTH) flags |= TOO_SHORT;
+
+        double entropy = freeChars * bitsPerCharacter(flags)
+                + repeatChars * REPEAT_BITS
+                + patternChars * PATTERN_BITS;
+        return new Result(level(entropy, flags), entropy, flags);
+    }
+
+    private static Level level(double entropy, int flags) {
+        if (entropy < WEAK_BITS) return Level.VERY_WEAK;
+        if (entropy < MEDIUM_BITS || (flags & TOO_SHORT) != 0) return Level.WEAK;
+        if (entropy < STRONG_BITS) return Level.MEDIUM;
+        return Level.STRONG;
+    }
+
+    private static int classify(char c) {
+        if (c >= 'A' && c <= 'Z') return UPPER;
+        if (c >= 'a' && c <= 'z') return LOWER;
+        if (c >= '0' && c <= '9') return DIGIT;
+        return SPECIAL;
+    }
+
+    private static double bitsPerCharacter(int flags) {
+        int pool = 0;
+        if ((flags & UPPER) != 0) pool += 26;
+        if ((flags & LOWER) != 0) pool += 26;
+        if ((flags & DIGIT) != 0) pool += 10;
+        if ((flags & SPECIAL) != 0) pool += 33;
+        return pool == 0 ? 0 : Math.log(pool) / Math.log(2);
+    }
+
+    private static boolean isAdjacentKey(char a, char b) {
+        if (a >= 128 || b >= 128 || KEY_ROW[a] < 0 || KEY_ROW[b] < 0) return false;
+        int rowDistance = KEY_ROW[b] - KEY_ROW[a];
+        int columnDistance = KEY_COLUMN[b] - KEY_COLUMN[a];
+        if (rowDistance == 0) return columnDistance == 1 || columnDistance == -1;
+        // Rows are staggered, so a key touches the two keys below it at the same and previous column.
+        if (rowDistance == 1) return columnDistance == 0 || columnDistance == -1;
+        if (rowDistance == -1) return columnDistance == 0 || columnDistance == 1;
+        return false;
+    }
+}
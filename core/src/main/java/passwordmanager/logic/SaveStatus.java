@@ -0,0 +1,7 @@
+package passwordmanager.logic;
+
+public enum SaveStatus {
+    SAVING,
+    SAVED,
+    FAILED
+}
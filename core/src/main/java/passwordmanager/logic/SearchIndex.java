@@ -0,0 +1,320 @@
+package passwordmanager.logic;
+
+import passwordmanager.model.AccountEntry;
+
+import java.util.*;
+
+// Type-ahead search over platform and login, maintained by Vault as entries are indexed and unindexed.
+// Terms live in a sorted map, so a prefix is one contiguous range (the subtree a trie would walk, with one node
+// per term instead of one per character). Each term's trigrams feed an inverted index for typo-tolerant matches.
+class SearchIndex {
+
+    private static final char PAD = '\0';
+    // A fuzzy match must contain at least this share of the query's trigrams.
+    private static final double MIN_COVERAGE = 0.5;
+    // Upper bound on posting entries read for one fuzzy query, which keeps every keystroke well under a millisecond.
+    private static final int MAX_FUZZY_POSTINGS = 2048;
+
+    private static class Term {
+        private final String text;
+        // Distinct trigrams of the text, for the similarity score.
+        private final int gramCount;
+        private int id;
+        // Most terms belong to one entry, so a bare array sized on demand instead of a list per term.
+        private AccountEntry[] entries = new AccountEntry[1];
+        private int size;
+
+        private Term(String text, int gramCount, int id) {
+            this.text = text;
+            this.gramCount = gramCount;
+            this.id = id;
+        }
+
+        private void add(AccountEntry entry) {
+            if (size == entries.length) entries = Arrays.copyOf(entries, size * 2);
+            entries[size++] = entry;
+        }
+
+        private void remove(AccountEntry entry) {
+            for (int i = 0; i < size; i++) {
+                if (entries[i] == entry) {
+                    System.arraycopy(entries, i + 1, entries, i, size - i - 1);
+                    entries[--size] = null;
+                    return;
+                }
+            }
+        }
+    }
+
+    // Term ids in ascending order; new ids are always the highest, so appending keeps every list sorted.
+    private static class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        private void remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) return;
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+        }
+    }
+
+    private static class Candidate {
+        private final Term term;
+        private final double score;
+
+        private Candidate(Term term, double score) {
+            this.term = term;
+            this.score = score;
+        }
+    }
+
+    private static final Postings EMPTY = new Postings();
+    // Ids of removed terms stay unused until there are this many and they outnumber the live terms.
+    private static final int MIN_FREED_IDS = 1024;
+
+    private final TreeMap<String, Term> terms = new TreeMap<>();
+    private final List<Term> termsById = new ArrayList<>();
+    private int freedIds;
+    // Open-addressed trigram -> postings table; keys are never removed since the set of trigrams in use stays small.
+    private long[] gramKeys = new long[1024];
+    private Postings[] gramLists = new Postings[1024];
+    private int gramCount;
+
+    void add(AccountEntry entry, String platformKey, String loginKey) {
+        addTerm(platformKey, entry);
+        if (!loginKey.equals(platformKey)) addTerm(loginKey, entry);
+    }
+
+    void remove(AccountEntry entry, String platformKey, String loginKey) {
+        removeTerm(platformKey, entry);
+        if (!loginKey.equals(platformKey)) removeTerm(loginKey, entry);
+    }
+
+    void clear() {
+        terms.clear();
+        termsById.clear();
+        freedIds = 0;
+        gramKeys = new long[1024];
+        gramLists = new Postings[1024];
+        gramCount = 0;
+    }
+
+    // Exact matches first, then prefix matches in term order, then fuzzy matches by trigram similarity.
+    List<AccountEntry> search(String query, int limit) {
+        String key = query.strip().toLowerCase(Locale.ROOT);
+        if (key.isEmpty() || limit <= 0) return List.of();
+
+        Set<AccountEntry> results = new LinkedHashSet<>();
+        Set<Term> matched = new HashSet<>();
+
+        Term exact = terms.get(key);
+        if (exact != null) collect(exact, matched, results, limit);
+
+        for (Term term : terms.subMap(key, false, key + Character.MAX_VALUE, false).values()) {
+            if (results.size() >= limit) break;
+            collect(term, matched, results, limit);
+        }
+
+        if (results.size() < limit && key.length() >= 3) {
+            for (Candidate candidate : fuzzy(key, matched)) {
+                if (results.size() >= limit) break;
+                collect(candidate.term, matched, results, limit);
+            }
+        }
+        return new ArrayList<>(results);
+    }
+
+    private List<Candidate> fuzzy(String key, Set<Term> matched) {
+        long[] grams = trigrams(key);
+        int required = (int) Math.ceil(grams.length * MIN_COVERAGE);
+
+        Postings[] lists = new Postings[grams.length];
+        for (int i = 0; i < grams.length; i++) {
+            Postings postings = gramLists[slot(grams[i])];
+            lists[i] = postings == null ? EMPTY : postings;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+
+        // A term sharing `required` trigrams must appear in one of the (n - required + 1) rarest lists. Lists are
+        // only read whole: part of one would favour the oldest ids and leave the rest of the list uncounted. Past
+        // the bound, the remaining lists are searched per candidate instead, so counts stay exact and only terms
+        // in none of the lists read are missed.
+        int scanned = 0;
+        int count = 0;
+        while (scanned < grams.length - required + 1 && count + lists[scanned].size <= MAX_FUZZY_POSTINGS) {
+            count += lists[scanned++].size;
+        }
+        int[] ids = new int[count];
+        int offset = 0;
+        for (int i = 0; i < scanned; i++) {
+            System.arraycopy(lists[i].ids, 0, ids, offset, lists[i].size);
+            offset += lists[i].size;
+        }
+        Arrays.sort(ids);
+
+        // Shared trigrams are counted on the sorted postings, so terms are only touched once they qualify.
+        // Candidates arrive in id order, so each remaining list is walked forward once rather than searched afresh.
+        int[] cursors = new int[lists.length];
+        List<Candidate> candidates = new ArrayList<>();
+        for (int i = 0; i < count; ) {
+            int id = ids[i];
+            int shared = 0;
+            while (i < count && ids[i] == id) {
+                shared++;
+                i++;
+            }
+            for (int j = scanned; j < lists.length && shared + lists.length - j >= required; j++) {
+                cursors[j] = seek(lists[j], cursors[j], id);
+                if (cursors[j] < lists[j].size && lists[j].ids[cursors[j]] == id) shared++;
+            }
+            if (shared < required) continue;
+
+            Term term = termsById.get(id);
+            if (term == null || matched.contains(term)) continue;
+            // Dice coefficient over both trigram sets, so closer lengths rank higher.
+            candidates.add(new Candidate(term, 2.0 * shared / (grams.length + term.gramCount)));
+        }
+        candidates.sort((a, b) -> a.score != b.score
+                ? Double.compare(b.score, a.score)
+                : Integer.compare(a.term.id, b.term.id));
+        return candidates;
+    }
+
+    // First index at or after `from` whose id is not below `id`, found by galloping ahead and then bisecting.
+    private static int seek(Postings list, int from, int id) {
+        if (from >= list.size) return list.size;
+        int low = from;
+        int step = 1;
+        while (low + step < list.size && list.ids[low + step] < id) {
+            low += step;
+            step <<= 1;
+        }
+        int index = Arrays.binarySearch(list.ids, low, Math.min(low + step + 1, list.size), id);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static void collect(Term term, Set<Term> matched, Set<AccountEntry> results, int limit) {
+        matched.add(term);
+        for (int i = 0; i < term.size; i++) {
+            if (results.size() >= limit) return;
+            results.add(term.entries[i]);
+        }
+    }
+
+    private void addTerm(String text, AccountEntry entry) {
+        Term term = terms.get(text);
+        if (term == null) {
+            long[] grams = trigrams(text);
+            term = new Term(text, grams.length, termsById.size());
+            terms.put(text, term);
+            termsById.add(term);
+            for (long gram : grams) {
+                postingsFor(gram).add(term.id);
+            }
+        }
+        term.add(entry);
+    }
+
+    private void removeTerm(String text, AccountEntry entry) {
+        Term term = terms.get(text);
+        if (term == null) return;
+
+        term.remove(entry);
+        if (term.size > 0) return;
+
+        terms.remove(text);
+        termsById.set(term.id, null);
+        for (long gram : trigrams(text)) {
+            Postings postings = gramLists[slot(gram)];
+            if (postings != null) postings.remove(term.id);
+        }
+        if (++freedIds >= MIN_FREED_IDS && freedIds * 2 > termsById.size()) compactIds();
+    }
+
+    // Numbers the live terms 0..n-1 again, in their old order so ties still rank the same, and rebuilds the
+    // postings from them. Runs once at least half of the ids were freed, so its cost is spread over the removals.
+    private void compactIds() {
+        List<Term> live = new ArrayList<>(termsById.size() - freedIds);
+        for (Term term : termsById) {
+            if (term != null) live.add(term);
+        }
+        termsById.clear();
+        freedIds = 0;
+        gramKeys = new long[1024];
+        gramLists = new Postings[1024];
+        gramCount = 0;
+        for (Term term : live) {
+            term.id = termsById.size();
+            termsById.add(term);
+            for (long gram : trigrams(term.text)) {
+                postingsFor(gram).add(term.id);
+            }
+        }
+    }
+
+    private Postings postingsFor(long gram) {
+        int slot = slot(gram);
+        if (gramLists[slot] == null) {
+            if (++gramCount * 2 > gramKeys.length) {
+                grow();
+                slot = slot(gram);
+            }
+            gramKeys[slot] = gram;
+            gramLists[slot] = new Postings();
+        }
+        return gramLists[slot];
+    }
+
+    // The slot holding the gram, or the empty slot where it would go.
+    private int slot(long gram) {
+        int mask = gramKeys.length - 1;
+        int slot = (int) ((gram * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        while (gramLists[slot] != null && gramKeys[slot] != gram) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = gramKeys;
+        Postings[] oldLists = gramLists;
+        gramKeys = new long[oldKeys.length * 2];
+        gramLists = new Postings[oldLists.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldLists[i] != null) {
+                int slot = slot(oldKeys[i]);
+                gramKeys[slot] = oldKeys[i];
+                gramLists[slot] = oldLists[i];
+            }
+        }
+    }
+
+    // Distinct, sorted trigrams of the text padded as "\0\0text\0", so starts and ends of words count too.
+    private static long[] trigrams(String text) {
+        long[] grams = new long[text.length() + 1];
+        char a = PAD;
+        char b = PAD;
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : PAD;
+            grams[i] = pack(a, b, c);
+            a = b;
+            b = c;
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < grams.length; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) grams[distinct++] = grams[i];
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    private static long pack(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+}
@@ -0,0 +1,159 @@
+package passwordmanager.logic;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// A plaintext as UTF-8 bytes outside the Java heap, wiped on close(). Short secrets take a slot of a direct
+// arena reserved once, so decrypting a password allocates no heap memory that outlives the call and leaves
+// nothing for a heap dump; longer ones (whole export chunks) get their own direct buffer.
+// Not thread-safe: a secret has one owner, which must close it.
+public final class SecretBuffer implements Closeable {
+
+    static final int SLOT_SIZE = 256;
+    private static final int ARENA_SLOTS = 4096;
+    private static final ConcurrentLinkedQueue<ByteBuffer> FREE_SLOTS = new ConcurrentLinkedQueue<>();
+
+    static {
+        ByteBuffer arena = ByteBuffer.allocateDirect(SLOT_SIZE * ARENA_SLOTS);
+        for (int i = 0; i < ARENA_SLOTS; i++) {
+            FREE_SLOTS.add(arena.slice(i * SLOT_SIZE, SLOT_SIZE));
+        }
+    }
+
+    private ByteBuffer buffer;
+    private boolean pooled;
+    private int length;
+
+    private SecretBuffer(int capacity) {
+        claim(capacity);
+    }
+
+    // An empty secret with room for `capacity` bytes; it grows when appended past that.
+    public static SecretBuffer allocate(int capacity) {
+        return new SecretBuffer(capacity);
+    }
+
+    // Copies the bytes and wipes the source array.
+    public static SecretBuffer wrapAndWipe(byte[] plaintext) {
+        SecretBuffer secret = new SecretBuffer(plaintext.length);
+        secret.append(plaintext, 0, plaintext.length);
+        Arrays.fill(plaintext, (byte) 0);
+        return secret;
+    }
+
+    public int length() {
+        check();
+        return length;
+    }
+
+    // A read-only view of the bytes; valid until close().
+    public ByteBuffer bytes() {
+        check();
+        return buffer.asReadOnlyBuffer().position(0).limit(length);
+    }
+
+    public SecretBuffer append(byte[] bytes, int offset, int count) {
+        ensureCapacity(count);
+        buffer.put(length, bytes, offset, count);
+        length += count;
+        return this;
+    }
+
+    public SecretBuffer append(ByteBuffer bytes) {
+        int count = bytes.remaining();
+        ensureCapacity(count);
+        buffer.put(length, bytes, bytes.position(), count);
+        length += count;
+        return this;
+    }
+
+    public SecretBuffer append(byte b) {
+        ensureCapacity(1);
+        buffer.put(length++, b);
+        return this;
+    }
+
+    public SecretBuffer copy() {
+        return allocate(length()).append(bytes());
+    }
+
+    // For code that needs chars; the caller wipes the array.
+    public char[] toChars() {
+        CharBuffer chars = StandardCharsets.UTF_8.decode(bytes());
+        try {
+            return Arrays.copyOf(chars.array(), chars.limit());
+        } finally {
+            Arrays.fill(chars.array(), '\0');
+        }
+    }
+
+    // Heap copy for APIs that only take a byte[]; the caller wipes it.
+    public byte[] toBytes() {
+        byte[] copy = new byte[length()];
+        buffer.get(0, copy);
+        return copy;
+    }
+
+    // For UI controls and the clipboard, which only accept a String; the copy cannot be wiped.
+    public String toPlainString() {
+        char[] chars = toChars();
+        try {
+            return new String(chars);
+        } finally {
+            Arrays.fill(chars, '\0');
+        }
+    }
+
+    public boolean isClosed() {
+        return buffer == null;
+    }
+
+    @Override
+    public void close() {
+        if (buffer == null) return;
+        release();
+        buffer = null;
+        length = 0;
+    }
+
+    @Override
+    public String toString() {
+        return buffer == null ? "SecretBuffer[closed]" : "SecretBuffer[" + length + " bytes]";
+    }
+
+    private void ensureCapacity(int count) {
+        check();
+        if (length + count <= buffer.capacity()) return;
+        ByteBuffer previous = buffer;
+        boolean previousPooled = pooled;
+        claim(Math.max(length + count, buffer.capacity() * 2));
+        buffer.put(0, previous, 0, length);
+        wipe(previous, length);
+        if (previousPooled) FREE_SLOTS.add(previous);
+    }
+
+    private void claim(int capacity) {
+        ByteBuffer slot = capacity <= SLOT_SIZE ? FREE_SLOTS.poll() : null;
+        pooled = slot != null;
+        buffer = pooled ? slot : ByteBuffer.allocateDirect(Math.max(capacity, 1));
+    }
+
+    private void release() {
+        wipe(buffer, length);
+        if (pooled) FREE_SLOTS.add(buffer);
+    }
+
+    private static void wipe(ByteBuffer buffer, int length) {
+        for (int i = 0; i < length; i++) {
+            buffer.put(i, (byte) 0);
+        }
+    }
+
+    private void check() {
+        if (buffer == null) throw new IllegalStateException("Secret already closed");
+    }
+}
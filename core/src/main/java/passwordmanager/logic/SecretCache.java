@@ -0,0 +1,181 @@
+package passwordmanager.logic;
+
+import passwordmanager.model.AccountEntry;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Decrypt-on-demand over a session. The most recently used plaintexts are kept off the heap as SecretBuffers so
+// opening the same entry again skips the cipher; a secret is wiped when it is evicted, unused for the idle
+// timeout, or cleared.
+public class SecretCache implements Closeable {
+
+    public static final int DEFAULT_CAPACITY = 256;
+    public static final long DEFAULT_IDLE_MILLIS = 60_000;
+
+    private static class Secret {
+        private final String ciphertext;
+        private final SecretBuffer plaintext;
+        private long lastUsed;
+
+        private Secret(String ciphertext, SecretBuffer plaintext, long lastUsed) {
+            this.ciphertext = ciphertext;
+            this.plaintext = plaintext;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    private final CryptoSession session;
+    private final int capacity;
+    private final long idleNanos;
+    private final Map<String, Secret> secrets;
+    private final ScheduledExecutorService sweeper;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public SecretCache(CryptoSession session) {
+        this(session, DEFAULT_CAPACITY, DEFAULT_IDLE_MILLIS);
+    }
+
+    public SecretCache(CryptoSession session, int capacity, long idleMillis) {
+        this.session = session;
+        this.capacity = capacity;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        // Access order, so the eldest entry is always the least recently used one.
+        this.secrets = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Secret> eldest) {
+                if (size() <= SecretCache.this.capacity) return false;
+                evict(eldest.getValue());
+                return true;
+            }
+        };
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "secret-cache-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, idleMillis / 4);
+        sweeper.scheduleWithFixedDelay(this::sweep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // The secret is only valid inside the action: it may be wiped as soon as the action returns.
+    public synchronized <T> T withSecret(AccountEntry entry, Function<SecretBuffer, T> action) {
+        long now = System.nanoTime();
+        Secret secret = secrets.get(entry.getId());
+        if (secret != null && secret.ciphertext.equals(entry.getPassword()) && now - secret.lastUsed < idleNanos) {
+            hits++;
+            secret.lastUsed = now;
+            return action.apply(secret.plaintext);
+        }
+
+        misses++;
+        if (secret != null) {
+            secrets.remove(entry.getId());
+            // An idle secret the sweeper has not reached yet is an eviction; a changed password is not.
+            if (secret.ciphertext.equals(entry.getPassword())) {
+                evict(secret);
+            } else {
+                wipe(secret);
+            }
+        }
+        SecretBuffer plaintext = session.decryptSecret(entry.getPassword());
+        if (capacity <= 0) {
+            try (plaintext) {
+                return action.apply(plaintext);
+            }
+        }
+        secrets.put(entry.getId(), new Secret(entry.getPassword(), plaintext, now));
+        return action.apply(plaintext);
+    }
+
+    // For UI controls that only accept a String; the returned copy cannot be wiped.
+    public String reveal(AccountEntry entry) {
+        return withSecret(entry, SecretBuffer::toPlainString);
+    }
+
+    // Bulk readers (exports, audits) use cached plaintexts but do not fill the cache, so a full pass over
+    // the vault neither evicts the hot entries nor leaves everything decrypted in memory. The caller closes
+    // the returned secret.
+    public SecretBuffer peekOrDecrypt(AccountEntry entry) {
+        synchronized (this) {
+            Secret secret = secrets.get(entry.getId());
+            if (secret != null && secret.ciphertext.equals(entry.getPassword())) {
+                hits++;
+                return secret.plaintext.copy();
+            }
+            misses++;
+        }
+        return session.decryptSecret(entry.getPassword());
+    }
+
+    public synchronized void invalidate(String id) {
+        Secret secret = secrets.remove(id);
+        if (secret != null) wipe(secret);
+    }
+
+    public synchronized void clear() {
+        for (Secret secret : secrets.values()) {
+            wipe(secret);
+        }
+        secrets.clear();
+    }
+
+    public synchronized int size() {
+        return secrets.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long total = hits + misses;
+        return String.format("%d cached, %d hits, %d misses (%.1f%% hit rate), %d evicted",
+                secrets.size(), hits, misses, total == 0 ? 0.0 : hits * 100.0 / total, evictions);
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        clear();
+    }
+
+    private synchronized void sweep() {
+        long now = System.nanoTime();
+        Iterator<Secret> iterator = secrets.values().iterator();
+        while (iterator.hasNext()) {
+            Secret secret = iterator.next();
+            if (now - secret.lastUsed >= idleNanos) {
+                evict(secret);
+                iterator.remove();
+            }
+        }
+    }
+
+    // Only secrets dropped for room or for idling count as evictions, not those cleared or invalidated.
+    private void evict(Secret secret) {
+        wipe(secret);
+        evictions++;
+    }
+
+    private void wipe(Secret secret) {
+        secret.plaintext.close();
+    }
+}
@@ -0,0 +1,351 @@
+package passwordmanager.logic;
+
+import passwordmanager.model.AccountEntry;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+// Safe for concurrent use. Writers are serialized by a StampedLock; lookups by id and size() take no lock,
+// queries share the read lock, and iteration goes through immutable snapshots that are cached until the next change.
+public class Vault {
+
+    // Same order as sortedEntries(), for views that keep their own sorted copy.
+    public static final Comparator<AccountEntry> DISPLAY_ORDER = Comparator
+            .comparing((AccountEntry entry) -> platformKey(entry.getPlatform()))
+            .thenComparing(entry -> entry.getLogin().toLowerCase(Locale.ROOT))
+            .thenComparing(AccountEntry::getId);
+
+    private static final Comparator<Indexed> INDEX_ORDER = Comparator
+            .comparing((Indexed indexed) -> indexed.platformKey)
+            .thenComparing(indexed -> indexed.loginKey)
+            .thenComparing(indexed -> indexed.entry.getId());
+
+    // Keys are captured when an entry is indexed, so an entry edited in place can still be found and unindexed.
+    private static class Indexed {
+        private final AccountEntry entry;
+        private final String platformKey;
+        private final String login;
+        private final String loginKey;
+        // First half of the password tag, or null when the entry has none.
+        private final Long passwordKey;
+        // Insertion order: an update keeps the sequence of the entry it replaces.
+        private final long sequence;
+
+        private Indexed(AccountEntry entry, long sequence) {
+            this.entry = entry;
+            this.sequence = sequence;
+            // Shared like the platform names themselves, so a million entries hold a few thousand keys.
+            this.platformKey = AccountEntry.share(platformKey(entry.getPlatform()));
+            this.login = entry.getLogin();
+            this.loginKey = login.toLowerCase(Locale.ROOT);
+            this.passwordKey = passwordKey(entry.getPasswordTag());
+        }
+    }
+
+    // An immutable view of the vault at one version. Iterating or exporting it never blocks writers,
+    // and later changes to the vault do not show through.
+    public static final class Snapshot {
+        private final long version;
+        private final Indexed[] indexed;
+        private final List<AccountEntry> sortedEntries;
+        private volatile List<AccountEntry> entries;
+
+        private Snapshot(long version, Indexed[] indexed) {
+            this.version = version;
+            this.indexed = indexed;
+            AccountEntry[] sorted = new AccountEntry[indexed.length];
+            for (int i = 0; i < indexed.length; i++) {
+                sorted[i] = indexed[i].entry;
+            }
+            this.sortedEntries = Collections.unmodifiableList(Arrays.asList(sorted));
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public int size() {
+            return indexed.length;
+        }
+
+        public List<AccountEntry> sortedEntries() {
+            return sortedEntries;
+        }
+
+        // Insertion order, worked out on first use since most readers only need display order.
+        public List<AccountEntry> entries() {
+            List<AccountEntry> result = entries;
+            if (result == null) {
+                Indexed[] byAge = indexed.clone();
+                Arrays.sort(byAge, Comparator.comparingLong(indexed -> indexed.sequence));
+                AccountEntry[] ordered = new AccountEntry[byAge.length];
+                for (int i = 0; i < byAge.length; i++) {
+                    ordered[i] = byAge[i].entry;
+                }
+                result = Collections.unmodifiableList(Arrays.asList(ordered));
+                entries = result;
+            }
+            return result;
+        }
+    }
+
+    private final StampedLock lock = new StampedLock();
+    private final Map<String, Indexed> byId = new ConcurrentHashMap<>();
+    // Platform key -> login -> entries, both in insertion order; serves lookups by platform and by platform and login.
+    // Nearly every login has a single entry, so a plain array costs far less than a map per login.
+    private final Map<String, Map<String, AccountEntry[]>> byPlatformLogin = new HashMap<>();
+    private final TreeSet<Indexed> sorted = new TreeSet<>(INDEX_ORDER);
+    private final SearchIndex search = new SearchIndex();
+    // Entries by the first 8 bytes of their password tag; the full tag is compared when reading. A reused password
+    // can have many entries, so each tag has a growable list rather than an array copied on every change.
+    private final Map<Long, List<AccountEntry>> byPasswordTag = new HashMap<>();
+    private long nextSequence;
+    // Bumped by every change, so a cached snapshot knows when it is stale.
+    private volatile long version;
+    private volatile Snapshot snapshot;
+
+    // Returns the entry previously stored under the same id, or null. The id is replaced in byId in one step, so a
+    // lock-free get() never misses an entry that is only being replaced.
+    public AccountEntry add(AccountEntry entry) {
+        long stamp = lock.writeLock();
+        try {
+            Indexed indexed = new Indexed(entry, nextSequence++);
+            Indexed previous = byId.put(entry.getId(), indexed);
+            if (previous != null) unindex(previous);
+            index(indexed);
+            version++;
+            return previous == null ? null : previous.entry;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Keeps the entry's insertion order; returns the entry it replaced, or null if it was added.
+    public AccountEntry update(AccountEntry entry) {
+        long stamp = lock.writeLock();
+        try {
+            Indexed previous = byId.get(entry.getId());
+            if (previous != null) unindex(previous);
+            index(new Indexed(entry, previous != null ? previous.sequence : nextSequence++));
+            version++;
+            return previous == null ? null : previous.entry;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public AccountEntry remove(String id) {
+        long stamp = lock.writeLock();
+        try {
+            AccountEntry removed = removeLocked(id);
+            if (removed != null) version++;
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public AccountEntry get(String id) {
+        Indexed indexed = byId.get(id);
+        return indexed == null ? null : indexed.entry;
+    }
+
+    public List<AccountEntry> findByPlatform(String platform) {
+        long stamp = lock.readLock();
+        try {
+            Map<String, AccountEntry[]> logins = byPlatformLogin.get(platformKey(platform));
+            if (logins == null) return List.of();
+            List<AccountEntry> result = new ArrayList<>();
+            for (AccountEntry[] matches : logins.values()) {
+                Collections.addAll(result, matches);
+            }
+            return result;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public AccountEntry findByPlatformAndLogin(String platform, String login) {
+        long stamp = lock.readLock();
+        try {
+            Map<String, AccountEntry[]> logins = byPlatformLogin.get(platformKey(platform));
+            AccountEntry[] matches = logins == null ? null : logins.get(login);
+            return matches == null ? null : matches[0];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public List<AccountEntry> search(String query, int limit) {
+        long stamp = lock.readLock();
+        try {
+            return search.search(query, limit);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Entries whose password has this tag, that is, which use the same password.
+    public List<AccountEntry> findByPasswordTag(byte[] tag) {
+        long stamp = lock.readLock();
+        try {
+            List<AccountEntry> candidates = byPasswordTag.get(passwordKey(tag));
+            if (candidates == null) return List.of();
+            List<AccountEntry> result = new ArrayList<>(candidates.size());
+            for (AccountEntry candidate : candidates) {
+                if (Arrays.equals(candidate.getPasswordTag(), tag)) result.add(candidate);
+            }
+            return result;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Groups of entries that share a password, largest first. One pass over the tag index, nothing is decrypted.
+    public List<List<AccountEntry>> findReusedPasswords() {
+        List<List<AccountEntry>> groups = new ArrayList<>();
+        long stamp = lock.readLock();
+        try {
+            for (List<AccountEntry> candidates : byPasswordTag.values()) {
+                if (candidates.size() < 2) continue;
+                // Different tags can share their first half; split those into separate groups.
+                Map<ByteBuffer, List<AccountEntry>> byTag = new LinkedHashMap<>();
+                for (AccountEntry candidate : candidates) {
+                    byTag.computeIfAbsent(ByteBuffer.wrap(candidate.getPasswordTag()), k -> new ArrayList<>())
+                            .add(candidate);
+                }
+                for (List<AccountEntry> group : byTag.values()) {
+                    if (group.size() > 1) groups.add(group);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        groups.sort(Comparator.comparingInt((List<AccountEntry> group) -> group.size()).reversed());
+        return groups;
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            byId.clear();
+            byPlatformLogin.clear();
+            sorted.clear();
+            search.clear();
+            byPasswordTag.clear();
+            version++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // The current snapshot; readers share it until the next change, so repeated calls cost nothing.
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null && current.version == version) return current;
+
+        long stamp = lock.readLock();
+        try {
+            current = new Snapshot(version, sorted.toArray(new Indexed[0]));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        // Two readers may race to publish; an older snapshot left behind fails the version check next time.
+        snapshot = current;
+        return current;
+    }
+
+    public List<AccountEntry> entries() {
+        return snapshot().entries();
+    }
+
+    public List<AccountEntry> sortedEntries() {
+        return snapshot().sortedEntries();
+    }
+
+    private AccountEntry removeLocked(String id) {
+        Indexed indexed = byId.remove(id);
+        if (indexed == null) return null;
+        unindex(indexed);
+        return indexed.entry;
+    }
+
+    private void index(Indexed indexed) {
+        byId.put(indexed.entry.getId(), indexed);
+        byPlatformLogin.computeIfAbsent(indexed.platformKey, k -> new LinkedHashMap<>())
+                .merge(indexed.login, new AccountEntry[]{indexed.entry}, Vault::append);
+        sorted.add(indexed);
+        search.add(indexed.entry, indexed.platformKey, indexed.loginKey);
+        if (indexed.passwordKey != null) {
+            byPasswordTag.computeIfAbsent(indexed.passwordKey, k -> new ArrayList<>(1)).add(indexed.entry);
+        }
+    }
+
+    private void unindex(Indexed indexed) {
+        removeFrom(byPlatformLogin, indexed);
+        sorted.remove(indexed);
+        search.remove(indexed.entry, indexed.platformKey, indexed.loginKey);
+        if (indexed.passwordKey != null) {
+            List<AccountEntry> candidates = byPasswordTag.get(indexed.passwordKey);
+            if (candidates != null) {
+                removeIdentical(candidates, indexed.entry);
+                if (candidates.isEmpty()) byPasswordTag.remove(indexed.passwordKey);
+            }
+        }
+    }
+
+    private static void removeFrom(Map<String, Map<String, AccountEntry[]>> index, Indexed indexed) {
+        Map<String, AccountEntry[]> logins = index.get(indexed.platformKey);
+        if (logins == null) return;
+        AccountEntry[] rest = without(logins.get(indexed.login), indexed.entry);
+        if (rest == null) return;
+        if (rest.length == 0) {
+            logins.remove(indexed.login);
+            if (logins.isEmpty()) index.remove(indexed.platformKey);
+        } else {
+            logins.put(indexed.login, rest);
+        }
+    }
+
+    // The array without this entry (compared by identity), or null when it was not in the array.
+    private static AccountEntry[] without(AccountEntry[] entries, AccountEntry entry) {
+        if (entries == null) return null;
+        for (int i = 0; i < entries.length; i++) {
+            if (entries[i] != entry) continue;
+            AccountEntry[] rest = new AccountEntry[entries.length - 1];
+            System.arraycopy(entries, 0, rest, 0, i);
+            System.arraycopy(entries, i + 1, rest, i, rest.length - i);
+            return rest;
+        }
+        return null;
+    }
+
+    private static void removeIdentical(List<AccountEntry> entries, AccountEntry entry) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i) == entry) {
+                entries.remove(i);
+                return;
+            }
+        }
+    }
+
+    private static AccountEntry[] append(AccountEntry[] entries, AccountEntry[] added) {
+        AccountEntry[] result = Arrays.copyOf(entries, entries.length + added.length);
+        System.arraycopy(added, 0, result, entries.length, added.length);
+        return result;
+    }
+
+    private static Long passwordKey(byte[] tag) {
+        return tag == null ? null : ByteBuffer.wrap(tag).getLong();
+    }
+
+    private static String platformKey(String platform) {
+        return platform.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,309 @@
+package passwordmanager.logic;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// Encryption of the files the vault is stored in, under a key derived from the session's data key.
+//
+// A vault file becomes a sequence of fixed-size AES-GCM chunks behind a short header:
+//
+//   header   magic, version, chunk size, reserved, random file id
+//   chunks   nonce, ciphertext of chunk-size bytes (fewer in the last chunk), GCM tag
+//
+// Every chunk has a fresh random nonce and authenticates the header, its own index and whether it is the last
+// one, so chunks cannot be altered, reordered, moved between files or cut off without failing to decrypt.
+// Chunks sit at fixed offsets, so any of them can be decrypted on its own.
+//
+// Journal lines are encrypted one by one, as Base64(nonce || ciphertext || tag). Each authenticates the id of its
+// journal and its position in it, so lines cannot be dropped from the middle, reordered or copied between journals
+// without failing to decrypt. Lines without a journal (quarantine files) authenticate a fixed label only.
+public class VaultCipher {
+
+    public static final int MAGIC = 0x504D5645;
+    private static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    // Small enough that a lookup, which touches a handful of chunks, decrypts little; large enough that the
+    // per-chunk nonce and tag cost nothing.
+    static final int DEFAULT_CHUNK_SIZE = 16 * 1024;
+    // The header is read before anything is authenticated, so the chunk size it claims is bounded first.
+    private static final int MAX_CHUNK_SIZE = 1024 * 1024;
+    private static final int BLOCK_SIZE = 16;
+    private static final int NONCE_LENGTH = 12;
+    private static final int TAG_LENGTH = 16;
+    private static final int OVERHEAD = NONCE_LENGTH + TAG_LENGTH;
+    private static final String ALGORITHM = "AES/GCM/NoPadding";
+    private static final byte[] LINE_AAD = "passwords.journal".getBytes(StandardCharsets.US_ASCII);
+    public static final int JOURNAL_ID_LENGTH = 16;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Cipher> cipher;
+
+    VaultCipher(SecretKeySpec key) {
+        this.key = key;
+        this.cipher = ThreadLocal.withInitial(() -> {
+            try {
+                return Cipher.getInstance(ALGORITHM);
+            } catch (Exception e) {
+                throw new RuntimeException("Cipher initialization error");
+            }
+        });
+    }
+
+    // True when the file starts with the header of an encrypted vault file.
+    public static boolean isEncrypted(File file) {
+        if (!file.isFile() || file.length() < HEADER_SIZE) return false;
+        try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+            return input.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Encrypts everything written to it onto `output`; finish() seals the last chunk.
+    public EncryptingStream encrypt(OutputStream output) throws IOException {
+        return new EncryptingStream(output, DEFAULT_CHUNK_SIZE);
+    }
+
+    // Reads the header of an encrypted file; its chunks are then decrypted on demand.
+    public ChunkReader open(FileChannel channel) throws IOException {
+        return new ChunkReader(channel);
+    }
+
+    public static byte[] newJournalId() {
+        byte[] journalId = new byte[JOURNAL_ID_LENGTH];
+        RANDOM.nextBytes(journalId);
+        return journalId;
+    }
+
+    public String encryptLine(String text) {
+        return encryptLine(text, LINE_AAD);
+    }
+
+    // Line number `sequence` of the journal `journalId`, counting from 0.
+    public String encryptLine(String text, byte[] journalId, long sequence) {
+        return encryptLine(text, lineAad(journalId, sequence));
+    }
+
+    public String decryptLine(String line) throws IOException {
+        return decryptLine(line, LINE_AAD);
+    }
+
+    public String decryptLine(String line, byte[] journalId, long sequence) throws IOException {
+        return decryptLine(line, lineAad(journalId, sequence));
+    }
+
+    private String encryptLine(String text, byte[] aad) {
+        byte[] plain = text.getBytes(StandardCharsets.UTF_8);
+        byte[] sealed = new byte[NONCE_LENGTH + plain.length + TAG_LENGTH];
+        newNonce(sealed);
+        try {
+            Cipher gcm = init(Cipher.ENCRYPT_MODE, sealed);
+            gcm.updateAAD(aad);
+            gcm.doFinal(plain, 0, plain.length, sealed, NONCE_LENGTH);
+        } catch (Exception e) {
+            throw new RuntimeException("Encryption error");
+        }
+        return Base64.getEncoder().encodeToString(sealed);
+    }
+
+    private String decryptLine(String line, byte[] aad) throws IOException {
+        byte[] sealed;
+        try {
+            sealed = Base64.getDecoder().decode(line);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed encrypted line");
+        }
+        if (sealed.length < OVERHEAD) throw new IOException("Malformed encrypted line");
+        try {
+            Cipher gcm = init(Cipher.DECRYPT_MODE, sealed);
+            gcm.updateAAD(aad);
+            return new String(gcm.doFinal(sealed, NONCE_LENGTH, sealed.length - NONCE_LENGTH), StandardCharsets.UTF_8);
+        } catch (AEADBadTagException e) {
+            throw new IOException("Encrypted line failed authentication");
+        } catch (Exception e) {
+            throw new RuntimeException("Decryption error");
+        }
+    }
+
+    // Like DeflaterOutputStream: finish() completes the file and leaves `output` open, close() closes it too.
+    public class EncryptingStream extends OutputStream {
+        private final OutputStream output;
+        private final byte[] header;
+        private final byte[] chunk;
+        private final byte[] sealed;
+        private int count;
+        private long index;
+        private boolean finished;
+
+        private EncryptingStream(OutputStream output, int chunkSize) throws IOException {
+            this.output = output;
+            this.chunk = new byte[chunkSize];
+            this.sealed = new byte[chunkSize + OVERHEAD];
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putInt(chunkSize).putInt(0);
+            byte[] fileId = new byte[16];
+            RANDOM.nextBytes(fileId);
+            this.header = header.put(fileId).array();
+            output.write(this.header);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (finished) throw new IOException("Stream finished");
+            while (length > 0) {
+                // A full chunk is sealed only once more data arrives, since the last chunk is sealed differently.
+                if (count == chunk.length) seal(false);
+                int copied = Math.min(length, chunk.length - count);
+                System.arraycopy(bytes, offset, chunk, count, copied);
+                count += copied;
+                offset += copied;
+                length -= copied;
+            }
+        }
+
+        public void finish() throws IOException {
+            if (finished) return;
+            seal(true);
+            finished = true;
+            output.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                finish();
+            } finally {
+                output.close();
+            }
+        }
+
+        private void seal(boolean last) throws IOException {
+            newNonce(sealed);
+            int length;
+            try {
+                Cipher gcm = init(Cipher.ENCRYPT_MODE, sealed);
+                gcm.updateAAD(header);
+                gcm.updateAAD(chunkAad(index, last));
+                length = gcm.doFinal(chunk, 0, count, sealed, NONCE_LENGTH);
+            } catch (Exception e) {
+                throw new RuntimeException("Encryption error");
+            }
+            output.write(sealed, 0, NONCE_LENGTH + length);
+            index++;
+            count = 0;
+        }
+    }
+
+    // Random access to the chunks of an encrypted file. Not thread-safe.
+    public class ChunkReader {
+        private final FileChannel channel;
+        private final byte[] header = new byte[HEADER_SIZE];
+        private final int chunkSize;
+        private final int chunkCount;
+        private final long length;
+        private final ByteBuffer sealed;
+
+        private ChunkReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            readFully(ByteBuffer.wrap(header), 0);
+            ByteBuffer fields = ByteBuffer.wrap(header);
+            if (fields.getInt() != MAGIC) throw new IOException("Not an encrypted vault file");
+            int version = fields.getInt();
+            if (version != VERSION) throw new IOException("Unsupported encrypted vault file version " + version);
+            this.chunkSize = fields.getInt();
+            if (chunkSize <= 0 || chunkSize > MAX_CHUNK_SIZE || chunkSize % BLOCK_SIZE != 0) {
+                throw new IOException("Damaged encrypted vault file header");
+            }
+            long body = channel.size() - HEADER_SIZE;
+            long stride = (long) chunkSize + OVERHEAD;
+            if (body < OVERHEAD) throw new IOException("Damaged encrypted vault file header");
+            long chunks = (body + stride - 1) / stride;
+            long lastLength = body - (chunks - 1) * stride - OVERHEAD;
+            if (lastLength < 0 || chunks > Integer.MAX_VALUE) throw new IOException("Truncated encrypted vault file");
+            this.chunkCount = (int) chunks;
+            this.length = (chunks - 1) * chunkSize + lastLength;
+            this.sealed = ByteBuffer.allocate((int) stride);
+        }
+
+        // Length of the plaintext.
+        public long length() {
+            return length;
+        }
+
+        public int chunkSize() {
+            return chunkSize;
+        }
+
+        public int chunkCount() {
+            return chunkCount;
+        }
+
+        // The plaintext of chunk `index`, which starts at index * chunkSize.
+        public ByteBuffer read(int index) throws IOException {
+            long offset = (long) index * chunkSize;
+            int plainLength = (int) Math.min(chunkSize, length - offset);
+            ByteBuffer plain = ByteBuffer.allocate(plainLength);
+            sealed.clear().limit(plainLength + OVERHEAD);
+            readFully(sealed, HEADER_SIZE + (long) index * (chunkSize + OVERHEAD));
+            sealed.flip();
+            try {
+                Cipher gcm = init(Cipher.DECRYPT_MODE, sealed.array());
+                gcm.updateAAD(header);
+                gcm.updateAAD(chunkAad(index, index == chunkCount - 1));
+                gcm.doFinal(sealed.array(), NONCE_LENGTH, sealed.limit() - NONCE_LENGTH, plain.array(), 0);
+            } catch (AEADBadTagException e) {
+                throw new IOException("Encrypted vault file chunk " + index + " failed authentication");
+            } catch (Exception e) {
+                throw new RuntimeException("Decryption error");
+            }
+            return plain;
+        }
+
+        private void readFully(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) throw new IOException("Truncated encrypted vault file");
+                position += read;
+            }
+        }
+    }
+
+    // The nonce is the first NONCE_LENGTH bytes of `sealed`.
+    private Cipher init(int mode, byte[] sealed) throws Exception {
+        Cipher gcm = cipher.get();
+        gcm.init(mode, key, new GCMParameterSpec(TAG_LENGTH * 8, sealed, 0, NONCE_LENGTH));
+        return gcm;
+    }
+
+    private static void newNonce(byte[] sealed) {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        RANDOM.nextBytes(nonce);
+        System.arraycopy(nonce, 0, sealed, 0, NONCE_LENGTH);
+    }
+
+    private static byte[] lineAad(byte[] journalId, long sequence) {
+        return ByteBuffer.allocate(LINE_AAD.length + journalId.length + Long.BYTES)
+                .put(LINE_AAD).put(journalId).putLong(sequence).array();
+    }
+
+    private static byte[] chunkAad(long index, boolean last) {
+        return ByteBuffer.allocate(9).putLong(index).put((byte) (last ? 1 : 0)).array();
+    }
+}
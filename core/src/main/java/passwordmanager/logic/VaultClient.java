@@ -0,0 +1,267 @@
+package passwordmanager.logic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Client for VaultDaemon. The blocking calls (get, find, ...) send one request and wait for its answer;
+// send() and receive() let a caller keep several requests in flight on the same connection.
+// Not thread-safe: use one client per thread.
+public class VaultClient implements Closeable {
+
+    public static class Entry {
+        private final String id;
+        private final String platform;
+        private final String login;
+        private final char[] password;
+
+        private Entry(String id, String platform, String login, char[] password) {
+            this.id = id;
+            this.platform = platform;
+            this.login = login;
+            this.password = password;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getPlatform() {
+            return platform;
+        }
+
+        public String getLogin() {
+            return login;
+        }
+
+        // Plaintext; the caller should wipe it once it has been used.
+        public char[] getPassword() {
+            return password;
+        }
+    }
+
+    public static class Response {
+        private final int requestId;
+        private final byte status;
+        private final ByteBuffer body;
+
+        private Response(int requestId, byte status, ByteBuffer body) {
+            this.requestId = requestId;
+            this.status = status;
+            this.body = body;
+        }
+
+        public int getRequestId() {
+            return requestId;
+        }
+
+        public byte getStatus() {
+            return status;
+        }
+
+        // The entry of a GET or GET_BY_ID response, or null if there was none.
+        public Entry entry() throws IOException {
+            if (status == VaultDaemon.NOT_FOUND) return null;
+            check();
+            ByteBuffer buffer = body.duplicate();
+            try {
+                String id = VaultDaemon.readString(buffer);
+                String platform = VaultDaemon.readString(buffer);
+                String login = VaultDaemon.readString(buffer);
+                int length = buffer.getShort();
+                ByteBuffer encoded = buffer.slice(buffer.position(), length);
+                CharBuffer chars = StandardCharsets.UTF_8.decode(encoded);
+                char[] password = Arrays.copyOf(chars.array(), chars.limit());
+                Arrays.fill(chars.array(), '\0');
+                return new Entry(id, platform, login, password);
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IOException("Malformed daemon response");
+            }
+        }
+
+        // The matches of a FIND response, without passwords.
+        public List<Entry> entries() throws IOException {
+            check();
+            ByteBuffer buffer = body.duplicate();
+            try {
+                int count = buffer.getInt();
+                List<Entry> entries = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    entries.add(new Entry(VaultDaemon.readString(buffer), null, VaultDaemon.readString(buffer), null));
+                }
+                return entries;
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Malformed daemon response");
+            }
+        }
+
+        // The text of a METRICS response.
+        public String text() throws IOException {
+            check();
+            ByteBuffer buffer = body.duplicate();
+            try {
+                byte[] text = new byte[buffer.getInt()];
+                buffer.get(text);
+                return new String(text, StandardCharsets.UTF_8);
+            } catch (BufferUnderflowException | NegativeArraySizeException e) {
+                throw new IOException("Malformed daemon response");
+            }
+        }
+
+        private void check() throws IOException {
+            if (status != VaultDaemon.OK) throw new IOException("Daemon request failed with status " + status);
+        }
+    }
+
+    private final SocketChannel channel;
+    private final ByteBuffer output = ByteBuffer.allocate(VaultDaemon.MAX_FRAME + 4);
+    private final ByteBuffer input = ByteBuffer.allocate(VaultDaemon.MAX_FRAME + 4);
+    private int nextRequestId;
+
+    private VaultClient(SocketChannel channel) {
+        this.channel = channel;
+        input.flip();
+    }
+
+    public static VaultClient connect(SocketAddress address, String token) throws IOException {
+        SocketChannel channel = address instanceof UnixDomainSocketAddress
+                ? SocketChannel.open(StandardProtocolFamily.UNIX)
+                : SocketChannel.open();
+        try {
+            channel.connect(address);
+            if (address instanceof InetSocketAddress) {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        VaultClient client = new VaultClient(channel);
+        int id = client.send(VaultDaemon.AUTH, token);
+        client.flush();
+        Response response = client.receive();
+        if (response.getRequestId() != id || response.getStatus() != VaultDaemon.OK) {
+            client.close();
+            throw new IOException("The daemon did not accept the token");
+        }
+        return client;
+    }
+
+    public void ping() throws IOException {
+        call(VaultDaemon.PING).check();
+    }
+
+    public Entry get(String platform, String login) throws IOException {
+        return call(VaultDaemon.GET, platform, login).entry();
+    }
+
+    public Entry getById(String id) throws IOException {
+        return call(VaultDaemon.GET_BY_ID, id).entry();
+    }
+
+    public String metrics() throws IOException {
+        return call(VaultDaemon.METRICS).text();
+    }
+
+    public List<Entry> find(String platform, int limit) throws IOException {
+        int id = sendFind(platform, limit);
+        flush();
+        return expect(id).entries();
+    }
+
+    // Queues a request and returns its id; it is sent on flush(), or earlier when the buffer is full.
+    public int send(byte operation, String... arguments) throws IOException {
+        return enqueue(operation, arguments, null);
+    }
+
+    public int sendFind(String platform, int limit) throws IOException {
+        return enqueue(VaultDaemon.FIND, new String[]{platform}, limit);
+    }
+
+    public void flush() throws IOException {
+        output.flip();
+        while (output.hasRemaining()) {
+            channel.write(output);
+        }
+        output.clear();
+    }
+
+    // Reads the next response; responses arrive in the order the requests were sent.
+    public Response receive() throws IOException {
+        fill(4);
+        int length = input.getInt();
+        if (length < 5 || length > VaultDaemon.MAX_FRAME) throw new IOException("Malformed daemon response");
+        fill(length);
+        ByteBuffer frame = input.slice(input.position(), length);
+        input.position(input.position() + length);
+        int requestId = frame.getInt();
+        byte status = frame.get();
+        // Copied, since the input buffer is reused for the next response.
+        ByteBuffer body = ByteBuffer.allocate(frame.remaining()).put(frame).flip();
+        return new Response(requestId, status, body);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private Response call(byte operation, String... arguments) throws IOException {
+        int id = send(operation, arguments);
+        flush();
+        return expect(id);
+    }
+
+    private Response expect(int id) throws IOException {
+        Response response = receive();
+        if (response.getRequestId() != id) {
+            throw new IOException("Expected response " + id + " but got " + response.getRequestId());
+        }
+        return response;
+    }
+
+    private int enqueue(byte operation, String[] arguments, Integer number) throws IOException {
+        int size = 4 + 4 + 1 + 4;
+        for (String argument : arguments) {
+            size += 2 + (argument == null ? 0 : argument.length() * 3);
+        }
+        if (size > VaultDaemon.MAX_FRAME) throw new IOException("Request too large");
+        if (output.remaining() < size) flush();
+
+        int id = nextRequestId++;
+        int start = output.position();
+        output.putInt(0).putInt(id).put(operation);
+        for (String argument : arguments) {
+            VaultDaemon.writeString(output, argument);
+        }
+        if (number != null) output.putInt(number);
+        output.putInt(start, output.position() - start - 4);
+        return id;
+    }
+
+    // Makes sure at least `count` bytes are buffered.
+    private void fill(int count) throws IOException {
+        if (input.remaining() >= count) return;
+        input.compact();
+        while (input.position() < count) {
+            if (channel.read(input) < 0) {
+                input.flip();
+                throw new IOException("The daemon closed the connection");
+            }
+        }
+        input.flip();
+    }
+}
@@ -0,0 +1,385 @@
+package passwordmanager.logic;
+
+import passwordmanager.model.AccountEntry;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Headless lookups for scripts: the vault is unlocked once and served over a Unix domain socket or a loopback port.
+//
+// Every message is a frame: a 4-byte length, then the body.
+//   request   request id (int), operation (byte), arguments
+//   response  request id (int), status (byte), result
+// Strings are a 2-byte length (-1 for null) and UTF-8 bytes. Clients may send many requests without waiting;
+// responses come back in request order. The first request on a connection must be AUTH with the contents of
+// the token file, which only the user running the daemon can read.
+public class VaultDaemon implements Closeable {
+
+    public static final String SOCKET_FILE = "vault.sock";
+    public static final String TOKEN_FILE = "daemon.token";
+
+    public static final byte AUTH = 1;
+    public static final byte PING = 2;
+    // platform, login -> entry
+    public static final byte GET = 3;
+    // id -> entry
+    public static final byte GET_BY_ID = 4;
+    // platform, limit (int) -> count (int), then id and login of each entry
+    public static final byte FIND = 5;
+    // -> the daemon's metrics in the Prometheus text format (int length, then UTF-8)
+    public static final byte METRICS = 6;
+
+    public static final byte OK = 0;
+    public static final byte NOT_FOUND = 1;
+    public static final byte BAD_REQUEST = 2;
+    public static final byte DENIED = 3;
+    public static final byte TOO_LARGE = 4;
+    public static final byte ERROR = 5;
+
+    // Largest frame body either side sends; an entry is id, platform, login and password.
+    public static final int MAX_FRAME = 64 * 1024;
+    private static final int OUTPUT_BUFFER_SIZE = 4 * (MAX_FRAME + 4);
+    private static final int TOKEN_BYTES = 32;
+    private static final byte[] ZEROS = new byte[4096];
+    // File type bits of a unix mode, and the type of a socket.
+    private static final int S_IFMT = 0170000;
+    private static final int S_IFSOCK = 0140000;
+    private static final LatencyHistogram REQUEST_TIME = Metrics.timer("daemon.request");
+
+    private final PasswordManager passwordManager;
+    private final CryptoSession session;
+    private final ServerSocketChannel server;
+    private final SocketAddress address;
+    private final File tokenFile;
+    private final byte[] token;
+    private final ExecutorService connections = newConnectionExecutor();
+    private final AtomicLong requests = new AtomicLong();
+
+    private VaultDaemon(PasswordManager passwordManager, CryptoSession session, ServerSocketChannel server,
+                        SocketAddress address, File tokenFile, byte[] token) {
+        this.passwordManager = passwordManager;
+        this.session = session;
+        this.server = server;
+        this.address = address;
+        this.tokenFile = tokenFile;
+        this.token = token;
+    }
+
+    // Binds the socket and writes a fresh token file; serve() then accepts connections.
+    public static VaultDaemon bind(SocketAddress address, PasswordManager passwordManager, CryptoSession session,
+                                   File tokenFile) throws IOException {
+        ServerSocketChannel server;
+        if (address instanceof UnixDomainSocketAddress unixAddress) {
+            removeStaleSocket(unixAddress);
+            server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            server.bind(address);
+            restrictToOwner(unixAddress.getPath());
+        } else {
+            server = ServerSocketChannel.open();
+            server.bind(address);
+        }
+
+        byte[] token = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(token);
+        try {
+            writeToken(tokenFile, token);
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        return new VaultDaemon(passwordManager, session, server, server.getLocalAddress(), tokenFile, token);
+    }
+
+    // A socket file left behind by a daemon that was killed would make bind() fail, so it is removed. Anything else
+    // at the path, or a socket another daemon still answers on, is left alone and reported.
+    private static void removeStaleSocket(UnixDomainSocketAddress address) throws IOException {
+        Path path = address.getPath();
+        if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) return;
+        if (!isSocket(path)) throw new IOException("Not a socket, refusing to replace it: " + path);
+        try {
+            SocketChannel.open(address).close();
+        } catch (ConnectException e) {
+            Files.deleteIfExists(path);
+            return;
+        }
+        throw new IOException("Another daemon is listening on " + path);
+    }
+
+    private static boolean isSocket(Path path) throws IOException {
+        try {
+            int mode = (Integer) Files.getAttribute(path, "unix:mode", LinkOption.NOFOLLOW_LINKS);
+            return (mode & S_IFMT) == S_IFSOCK;
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            // Without the unix view (Windows), a socket is at least neither a file, a directory nor a link.
+            return Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS).isOther();
+        }
+    }
+
+    // A number is a loopback port; anything else is the path of a Unix domain socket.
+    public static SocketAddress parseAddress(String value) {
+        if (value.matches("\\d{1,5}")) {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(value));
+        }
+        return UnixDomainSocketAddress.of(value);
+    }
+
+    public static String readToken(File tokenFile) throws IOException {
+        return Files.readString(tokenFile.toPath()).trim();
+    }
+
+    public SocketAddress getAddress() {
+        return address;
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    // Accepts connections until close() is called; each connection gets its own thread.
+    public void serve() throws IOException {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            }
+            connections.execute(() -> handle(channel));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        connections.shutdownNow();
+        try {
+            connections.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (address instanceof UnixDomainSocketAddress unixAddress) {
+            Files.deleteIfExists(unixAddress.getPath());
+        }
+        if (tokenFile.exists() && !tokenFile.delete()) {
+            System.err.println("Cannot delete " + tokenFile);
+        }
+    }
+
+    // Reads whatever the client has sent, answers every complete request in it, and writes the answers back
+    // together, so a client that pipelines requests gets one write per batch instead of one per request.
+    private void handle(SocketChannel channel) {
+        ByteBuffer input = ByteBuffer.allocate(MAX_FRAME + 4);
+        // Off the heap, since responses hold plaintext passwords.
+        ByteBuffer output = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+        boolean authenticated = false;
+        try (channel) {
+            if (channel.getLocalAddress() instanceof InetSocketAddress) {
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            }
+            while (channel.read(input) >= 0) {
+                input.flip();
+                while (input.remaining() >= 4) {
+                    int length = input.getInt(input.position());
+                    if (length < 5 || length > MAX_FRAME) return;
+                    if (input.remaining() < 4 + length) break;
+
+                    ByteBuffer request = input.slice(input.position() + 4, length);
+                    input.position(input.position() + 4 + length);
+                    if (output.remaining() < MAX_FRAME + 4) drain(channel, output);
+
+                    int requestId = request.getInt();
+                    byte operation = request.get();
+                    if (!authenticated) {
+                        authenticated = operation == AUTH && authenticate(request);
+                        respond(output, requestId, authenticated ? OK : DENIED);
+                        if (!authenticated) {
+                            drain(channel, output);
+                            return;
+                        }
+                        continue;
+                    }
+                    answer(request, requestId, operation, output);
+                    requests.incrementAndGet();
+                }
+                input.compact();
+                drain(channel, output);
+            }
+        } catch (IOException e) {
+            // The client went away.
+        } finally {
+            // Responses may have held plaintext passwords.
+            output.clear();
+            while (output.hasRemaining()) {
+                output.put(ZEROS, 0, Math.min(ZEROS.length, output.remaining()));
+            }
+        }
+    }
+
+    private void answer(ByteBuffer request, int requestId, byte operation, ByteBuffer output) {
+        long startNanos = System.nanoTime();
+        int start = output.position();
+        ByteBuffer response = output.slice(start + 4, MAX_FRAME);
+        try {
+            response.putInt(requestId);
+            switch (operation) {
+                case PING -> response.put(OK);
+                case GET -> writeEntry(response, passwordManager.findByPlatformAndLogin(
+                        readString(request), readString(request)));
+                case GET_BY_ID -> writeEntry(response, passwordManager.findById(readString(request)));
+                case FIND -> {
+                    String platform = readString(request);
+                    int limit = request.getInt();
+                    List<AccountEntry> entries = passwordManager.findByPlatform(platform);
+                    int count = Math.min(entries.size(), Math.max(0, limit));
+                    response.put(OK).putInt(count);
+                    for (int i = 0; i < count; i++) {
+                        writeString(response, entries.get(i).getId());
+                        writeString(response, entries.get(i).getLogin());
+                    }
+                }
+                case METRICS -> {
+                    byte[] text = Metrics.dump().getBytes(StandardCharsets.UTF_8);
+                    response.put(OK).putInt(text.length).put(text);
+                }
+                default -> response.put(BAD_REQUEST);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            response.clear();
+            response.putInt(requestId).put(BAD_REQUEST);
+        } catch (BufferOverflowException e) {
+            response.clear();
+            response.putInt(requestId).put(TOO_LARGE);
+        } catch (RuntimeException e) {
+            System.err.println("Daemon request error: " + e.getMessage());
+            response.clear();
+            response.putInt(requestId).put(ERROR);
+        }
+        output.putInt(start, response.position());
+        output.position(start + 4 + response.position());
+        REQUEST_TIME.recordSince(startNanos);
+    }
+
+    private void writeEntry(ByteBuffer response, AccountEntry entry) {
+        if (entry == null) {
+            response.put(NOT_FOUND);
+            return;
+        }
+        response.put(OK);
+        writeString(response, entry.getId());
+        writeString(response, entry.getPlatform());
+        writeString(response, entry.getLogin());
+
+        // Copied from the off-heap secret straight into the response, which is wiped right after.
+        try (SecretBuffer password = session.decryptSecret(entry.getPassword())) {
+            // The length goes out as a short, like the strings (see writeString).
+            if (password.length() > Short.MAX_VALUE || password.length() + 2 > response.remaining()) {
+                throw new BufferOverflowException();
+            }
+            response.putShort((short) password.length());
+            response.put(password.bytes());
+        }
+    }
+
+    private boolean authenticate(ByteBuffer request) {
+        try {
+            String presented = readString(request);
+            return presented != null && MessageDigest.isEqual(
+                    HexFormat.of().parseHex(presented), token);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static void respond(ByteBuffer output, int requestId, byte status) {
+        output.putInt(5).putInt(requestId).put(status);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length == -1) return null;
+        if (length < 0) throw new IllegalArgumentException("Bad string length " + length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) throw new BufferOverflowException();
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static void drain(SocketChannel channel, ByteBuffer output) throws IOException {
+        output.flip();
+        while (output.hasRemaining()) {
+            channel.write(output);
+        }
+        output.clear();
+    }
+
+    // Virtual threads where the runtime has them (Java 21+), so thousands of idle connections cost little;
+    // on Java 17 a cached pool of daemon threads does the same job.
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "vault-daemon-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private static void writeToken(File tokenFile, byte[] token) throws IOException {
+        Path path = tokenFile.toPath();
+        Files.deleteIfExists(path);
+        try {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(path);
+        }
+        Files.writeString(path, HexFormat.of().formatHex(token) + "\n");
+    }
+
+    private static void restrictToOwner(Path path) {
+        // Not every platform has POSIX permissions; the token still keeps other users out.
+        try {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException | IOException e) {
+            // ignored
+        }
+    }
+}
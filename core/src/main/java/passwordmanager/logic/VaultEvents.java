@@ -0,0 +1,118 @@
+package passwordmanager.logic;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+// Flight Recorder events of the vault. They cost next to nothing until a recording is started, for example with
+//   jcmd <pid> JFR.start name=vault filename=vault.jfr
+// and show up under "Password Manager" in JDK Mission Control.
+public final class VaultEvents {
+
+    private VaultEvents() {
+    }
+
+    @Name("passwordmanager.VaultIo")
+    @Label("Vault I/O")
+    @Category("Password Manager")
+    @Description("Reading or writing the vault file or the journal")
+    public static class Io extends Event {
+        @Label("Operation")
+        public String operation;
+
+        @Label("File")
+        public String file;
+
+        @Label("Entries")
+        public long entries;
+
+        @Label("Succeeded")
+        public boolean succeeded;
+    }
+
+    // Single operations take microseconds, so only slow ones are recorded unless the threshold is lowered.
+    @Name("passwordmanager.Crypto")
+    @Label("Password Encryption")
+    @Category("Password Manager")
+    @Threshold("1 ms")
+    @StackTrace(false)
+    public static class Crypto extends Event {
+        @Label("Operation")
+        public String operation;
+    }
+
+    @Name("passwordmanager.CryptoFailure")
+    @Label("Password Encryption Failure")
+    @Category("Password Manager")
+    @Description("The cause behind a generic encryption or decryption error")
+    public static class CryptoFailure extends Event {
+        @Label("Operation")
+        public String operation;
+
+        @Label("Cause")
+        public String cause;
+    }
+
+    @Name("passwordmanager.MasterPassword")
+    @Label("Master Password Check")
+    @Category("Password Manager")
+    public static class MasterPassword extends Event {
+        @Label("Scheme")
+        public String scheme;
+
+        @Label("Accepted")
+        public boolean accepted;
+
+        @Label("Iterations")
+        public int iterations;
+    }
+
+    @Name("passwordmanager.UiRefresh")
+    @Label("Account List Refresh")
+    @Category("Password Manager")
+    @StackTrace(false)
+    public static class UiRefresh extends Event {
+        @Label("Change")
+        public String change;
+
+        @Label("Rows")
+        public long rows;
+    }
+
+    // One per histogram of Metrics at the start and end of every chunk, so a dumped recording also carries the
+    // percentiles since the process started.
+    @Name("passwordmanager.LatencySummary")
+    @Label("Latency Summary")
+    @Category("Password Manager")
+    @Period("everyChunk")
+    @StackTrace(false)
+    public static class LatencySummary extends Event {
+        @Label("Metric")
+        public String metric;
+
+        @Label("Count")
+        public long count;
+
+        @Label("p50")
+        @Timespan
+        public long p50;
+
+        @Label("p99")
+        @Timespan
+        public long p99;
+
+        @Label("p99.9")
+        @Timespan
+        public long p999;
+
+        @Label("Max")
+        @Timespan
+        public long max;
+    }
+}
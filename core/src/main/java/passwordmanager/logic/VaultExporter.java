@@ -0,0 +1,237 @@
+package passwordmanager.logic;
+
+import passwordmanager.model.AccountEntry;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Decrypts in parallel chunks but writes them strictly in vault order, with a bounded number of chunks in flight.
+public class VaultExporter {
+
+    public static final String CSV_FILE = "password_export.csv";
+    public static final String JSON_FILE = "password_export_encrypted.json";
+
+    public interface Progress {
+        void update(long done, long total);
+    }
+
+    private static final int CHUNK_SIZE = 512;
+    private static final byte[] CSV_HEADER = "Platform,Login,Password\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final CryptoSession session;
+    private final SecretCache secrets;
+    private final int threads;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    public VaultExporter(CryptoSession session) {
+        this(session, Runtime.getRuntime().availableProcessors());
+    }
+
+    public VaultExporter(CryptoSession session, int threads) {
+        this(session, null, threads);
+    }
+
+    // Plaintexts already in the cache are reused instead of decrypted again.
+    public VaultExporter(CryptoSession session, SecretCache secrets) {
+        this(session, secrets, Runtime.getRuntime().availableProcessors());
+    }
+
+    public VaultExporter(CryptoSession session, SecretCache secrets, int threads) {
+        this.session = session;
+        this.secrets = secrets;
+        this.threads = Math.max(1, threads);
+    }
+
+    public void cancel() {
+        cancelled.set(true);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    public long exportCsv(List<AccountEntry> entries, File target, Progress progress) throws IOException {
+        return writeAtomically(target, output -> exportCsv(entries, output.getChannel(), progress));
+    }
+
+    public long exportEncryptedJson(List<AccountEntry> entries, File target, Progress progress) throws IOException {
+        return writeAtomically(target, output -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+            long count = exportEncryptedJson(entries, writer, progress);
+            writer.flush();
+            return count;
+        });
+    }
+
+    // Passwords are decrypted into SecretBuffers and each chunk of lines is built in one, so no plaintext becomes
+    // a String or lands on the heap; a chunk is wiped as soon as it has been written.
+    public long exportCsv(List<AccountEntry> entries, WritableByteChannel channel, Progress progress) throws IOException {
+        int total = entries.size();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "vault-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<SecretBuffer>> inFlight = new ArrayDeque<>();
+        int next = 0;
+        long done = 0;
+
+        try {
+            writeFully(channel, ByteBuffer.wrap(CSV_HEADER));
+            while (next < total || !inFlight.isEmpty()) {
+                while (next < total && inFlight.size() < threads * 2) {
+                    List<AccountEntry> chunk = entries.subList(next, Math.min(total, next + CHUNK_SIZE));
+                    inFlight.add(workers.submit(() -> csvChunk(chunk)));
+                    next += chunk.size();
+                }
+                checkCancelled();
+                try (SecretBuffer lines = await(inFlight.poll())) {
+                    writeFully(channel, lines.bytes());
+                }
+                done = Math.min(total, done + CHUNK_SIZE);
+                progress.update(done, total);
+            }
+            return total;
+        } finally {
+            // Chunks decrypted but never written are wiped too.
+            for (Future<SecretBuffer> future : inFlight) {
+                discard(future);
+            }
+            workers.shutdownNow();
+        }
+    }
+
+    public long exportEncryptedJson(List<AccountEntry> entries, Writer writer, Progress progress) throws IOException {
+        int total = entries.size();
+        VaultWriter vaultWriter = new VaultWriter(writer);
+        for (int i = 0; i < total; i++) {
+            vaultWriter.write(entries.get(i));
+            if ((i + 1) % CHUNK_SIZE == 0 || i + 1 == total) {
+                checkCancelled();
+                progress.update(i + 1, total);
+            }
+        }
+        vaultWriter.finish();
+        return total;
+    }
+
+    public static String escapeCsv(String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                quote = true;
+                break;
+            }
+        }
+        if (!quote) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private SecretBuffer csvChunk(List<AccountEntry> chunk) {
+        SecretBuffer lines = SecretBuffer.allocate(chunk.size() * 64);
+        try {
+            for (AccountEntry entry : chunk) {
+                if (cancelled.get()) break;
+                String fields = escapeCsv(entry.getPlatform()) + ',' + escapeCsv(entry.getLogin()) + ',';
+                lines.append(ByteBuffer.wrap(fields.getBytes(StandardCharsets.UTF_8)));
+                try (SecretBuffer password = decrypt(entry)) {
+                    appendEscaped(lines, password.bytes());
+                }
+                lines.append((byte) '\n');
+            }
+            return lines;
+        } catch (RuntimeException e) {
+            lines.close();
+            throw e;
+        }
+    }
+
+    // escapeCsv on UTF-8 bytes: the characters that need quoting are ASCII, so never part of a multi-byte sequence.
+    private static void appendEscaped(SecretBuffer lines, ByteBuffer value) {
+        boolean quote = false;
+        for (int i = value.position(); i < value.limit(); i++) {
+            byte b = value.get(i);
+            if (b == ',' || b == '"' || b == '\n' || b == '\r') {
+                quote = true;
+                break;
+            }
+        }
+        if (!quote) {
+            lines.append(value);
+            return;
+        }
+        lines.append((byte) '"');
+        for (int i = value.position(); i < value.limit(); i++) {
+            byte b = value.get(i);
+            if (b == '"') lines.append((byte) '"');
+            lines.append(b);
+        }
+        lines.append((byte) '"');
+    }
+
+    private SecretBuffer decrypt(AccountEntry entry) {
+        return secrets != null ? secrets.peekOrDecrypt(entry) : session.decryptSecret(entry.getPassword());
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private static void discard(Future<SecretBuffer> future) {
+        try {
+            future.get().close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException e) {
+            // nothing to wipe
+        }
+    }
+
+    private SecretBuffer await(Future<SecretBuffer> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Export interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Export failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void checkCancelled() {
+        if (cancelled.get()) throw new CancellationException("Export cancelled");
+    }
+
+    private interface OutputTask {
+        long run(FileOutputStream output) throws IOException;
+    }
+
+    // Writes to a temporary file first, so a cancelled or failed export never leaves a partial file behind.
+    private long writeAtomically(File target, OutputTask task) throws IOException {
+        File temp = new File(target.getPath() + ".tmp");
+        try {
+            long count;
+            try (FileOutputStream output = new FileOutputStream(temp)) {
+                count = task.run(output);
+            }
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return count;
+        } catch (IOException | RuntimeException e) {
+            if (temp.exists() && !temp.delete()) {
+                System.err.println("Export error: cannot delete " + temp);
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,477 @@
+package passwordmanager.logic;
+
+import passwordmanager.model.AccountEntry;
+import passwordmanager.model.AccountEntryCodec;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Binary vault snapshot, memory-mapped so single entries can be looked up, rewritten or deleted in place.
+//
+//   header   magic, version, record count, deleted count, end of the last record
+//   index    one fixed-size slot per record (128-bit id key, record position), sorted by key
+//   records  in vault order: capacity, length, CRC-32 and flags, then the encoded entry and some spare room
+//
+// A record is rewritten in place when the new encoding fits its capacity. Its checksum is written last, so a
+// record torn by a crash is detected and skipped; the journal that is still on disk then restores it.
+//
+// With a VaultCipher the same layout is stored encrypted (see VaultCipher). Such a file is decrypted chunk by chunk
+// as its bytes are first needed, so a full read is one streaming pass and a lookup decrypts only the chunks on its
+// search path. It is never changed in place: a rewritten chunk torn by a crash would lose its neighbours too.
+public class VaultFile implements Closeable {
+
+    private static final int MAGIC = 0x504D5646;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_SIZE = 24;
+    private static final int RECORD_HEADER_SIZE = 16;
+    private static final int DELETED = 1;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int SPARE_BYTES = 16;
+    private static final byte[] PADDING = new byte[SPARE_BYTES];
+
+    private static class Slot {
+        private final long high;
+        private final long low;
+        private final long position;
+
+        private Slot(UUID key, long position) {
+            this.high = key.getMostSignificantBits();
+            this.low = key.getLeastSignificantBits();
+            this.position = position;
+        }
+    }
+
+    private static final Comparator<Slot> SLOT_ORDER = (a, b) -> compareKeys(a.high, a.low, b.high, b.low);
+
+    private final FileChannel channel;
+    // A plain file is mapped; an encrypted one is read through its decrypted chunks, each kept once read.
+    private final MappedByteBuffer buffer;
+    private final VaultCipher.ChunkReader chunks;
+    private final ByteBuffer[] pages;
+    private final long length;
+    private final int count;
+    private final long recordsStart;
+    private final long recordsEnd;
+    // Only openForUpdate maps the file writable, so snapshots the process may not write to still load.
+    private final boolean writable;
+    private int deleted;
+    private int skipped;
+
+    private VaultFile(File file, VaultCipher cipher, boolean writable) throws IOException {
+        boolean encrypted = VaultCipher.isEncrypted(file);
+        if (encrypted && cipher == null) {
+            throw new IOException("The vault file is encrypted; unlock the vault to read it: " + file);
+        }
+        this.writable = writable && !encrypted;
+        this.channel = this.writable
+                ? FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            this.chunks = encrypted ? cipher.open(channel) : null;
+        } catch (IOException e) {
+            close();
+            throw new IOException(e.getMessage() + ": " + file);
+        }
+        this.length = encrypted ? chunks.length() : channel.size();
+        if (length > Integer.MAX_VALUE) {
+            close();
+            throw new IOException("Vault file too large to map: " + file);
+        }
+        if (length < HEADER_SIZE) {
+            close();
+            throw new IOException("Not a vault file: " + file);
+        }
+        this.buffer = encrypted ? null
+                : channel.map(this.writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, length);
+        this.pages = encrypted ? new ByteBuffer[chunks.chunkCount()] : null;
+        ByteBuffer header;
+        try {
+            header = bytes(0, HEADER_SIZE);
+        } catch (UncheckedIOException e) {
+            close();
+            throw new IOException(e.getCause().getMessage() + ": " + file);
+        }
+        if (header.getInt(0) != MAGIC) {
+            close();
+            throw new IOException("Not a vault file: " + file);
+        }
+        if (header.getInt(4) != VERSION) {
+            close();
+            throw new IOException("Unsupported vault file version " + header.getInt(4) + ": " + file);
+        }
+        this.count = header.getInt(8);
+        this.deleted = header.getInt(12);
+        this.recordsStart = HEADER_SIZE + (long) count * SLOT_SIZE;
+        this.recordsEnd = header.getLong(16);
+        if (count < 0 || recordsStart > recordsEnd || recordsEnd > length) {
+            close();
+            throw new IOException("Damaged vault file header: " + file);
+        }
+    }
+
+    public static VaultFile open(File file) throws IOException {
+        return new VaultFile(file, null, false);
+    }
+
+    // Opens a plain or an encrypted file for reading; the cipher is only needed for the latter.
+    public static VaultFile open(File file, VaultCipher cipher) throws IOException {
+        return new VaultFile(file, cipher, false);
+    }
+
+    // Opens a plain file for update() and remove(); an encrypted one opens read-only.
+    public static VaultFile openForUpdate(File file) throws IOException {
+        return new VaultFile(file, null, true);
+    }
+
+    // Writes a complete file; the caller renames it into place once it is on disk.
+    public static void write(File file, Collection<AccountEntry> entries) throws IOException {
+        write(file, entries, null);
+    }
+
+    // Encrypted when a cipher is given.
+    public static void write(File file, Collection<AccountEntry> entries, VaultCipher cipher) throws IOException {
+        if (cipher != null) {
+            writeEncrypted(file, entries, cipher);
+            return;
+        }
+        int count = entries.size();
+        Slot[] slots = new Slot[count];
+        long recordsStart = HEADER_SIZE + (long) count * SLOT_SIZE;
+        long position = recordsStart;
+
+        try (FileChannel output = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer chunk = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            CRC32 crc = new CRC32();
+            output.position(recordsStart);
+            int written = 0;
+            for (AccountEntry entry : entries) {
+                byte[] encoded = AccountEntryCodec.encode(entry);
+                int capacity = capacityFor(encoded.length);
+                int size = RECORD_HEADER_SIZE + capacity;
+                if (chunk.remaining() < size) {
+                    drain(output, chunk);
+                    if (chunk.capacity() < size) chunk = ByteBuffer.allocate(size);
+                }
+                putRecord(chunk, encoded, crc);
+
+                slots[written++] = new Slot(key(entry.getId()), position);
+                position += size;
+                if (position > Integer.MAX_VALUE) {
+                    throw new IOException("Vault too large for a single mapped file");
+                }
+            }
+            drain(output, chunk);
+
+            Arrays.sort(slots, SLOT_ORDER);
+            ByteBuffer index = ByteBuffer.allocate(count * SLOT_SIZE);
+            for (Slot slot : slots) {
+                index.putLong(slot.high).putLong(slot.low).putLong(slot.position);
+            }
+            index.flip();
+            output.write(index, HEADER_SIZE);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0).putLong(position);
+            header.clear();
+            output.write(header, 0);
+            output.force(true);
+        }
+    }
+
+    // The encrypted stream can only be written front to back, so the record positions for the index are worked
+    // out in a first pass and the records encoded again in the second.
+    private static void writeEncrypted(File file, Collection<AccountEntry> entries, VaultCipher cipher)
+            throws IOException {
+        int count = entries.size();
+        Slot[] slots = new Slot[count];
+        long position = HEADER_SIZE + (long) count * SLOT_SIZE;
+        int written = 0;
+        for (AccountEntry entry : entries) {
+            slots[written++] = new Slot(key(entry.getId()), position);
+            position += RECORD_HEADER_SIZE + capacityFor(AccountEntryCodec.encode(entry).length);
+            if (position > Integer.MAX_VALUE) {
+                throw new IOException("Vault too large for a single file");
+            }
+        }
+        long recordsEnd = position;
+        Arrays.sort(slots, SLOT_ORDER);
+
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            VaultCipher.EncryptingStream encrypted = cipher.encrypt(output);
+            ByteBuffer chunk = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            chunk.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(0).putLong(recordsEnd).putLong(0);
+            for (Slot slot : slots) {
+                if (chunk.remaining() < SLOT_SIZE) drain(encrypted, chunk);
+                chunk.putLong(slot.high).putLong(slot.low).putLong(slot.position);
+            }
+            CRC32 crc = new CRC32();
+            for (AccountEntry entry : entries) {
+                byte[] encoded = AccountEntryCodec.encode(entry);
+                int size = RECORD_HEADER_SIZE + capacityFor(encoded.length);
+                if (chunk.remaining() < size) {
+                    drain(encrypted, chunk);
+                    if (chunk.capacity() < size) chunk = ByteBuffer.allocate(size);
+                }
+                putRecord(chunk, encoded, crc);
+            }
+            drain(encrypted, chunk);
+            encrypted.finish();
+            output.getChannel().force(true);
+        }
+    }
+
+    public int size() {
+        return count - deleted;
+    }
+
+    public int getDeletedCount() {
+        return deleted;
+    }
+
+    // Records skipped as damaged so far.
+    public int getSkippedCount() {
+        return skipped;
+    }
+
+    // Reads every live record in vault order. Damaged records are reported and skipped.
+    public void forEach(Consumer<AccountEntry> consumer) throws IOException {
+        long position = recordsStart;
+        try {
+            while (position < recordsEnd) {
+                int capacity = intAt(position);
+                if (capacity < 0 || position + RECORD_HEADER_SIZE + capacity > recordsEnd) {
+                    throw new IOException("Damaged vault record at offset " + position);
+                }
+                if ((intAt(position + 12) & DELETED) == 0) {
+                    AccountEntry entry = decode(position);
+                    if (entry != null) consumer.accept(entry);
+                }
+                releasePagesBefore(position);
+                position += RECORD_HEADER_SIZE + capacity;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Binary search over the index, so only the slots on the search path and the record itself are touched.
+    public AccountEntry read(String id) {
+        long position = locate(id);
+        return position < 0 ? null : decode(position);
+    }
+
+    // Rewrites the record in place; returns false when the entry is not in the file or no longer fits, or the file
+    // was not opened for update.
+    public boolean update(AccountEntry entry) {
+        if (!writable) return false;
+        long position = locate(entry.getId());
+        if (position < 0) return false;
+
+        byte[] encoded = AccountEntryCodec.encode(entry);
+        if (encoded.length > buffer.getInt((int) position)) return false;
+
+        CRC32 crc = new CRC32();
+        crc.update(encoded);
+        buffer.put((int) position + RECORD_HEADER_SIZE, encoded);
+        buffer.putInt((int) position + 4, encoded.length);
+        buffer.putInt((int) position + 8, (int) crc.getValue());
+        return true;
+    }
+
+    public boolean remove(String id) {
+        if (!writable) return false;
+        long position = locate(id);
+        if (position < 0) return false;
+
+        int flags = buffer.getInt((int) position + 12);
+        buffer.putInt((int) position + 12, flags | DELETED);
+        buffer.putInt(12, ++deleted);
+        return true;
+    }
+
+    // Makes in-place changes durable.
+    public void force() {
+        if (writable) buffer.force();
+    }
+
+    // Java has no way to unmap a buffer: the mapping goes away only once the buffer is garbage collected. Until
+    // then Windows refuses to replace or delete the file, so a snapshot saved there soon after a read can fail;
+    // the journal keeps the changes until a later save gets through.
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Position of the live record with this id, or -1.
+    private long locate(String id) {
+        if (id == null) return -1;
+        UUID key = key(id);
+        long high = key.getMostSignificantBits();
+        long low = key.getLeastSignificantBits();
+
+        int lowIndex = 0;
+        int highIndex = count;
+        while (lowIndex < highIndex) {
+            int middle = (lowIndex + highIndex) >>> 1;
+            long slot = HEADER_SIZE + (long) middle * SLOT_SIZE;
+            if (compareKeys(longAt(slot), longAt(slot + 8), high, low) < 0) {
+                lowIndex = middle + 1;
+            } else {
+                highIndex = middle;
+            }
+        }
+        // Keys of ids that are not UUIDs are hashes, so equal keys are checked against the stored id.
+        for (int i = lowIndex; i < count; i++) {
+            long slot = HEADER_SIZE + (long) i * SLOT_SIZE;
+            if (longAt(slot) != high || longAt(slot + 8) != low) break;
+            long position = longAt(slot + 16);
+            if ((intAt(position + 12) & DELETED) != 0) continue;
+            AccountEntry entry = decode(position);
+            if (entry != null && id.equals(entry.getId())) return position;
+        }
+        return -1;
+    }
+
+    private AccountEntry decode(long position) {
+        int capacity = intAt(position);
+        int length = intAt(position + 4);
+        if (length < 0 || length > capacity) {
+            skipped++;
+            System.err.println("Skipping damaged vault record at offset " + position);
+            return null;
+        }
+        ByteBuffer encoded = bytes(position + RECORD_HEADER_SIZE, length);
+        CRC32 crc = new CRC32();
+        crc.update(encoded.duplicate());
+        if ((int) crc.getValue() != intAt(position + 8)) {
+            skipped++;
+            System.err.println("Skipping damaged vault record at offset " + position);
+            return null;
+        }
+        try {
+            return AccountEntryCodec.decode(encoded);
+        } catch (RuntimeException e) {
+            skipped++;
+            System.err.println("Skipping damaged vault record at offset " + position + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private int intAt(long position) {
+        if (chunks == null) return buffer.getInt((int) position);
+        int offset = (int) (position % chunks.chunkSize());
+        if (position >= 0 && offset + 4 <= chunks.chunkSize() && position + 4 <= length) {
+            return page((int) (position / chunks.chunkSize())).getInt(offset);
+        }
+        return bytes(position, 4).getInt(0);
+    }
+
+    private long longAt(long position) {
+        if (chunks == null) return buffer.getLong((int) position);
+        int offset = (int) (position % chunks.chunkSize());
+        if (position >= 0 && offset + 8 <= chunks.chunkSize() && position + 8 <= length) {
+            return page((int) (position / chunks.chunkSize())).getLong(offset);
+        }
+        return bytes(position, 8).getLong(0);
+    }
+
+    // The bytes at this position, as a buffer starting at index 0. For an encrypted file the chunks holding them
+    // are decrypted first; one that fails to authenticate means the file was damaged or tampered with, so reading
+    // stops rather than skipping records.
+    private ByteBuffer bytes(long position, int length) {
+        if (chunks == null) return buffer.slice((int) position, length);
+        if (position < 0 || length < 0 || position + length > this.length) {
+            throw new UncheckedIOException(new IOException("Damaged vault record at offset " + position));
+        }
+        int chunkSize = chunks.chunkSize();
+        int index = (int) (position / chunkSize);
+        int offset = (int) (position % chunkSize);
+        if (offset + length <= chunkSize) return page(index).slice(offset, length);
+
+        ByteBuffer joined = ByteBuffer.allocate(length);
+        while (joined.hasRemaining()) {
+            ByteBuffer page = page(index++);
+            int copied = Math.min(joined.remaining(), page.limit() - offset);
+            joined.put(page.slice(offset, copied));
+            offset = 0;
+        }
+        return joined.flip();
+    }
+
+    private ByteBuffer page(int index) {
+        if (pages[index] == null) {
+            try {
+                pages[index] = chunks.read(index);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return pages[index];
+    }
+
+    // A full read moves front to back, so the chunks it has passed are dropped and it holds one at a time.
+    private void releasePagesBefore(long position) {
+        if (pages == null) return;
+        int index = (int) (position / chunks.chunkSize());
+        if (index > 0) pages[index - 1] = null;
+    }
+
+    private static void putRecord(ByteBuffer chunk, byte[] encoded, CRC32 crc) {
+        int capacity = capacityFor(encoded.length);
+        crc.reset();
+        crc.update(encoded);
+        chunk.putInt(capacity).putInt(encoded.length).putInt((int) crc.getValue()).putInt(0);
+        chunk.put(encoded);
+        chunk.put(PADDING, 0, capacity - encoded.length);
+    }
+
+    // Room for the ciphertext to grow by one cipher block, so most edits can be written in place.
+    private static int capacityFor(int length) {
+        return length + SPARE_BYTES;
+    }
+
+    // Ids are random UUIDs and are keyed by their 128 bits; any other id is keyed by a name-based UUID of it.
+    private static UUID key(String id) {
+        try {
+            UUID uuid = UUID.fromString(id);
+            if (uuid.toString().equals(id)) return uuid;
+        } catch (IllegalArgumentException e) {
+            // not a UUID
+        }
+        return UUID.nameUUIDFromBytes(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static int compareKeys(long highA, long lowA, long highB, long lowB) {
+        int result = Long.compare(highA, highB);
+        return result != 0 ? result : Long.compare(lowA, lowB);
+    }
+
+    private static void drain(FileChannel output, ByteBuffer chunk) throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            output.write(chunk);
+        }
+        chunk.clear();
+    }
+
+    private static void drain(VaultCipher.EncryptingStream output, ByteBuffer chunk) throws IOException {
+        output.write(chunk.array(), 0, chunk.position());
+        chunk.clear();
+    }
+}
@@ -0,0 +1,70 @@
+package passwordmanager.logic;
+
+import passwordmanager.model.AccountEntry;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+// Estimated heap held by the entries of a vault, next to what the same entries would take as four plain
+// Strings each (separate platform copies and Base64 password text). Vault indexes are not included.
+public class VaultFootprint {
+
+    private final long entries;
+    private final long platforms;
+    private final long compactBytes;
+    private final long plainBytes;
+
+    private VaultFootprint(long entries, long platforms, long compactBytes, long plainBytes) {
+        this.entries = entries;
+        this.platforms = platforms;
+        this.compactBytes = compactBytes;
+        this.plainBytes = plainBytes;
+    }
+
+    public static VaultFootprint of(Collection<AccountEntry> entries) {
+        Set<String> platforms = Collections.newSetFromMap(new IdentityHashMap<>());
+        long compact = 0;
+        long plain = 0;
+        for (AccountEntry entry : entries) {
+            compact += entry.estimateSize();
+            if (platforms.add(entry.getPlatform())) {
+                compact += AccountEntry.estimateSize(entry.getPlatform());
+            }
+            plain += 32 + AccountEntry.estimateSize(entry.getId()) + AccountEntry.estimateSize(entry.getPlatform())
+                    + AccountEntry.estimateSize(entry.getLogin()) + AccountEntry.estimateSize(entry.getPassword());
+        }
+        return new VaultFootprint(entries.size(), platforms.size(), compact, plain);
+    }
+
+    public long getEntries() {
+        return entries;
+    }
+
+    public long getPlatforms() {
+        return platforms;
+    }
+
+    public long getCompactBytes() {
+        return compactBytes;
+    }
+
+    public long getPlainBytes() {
+        return plainBytes;
+    }
+
+    @Override
+    public String toString() {
+        long perEntry = entries == 0 ? 0 : compactBytes / entries;
+        long plainPerEntry = entries == 0 ? 0 : plainBytes / entries;
+        return String.format("%d entries, %d distinct platforms%n"
+                        + "entries: %s (%d bytes per entry)%n"
+                        + "as plain strings: %s (%d bytes per entry)",
+                entries, platforms, megabytes(compactBytes), perEntry, megabytes(plainBytes), plainPerEntry);
+    }
+
+    private static String megabytes(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
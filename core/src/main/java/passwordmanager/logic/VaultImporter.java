@@ -0,0 +1,318 @@
+package passwordmanager.logic;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import passwordmanager.model.AccountEntry;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Streams CSV or JSON exports, drops invalid rows and duplicates, and encrypts the rest in parallel batches.
+public class VaultImporter {
+
+    public static class Report {
+        private long read;
+        private long imported;
+        private long duplicates;
+        private long invalid;
+        private long elapsedNanos;
+        private final List<String> errors = new ArrayList<>();
+
+        public long getRead() {
+            return read;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getDuplicates() {
+            return duplicates;
+        }
+
+        public long getInvalid() {
+            return invalid;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        public long getRowsPerSecond() {
+            return elapsedNanos == 0 ? read : read * 1_000_000_000L / elapsedNanos;
+        }
+
+        private void error(String message) {
+            invalid++;
+            if (errors.size() < MAX_REPORTED_ERRORS) errors.add(message);
+        }
+
+        @Override
+        public String toString() {
+            return "Read " + read + " rows in " + getElapsedMillis() + " ms (" + getRowsPerSecond() + " rows/s): "
+                    + imported + " imported, " + duplicates + " duplicates, " + invalid + " invalid";
+        }
+    }
+
+    private static class Row {
+        private final long number;
+        private final String platform;
+        private final String login;
+        private final String password;
+
+        private Row(long number, String platform, String login, String password) {
+            this.number = number;
+            this.platform = platform;
+            this.login = login;
+            this.password = password;
+        }
+    }
+
+    private static class Batch {
+        private final List<AccountEntry> entries = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+    }
+
+    // Passwords are plaintext in other managers' exports but already encrypted in this app's own JSON export.
+    private interface RowSink {
+        void accept(String platform, String login, String password, boolean encrypted) throws IOException;
+    }
+
+    private static final int BATCH_SIZE = 1024;
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private static final List<String> PLATFORM_COLUMNS = List.of("platform", "name", "title", "url", "login_uri", "website");
+    private static final List<String> LOGIN_COLUMNS = List.of("login", "username", "login_username", "user name", "email");
+    private static final List<String> PASSWORD_COLUMNS = List.of("password", "login_password");
+
+    private final CryptoSession session;
+    private final int threads;
+
+    public VaultImporter(CryptoSession session) {
+        this.session = session;
+        this.threads = Runtime.getRuntime().availableProcessors();
+    }
+
+    // Reads and encrypts the file. When existing is given, entries already in the vault are left out;
+    // pass null when reading off the thread that owns the vault and dedupe later with commit().
+    public List<AccountEntry> read(File source, PasswordManager existing, Report report) throws IOException {
+        long start = System.nanoTime();
+        Set<String> seen = new HashSet<>();
+        List<AccountEntry> result = new ArrayList<>();
+        List<Row> batch = new ArrayList<>(BATCH_SIZE);
+        ArrayDeque<Future<Batch>> inFlight = new ArrayDeque<>();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "vault-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        boolean[] encryptedSource = {false};
+
+        RowSink sink = (platform, login, password, encrypted) -> {
+            report.read++;
+            if (platform.isBlank() || login.isBlank() || password.isEmpty()) {
+                report.error("Row " + report.read + ": platform, login and password are required");
+                return;
+            }
+            String key = platform.toLowerCase(Locale.ROOT) + '\n' + login;
+            if (!seen.add(key) || (existing != null && existing.findByPlatformAndLogin(platform, login) != null)) {
+                report.duplicates++;
+                return;
+            }
+            encryptedSource[0] = encrypted;
+            batch.add(new Row(report.read, platform, login, password));
+            if (batch.size() == BATCH_SIZE) {
+                submit(workers, inFlight, new ArrayList<>(batch), encrypted);
+                batch.clear();
+                while (inFlight.size() > threads * 2) {
+                    collect(inFlight.poll(), result, report);
+                }
+            }
+        };
+
+        try (Reader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(source), StandardCharsets.UTF_8), 64 * 1024)) {
+            if (source.getName().toLowerCase(Locale.ROOT).endsWith(".json")) {
+                readJson(reader, sink);
+            } else {
+                readCsv(reader, sink, report);
+            }
+            if (!batch.isEmpty()) {
+                submit(workers, inFlight, new ArrayList<>(batch), encryptedSource[0]);
+            }
+            while (!inFlight.isEmpty()) {
+                collect(inFlight.poll(), result, report);
+            }
+        } finally {
+            workers.shutdownNow();
+            report.elapsedNanos = System.nanoTime() - start;
+        }
+        return result;
+    }
+
+    // Commits all entries in one atomic write, then reports the totals.
+    public Report importFile(File source, PasswordManager passwordManager) throws IOException {
+        Report report = new Report();
+        List<AccountEntry> entries = read(source, passwordManager, report);
+        long start = System.nanoTime();
+        commit(entries, passwordManager, report);
+        passwordManager.flush();
+        report.elapsedNanos += System.nanoTime() - start;
+        return report;
+    }
+
+    public static void commit(List<AccountEntry> entries, PasswordManager passwordManager, Report report) {
+        List<AccountEntry> fresh = new ArrayList<>(entries.size());
+        for (AccountEntry entry : entries) {
+            if (passwordManager.findByPlatformAndLogin(entry.getPlatform(), entry.getLogin()) == null) {
+                fresh.add(entry);
+            } else {
+                report.duplicates++;
+            }
+        }
+        passwordManager.addEntries(fresh);
+        report.imported = fresh.size();
+    }
+
+    private void submit(ExecutorService workers, ArrayDeque<Future<Batch>> inFlight, List<Row> rows, boolean encrypted) {
+        inFlight.add(workers.submit(() -> {
+            Batch batch = new Batch();
+            for (Row row : rows) {
+                try {
+                    if (encrypted) {
+                        // Decrypting for the tag also checks the ciphertext belongs to this vault.
+                        AccountEntry entry = new AccountEntry(row.platform, row.login, row.password);
+                        entry.setPasswordTag(session.passwordTagOf(row.password));
+                        batch.entries.add(entry);
+                    } else {
+                        AccountEntry entry = new AccountEntry(row.platform, row.login, session.encrypt(row.password));
+                        entry.setPasswordTag(session.passwordTag(row.password));
+                        batch.entries.add(entry);
+                    }
+                } catch (RuntimeException e) {
+                    batch.errors.add("Row " + row.number + ": " + e.getMessage());
+                }
+            }
+            return batch;
+        }));
+    }
+
+    private void collect(Future<Batch> future, List<AccountEntry> result, Report report) throws IOException {
+        try {
+            Batch batch = future.get();
+            result.addAll(batch.entries);
+            for (String error : batch.errors) {
+                report.error(error);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        } catch (ExecutionException e) {
+            throw new IOException("Import failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void readCsv(Reader reader, RowSink sink, Report report) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.readRow();
+        if (header == null) return;
+
+        int platformColumn = findColumn(header, PLATFORM_COLUMNS);
+        int loginColumn = findColumn(header, LOGIN_COLUMNS);
+        int passwordColumn = findColumn(header, PASSWORD_COLUMNS);
+        if (platformColumn < 0 || loginColumn < 0 || passwordColumn < 0) {
+            throw new IOException("Unrecognized CSV header: " + header);
+        }
+        int width = Math.max(platformColumn, Math.max(loginColumn, passwordColumn));
+
+        List<String> row;
+        while ((row = csv.readRow()) != null) {
+            if (row.size() == 1 && row.get(0).isEmpty()) continue;
+            if (row.size() <= width) {
+                report.read++;
+                report.error("Line " + (csv.getLine() - 1) + ": expected at least " + (width + 1) + " columns");
+                continue;
+            }
+            sink.accept(row.get(platformColumn).trim(), row.get(loginColumn).trim(), row.get(passwordColumn), false);
+        }
+    }
+
+    // Accepts this app's JSON export (an array of entries) and Bitwarden-style exports ({"items": [{"name", "login": {...}}]}).
+    private void readJson(Reader reader, RowSink sink) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        if (json.peek() == JsonToken.BEGIN_ARRAY) {
+            json.beginArray();
+            while (json.hasNext()) {
+                Map<String, String> fields = readFlatObject(json);
+                sink.accept(fields.getOrDefault("platform", ""), fields.getOrDefault("login", ""),
+                        fields.getOrDefault("password", ""), true);
+            }
+            json.endArray();
+            return;
+        }
+
+        json.beginObject();
+        while (json.hasNext()) {
+            if (!json.nextName().equals("items")) {
+                json.skipValue();
+                continue;
+            }
+            json.beginArray();
+            while (json.hasNext()) {
+                readBitwardenItem(json, sink);
+            }
+            json.endArray();
+        }
+        json.endObject();
+    }
+
+    private void readBitwardenItem(JsonReader json, RowSink sink) throws IOException {
+        String name = "";
+        Map<String, String> login = Map.of();
+        json.beginObject();
+        while (json.hasNext()) {
+            String field = json.nextName();
+            if (field.equals("name") && json.peek() == JsonToken.STRING) {
+                name = json.nextString();
+            } else if (field.equals("login") && json.peek() == JsonToken.BEGIN_OBJECT) {
+                login = readFlatObject(json);
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        if (!login.isEmpty()) {
+            sink.accept(name, login.getOrDefault("username", ""), login.getOrDefault("password", ""), false);
+        }
+    }
+
+    private Map<String, String> readFlatObject(JsonReader json) throws IOException {
+        Map<String, String> fields = new HashMap<>();
+        json.beginObject();
+        while (json.hasNext()) {
+            String name = json.nextName();
+            if (json.peek() == JsonToken.STRING) {
+                fields.put(name, json.nextString());
+            } else {
+                json.skipValue();
+            }
+        }
+        json.endObject();
+        return fields;
+    }
+
+    private static int findColumn(List<String> header, List<String> candidates) {
+        for (String candidate : candidates) {
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).trim().replace("\uFEFF", "").equalsIgnoreCase(candidate)) return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,363 @@
+package passwordmanager.logic;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import passwordmanager.model.AccountEntry;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+public class VaultJournal {
+
+    public static final String ADD = "ADD";
+    public static final String UPDATE = "UPDATE";
+    public static final String REMOVE = "REMOVE";
+    public static final String BATCH = "BATCH";
+
+    public static class Record {
+        private String op;
+        private String id;
+        private AccountEntry entry;
+        private List<AccountEntry> entries;
+
+        public Record(String op, String id, AccountEntry entry) {
+            this.op = op;
+            this.id = id;
+            this.entry = entry;
+        }
+
+        // A batch is one journal line, so replay applies all of its entries or, if the line is torn, none of them.
+        public static Record batch(List<AccountEntry> entries) {
+            Record record = new Record(BATCH, null, null);
+            record.entries = entries;
+            return record;
+        }
+
+        public String getOp() {
+            return op;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public AccountEntry getEntry() {
+            return entry;
+        }
+
+        public List<AccountEntry> getEntries() {
+            return entries;
+        }
+    }
+
+    // A line waiting to be written, already encoded, so the compaction budget counts the bytes it will take.
+    private static class PendingLine {
+        private final byte[] bytes;
+
+        private PendingLine(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+
+    // Marks where the caller took its snapshot; records queued before it belong to the rolled file.
+    private static final PendingLine ROLL_MARKER = new PendingLine(new byte[0]);
+    // Starts a run of encrypted lines bound to the journal id it names (see VaultCipher.encryptLine). Every new file
+    // gets one before its first encrypted line, and so does a file that has only plain lines so far or a torn end.
+    private static final String HEADER_PREFIX = "#journal ";
+
+    private final File file;
+    private final File rolledFile;
+    private final Gson gson = new Gson();
+    private final Queue<PendingLine> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicLong size;
+    private volatile VaultCipher cipher;
+    // Set once a cipher was given and never cleared: a journal with encrypted records takes no plain ones after
+    // the cipher is taken away, since they would leave the change readable by anyone with the file.
+    private volatile boolean encryptedOnly;
+    private FileOutputStream output;
+    private OutputStream writer;
+    // Id and line number of the next encrypted line, unknown until the file was scanned or rolled.
+    private final Object positionLock = new Object();
+    private boolean positionKnown;
+    private byte[] journalId;
+    private long sequence;
+
+    public VaultJournal(String fileName) {
+        this.file = new File(fileName);
+        this.rolledFile = new File(fileName + ".old");
+        this.size = new AtomicLong(file.length());
+    }
+
+    // Lines appended from now on are encrypted; lines already written are still read either way.
+    public void setCipher(VaultCipher cipher) {
+        if (cipher != null) encryptedOnly = true;
+        this.cipher = cipher;
+    }
+
+    // False while the vault is locked: append() would refuse the record.
+    public boolean isWritable() {
+        return cipher != null || !encryptedOnly;
+    }
+
+    // Throws IllegalStateException when the journal is encrypted and the cipher was taken away.
+    public void append(Record record) {
+        String json = gson.toJson(record);
+        VaultCipher cipher = this.cipher;
+        if (cipher == null) {
+            if (encryptedOnly) throw new IllegalStateException("The vault is locked; the change was not recorded");
+            enqueue(json);
+            return;
+        }
+        // Queued under the lock, so lines reach the file in the order of their sequence numbers.
+        synchronized (positionLock) {
+            if (!positionKnown) findPosition();
+            if (journalId == null) {
+                journalId = VaultCipher.newJournalId();
+                sequence = 0;
+                enqueue(HEADER_PREFIX + Base64.getEncoder().encodeToString(journalId));
+            }
+            enqueue(cipher.encryptLine(json, journalId, sequence++));
+        }
+    }
+
+    public void markRoll() {
+        synchronized (positionLock) {
+            pending.add(ROLL_MARKER);
+            positionKnown = true;
+            journalId = null;
+        }
+        size.set(0);
+    }
+
+    private void enqueue(String line) {
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        pending.add(new PendingLine(bytes));
+        size.addAndGet(bytes.length);
+    }
+
+    // Continues the last run of encrypted lines a previous run left in the file. A file that ends in a torn line, or
+    // cannot be read, gets a new header instead, so a torn line is always the last of its run (see replayFile).
+    private void findPosition() {
+        positionKnown = true;
+        journalId = null;
+        try {
+            if (!file.exists() || endsWithoutNewline(file)) return;
+        } catch (IOException e) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(HEADER_PREFIX)) {
+                    journalId = parseHeader(line);
+                    sequence = 0;
+                } else if (isEncrypted(line)) {
+                    sequence++;
+                }
+            }
+        } catch (IOException e) {
+            journalId = null;
+        }
+    }
+
+    public boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    public boolean hasRolledFile() {
+        return rolledFile.exists();
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    // Writes everything queued so far as one batch and syncs it to disk once.
+    public synchronized void flushPending() throws IOException {
+        PendingLine line;
+        boolean written = false;
+        // Lines leave the queue only once written, so a failed batch is retried by the next flush.
+        while ((line = pending.peek()) != null) {
+            if (line == ROLL_MARKER) {
+                sync(written);
+                written = false;
+                roll();
+            } else {
+                if (writer == null) {
+                    boolean tornTail = endsWithoutNewline(file);
+                    output = new FileOutputStream(file, true);
+                    writer = new BufferedOutputStream(output);
+                    // Never glue a new record onto a line left half-written by a crash.
+                    if (tornTail) writer.write('\n');
+                }
+                writer.write(line.bytes);
+                written = true;
+            }
+            pending.poll();
+        }
+        sync(written);
+    }
+
+    public File getRolledFile() {
+        return rolledFile;
+    }
+
+    public synchronized void reset() {
+        close();
+        if (rolledFile.exists() && !rolledFile.delete()) {
+            System.err.println("Journal reset error: cannot delete " + rolledFile);
+        }
+        if (file.exists() && !file.delete()) {
+            System.err.println("Journal reset error: cannot delete " + file);
+        }
+        size.set(0);
+        // Called with nothing queued, so the next encrypted line starts the new file.
+        synchronized (positionLock) {
+            positionKnown = true;
+            journalId = null;
+        }
+    }
+
+    private void sync(boolean written) throws IOException {
+        if (!written) return;
+        writer.flush();
+        output.getChannel().force(false);
+    }
+
+    private static boolean endsWithoutNewline(File file) throws IOException {
+        if (!file.exists() || file.length() == 0) return false;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(raf.length() - 1);
+            return raf.read() != '\n';
+        }
+    }
+
+    private void roll() throws IOException {
+        close();
+        if (!file.exists()) return;
+        if (!rolledFile.exists()) {
+            if (!file.renameTo(rolledFile)) {
+                System.err.println("Journal roll error: cannot rename " + file);
+            }
+            return;
+        }
+        // A rolled file left by a failed compaction holds changes the snapshot may lack, so the journal is added
+        // to its end instead of replacing it. Should this fail halfway, the retry appends the records again,
+        // which replays to the same result.
+        try (FileOutputStream rolled = new FileOutputStream(rolledFile, true)) {
+            if (endsWithoutNewline(rolledFile)) rolled.write('\n');
+            Files.copy(file.toPath(), rolled);
+            rolled.getChannel().force(false);
+        }
+        Files.delete(file.toPath());
+    }
+
+    // Throws UncheckedIOException when the journal is encrypted and no cipher is set, or when an encrypted record
+    // other than a torn last one does not authenticate. The files are left as they are either way.
+    public synchronized void replay(Consumer<Record> consumer) {
+        replayFile(rolledFile, consumer);
+        replayFile(file, consumer);
+    }
+
+    private void replayFile(File source, Consumer<Record> consumer) {
+        if (!source.exists()) return;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(source), StandardCharsets.UTF_8))) {
+            String line;
+            byte[] journalId = null;
+            long sequence = 0;
+            // An encrypted line or header that failed to authenticate. A crash tears at most the last line written,
+            // and the next run starts with a new header, so it is only let go when a header or the end follows.
+            String damage = null;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                if (line.startsWith(HEADER_PREFIX)) {
+                    journalId = parseHeader(line);
+                    sequence = 0;
+                    skipTorn(damage, source);
+                    damage = journalId == null ? "damaged journal header" : null;
+                    continue;
+                }
+                if (damage != null) {
+                    throw new UncheckedIOException(new IOException("Journal record failed to authenticate ("
+                            + damage + ") in " + source + "; the journal was left as it is"));
+                }
+                if (isEncrypted(line)) {
+                    // Counted whether or not it decrypts: a missing or moved line makes the lines after it fail.
+                    long position = sequence++;
+                    try {
+                        accept(decrypt(line, journalId, position), consumer);
+                    } catch (JsonParseException | IOException e) {
+                        damage = e.getMessage();
+                    }
+                    continue;
+                }
+                try {
+                    accept(line, consumer);
+                } catch (JsonParseException e) {
+                    // Plain records are not authenticated; a torn or damaged one is skipped.
+                    System.err.println("Skipping damaged journal record in " + source);
+                }
+            }
+            skipTorn(damage, source);
+        } catch (IOException e) {
+            System.err.println("Journal read error: " + e.getMessage());
+        }
+    }
+
+    private void accept(String json, Consumer<Record> consumer) {
+        Record record = gson.fromJson(json, Record.class);
+        if (record != null && record.getOp() != null) {
+            consumer.accept(record);
+        }
+    }
+
+    private static void skipTorn(String damage, File source) {
+        if (damage != null) System.err.println("Skipping torn journal record in " + source);
+    }
+
+    // Encrypted lines are bound to the header before them; one without a header does not authenticate.
+    private String decrypt(String line, byte[] journalId, long sequence) throws IOException {
+        VaultCipher cipher = this.cipher;
+        if (cipher == null) {
+            throw new UncheckedIOException(new IOException("The journal is encrypted; unlock the vault to read it"));
+        }
+        if (journalId == null) throw new IOException("encrypted record without a journal header");
+        return cipher.decryptLine(line, journalId, sequence);
+    }
+
+    // Plain records are JSON objects; anything else but a header is an encrypted line.
+    private static boolean isEncrypted(String line) {
+        return !line.isBlank() && !line.startsWith("{") && !line.startsWith(HEADER_PREFIX);
+    }
+
+    // Null for a damaged header; replay then fails unless the header was the torn last line of its run.
+    private static byte[] parseHeader(String line) {
+        try {
+            byte[] journalId = Base64.getDecoder().decode(line.substring(HEADER_PREFIX.length()).trim());
+            return journalId.length == VaultCipher.JOURNAL_ID_LENGTH ? journalId : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public synchronized void close() {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("Journal close error: " + e.getMessage());
+        }
+        writer = null;
+        output = null;
+    }
+}
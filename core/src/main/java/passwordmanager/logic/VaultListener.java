@@ -0,0 +1,22 @@
+package passwordmanager.logic;
+
+import passwordmanager.model.AccountEntry;
+
+import java.util.List;
+
+// Receives every change to the in-memory vault on the thread that made it, so views can apply just the changed rows.
+public interface VaultListener {
+
+    default void entriesAdded(List<AccountEntry> entries) {
+    }
+
+    // previous is the entry as it was stored before the update; it is the same object when an entry was edited in place.
+    default void entryUpdated(AccountEntry previous, AccountEntry current) {
+    }
+
+    default void entryRemoved(AccountEntry entry) {
+    }
+
+    default void vaultReloaded() {
+    }
+}
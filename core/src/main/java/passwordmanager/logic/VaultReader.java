@@ -0,0 +1,67 @@
+package passwordmanager.logic;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import passwordmanager.model.AccountEntry;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+public class VaultReader implements Iterator<AccountEntry>, Closeable {
+
+    private static final Gson GSON = new Gson();
+
+    private final JsonReader reader;
+    private boolean started;
+
+    public VaultReader(Reader source) {
+        this.reader = new JsonReader(source);
+    }
+
+    public static VaultReader open(File file) throws IOException {
+        return new VaultReader(new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8), 64 * 1024));
+    }
+
+    public static void forEach(File file, Consumer<AccountEntry> consumer) throws IOException {
+        try (VaultReader reader = open(file)) {
+            while (reader.hasNext()) {
+                consumer.accept(reader.next());
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            if (!started) {
+                if (reader.peek() == JsonToken.END_DOCUMENT) return false;
+                reader.beginArray();
+                started = true;
+            }
+            return reader.hasNext();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public AccountEntry next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        try {
+            return GSON.fromJson(reader, AccountEntry.class);
+        } catch (JsonParseException e) {
+            throw new UncheckedIOException(new IOException("Malformed vault entry", e));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,175 @@
+package passwordmanager.logic;
+
+import passwordmanager.model.AccountEntry;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Integrity check of every loaded entry: its fields are present, its password decrypts with the session key to
+// valid text, and, when it has a password tag, the plaintext still hashes to that tag. The tag is a keyed hash, so
+// it also catches ciphertext damage that happens to decrypt. Entries are checked in parallel chunks on all cores;
+// nothing decrypted outlives the check of its entry.
+public class VaultVerifier {
+
+    public static final String MISSING_FIELDS = "missing id, platform or login";
+    public static final String NO_PASSWORD = "no password";
+    public static final String DOES_NOT_DECRYPT = "password does not decrypt (damaged, or encrypted with another key)";
+    public static final String INVALID_TEXT = "password decrypts to invalid text";
+    public static final String TAG_MISMATCH = "password does not match its tag";
+
+    private static final int CHUNK_SIZE = 4096;
+    private static final ThreadLocal<CharsetDecoder> UTF_8 = ThreadLocal.withInitial(StandardCharsets.UTF_8::newDecoder);
+
+    public static class Damage {
+        private final AccountEntry entry;
+        private final String reason;
+
+        private Damage(AccountEntry entry, String reason) {
+            this.entry = entry;
+            this.reason = reason;
+        }
+
+        public AccountEntry getEntry() {
+            return entry;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return entry.getPlatform() + " - " + entry.getLogin() + ": " + reason;
+        }
+    }
+
+    public static class Report {
+        private long checked;
+        private long untagged;
+        private int skippedRecords;
+        private long elapsedNanos;
+        private List<Damage> damaged = List.of();
+
+        public long getChecked() {
+            return checked;
+        }
+
+        // Entries without a password tag, which were checked by decryption alone.
+        public long getUntagged() {
+            return untagged;
+        }
+
+        // Records of the vault file that could not be read at all and were left out on load.
+        public int getSkippedRecords() {
+            return skippedRecords;
+        }
+
+        public List<Damage> getDamaged() {
+            return damaged;
+        }
+
+        public boolean isClean() {
+            return damaged.isEmpty() && skippedRecords == 0;
+        }
+
+        // When most entries fail, the key is the likelier culprit than the entries, and quarantining them would
+        // empty the vault.
+        public boolean looksLikeWrongKey() {
+            return checked > 0 && damaged.size() * 2L > checked;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        public long getEntriesPerSecond() {
+            return elapsedNanos == 0 ? checked : checked * 1_000_000_000L / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Checked " + checked + " entries in " + getElapsedMillis() + " ms (" + getEntriesPerSecond()
+                    + " entries/s): " + damaged.size() + " damaged, " + untagged + " without a tag, "
+                    + skippedRecords + " unreadable records skipped on load";
+        }
+    }
+
+    private final CryptoSession session;
+    private final PasswordManager passwordManager;
+
+    public VaultVerifier(CryptoSession session, PasswordManager passwordManager) {
+        this.session = session;
+        this.passwordManager = passwordManager;
+    }
+
+    // Checks the entries as they are now; damaged ones are listed in vault order. Interrupting the calling thread
+    // skips the chunks not started yet, and the report is then incomplete.
+    public Report verify() {
+        long start = System.nanoTime();
+        Thread caller = Thread.currentThread();
+        List<AccountEntry> entries = passwordManager.getAllEntries();
+        int chunks = (entries.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        Report report = new Report();
+        report.damaged = IntStream.range(0, chunks).parallel()
+                .filter(chunk -> !caller.isInterrupted())
+                .mapToObj(chunk -> check(entries.subList(chunk * CHUNK_SIZE,
+                        Math.min(entries.size(), (chunk + 1) * CHUNK_SIZE))))
+                .flatMap(List::stream)
+                .toList();
+        for (AccountEntry entry : entries) {
+            if (!entry.hasPasswordTag()) report.untagged++;
+        }
+        report.checked = entries.size();
+        report.skippedRecords = passwordManager.getSkippedRecords();
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    private List<Damage> check(List<AccountEntry> chunk) {
+        List<Damage> damaged = new ArrayList<>();
+        for (AccountEntry entry : chunk) {
+            String reason = check(entry);
+            if (reason != null) damaged.add(new Damage(entry, reason));
+        }
+        return damaged;
+    }
+
+    // The reason the entry is damaged, or null if it is fine.
+    private String check(AccountEntry entry) {
+        if (entry.getId() == null || entry.getPlatform() == null || entry.getLogin() == null) return MISSING_FIELDS;
+        if (entry.getPassword() == null || entry.getPassword().isEmpty()) return NO_PASSWORD;
+
+        SecretBuffer secret;
+        try {
+            secret = session.decryptSecret(entry.getPassword());
+        } catch (RuntimeException e) {
+            return DOES_NOT_DECRYPT;
+        }
+        try (secret) {
+            if (!isValidText(secret.bytes())) return INVALID_TEXT;
+            if (entry.hasPasswordTag() && !Arrays.equals(session.passwordTag(secret), entry.getPasswordTag())) {
+                return TAG_MISMATCH;
+            }
+            return null;
+        }
+    }
+
+    private static boolean isValidText(ByteBuffer bytes) {
+        CharBuffer chars = null;
+        try {
+            chars = UTF_8.get().decode(bytes);
+            return true;
+        } catch (CharacterCodingException e) {
+            return false;
+        } finally {
+            if (chars != null) Arrays.fill(chars.array(), '\0');
+        }
+    }
+}
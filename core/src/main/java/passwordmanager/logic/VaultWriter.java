@@ -0,0 +1,43 @@
+package passwordmanager.logic;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import passwordmanager.model.AccountEntry;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+public class VaultWriter implements Closeable {
+
+    private static final Gson GSON = new Gson();
+
+    private final JsonWriter writer;
+    private boolean finished;
+
+    public VaultWriter(Writer target) throws IOException {
+        this.writer = new JsonWriter(target);
+        this.writer.beginArray();
+    }
+
+    public static VaultWriter open(File file) throws IOException {
+        return new VaultWriter(new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file), StandardCharsets.UTF_8), 64 * 1024));
+    }
+
+    public void write(AccountEntry entry) throws IOException {
+        GSON.toJson(entry, AccountEntry.class, writer);
+    }
+
+    public void finish() throws IOException {
+        if (finished) return;
+        writer.endArray();
+        writer.flush();
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        writer.close();
+    }
+}
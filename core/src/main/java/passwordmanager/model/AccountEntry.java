@@ -0,0 +1,211 @@
+package passwordmanager.model;
+
+import com.google.gson.annotations.JsonAdapter;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.WeakHashMap;
+
+// Kept compact because a vault can hold millions of these: platform names are shared through a dictionary,
+// and the password is held as the raw ciphertext bytes rather than as Base64 text. The JSON form is unchanged.
+@JsonAdapter(AccountEntryAdapter.class)
+public class AccountEntry {
+
+    // Longest text in front of the Base64 part that is still treated as a format prefix (such as "v3:").
+    private static final int MAX_PREFIX_LENGTH = 8;
+    public static final int PASSWORD_TAG_LENGTH = 16;
+    // Platform names and password prefixes repeat across the vault, so each distinct value is stored once.
+    // Held weakly: a value no entry refers to any more leaves the dictionary once it is collected.
+    // Split into shards by hash, each with its own lock, so parallel loads and imports rarely wait on each other.
+    private static final int SHARD_COUNT = 64;
+    private static final List<Map<String, WeakReference<String>>> SHARED = new ArrayList<>(SHARD_COUNT);
+
+    static {
+        for (int i = 0; i < SHARD_COUNT; i++) SHARED.add(new WeakHashMap<>());
+    }
+
+    private String id;
+    private String platform;
+    private String login;
+    // The password text is "<prefix><Base64>", with the Base64 part kept decoded. Text of any other shape
+    // has a null prefix and is kept as UTF-8.
+    private String passwordPrefix;
+    private byte[] passwordBytes;
+    // Keyed hash of the plaintext password (see CryptoSession.passwordTag), held as two longs; zero when unknown.
+    private long passwordTagHigh;
+    private long passwordTagLow;
+
+    public AccountEntry(String platform, String login, String password) {
+        this(UUID.randomUUID().toString(), platform, login, password);
+    }
+
+    public AccountEntry(String id, String platform, String login, String password) {
+        this.id = id;
+        this.platform = share(platform);
+        this.login = login;
+        setPassword(password);
+    }
+
+    // Used by AccountEntryCodec, which already has the password split into prefix and bytes.
+    AccountEntry(String id, String platform, String login, String passwordPrefix, byte[] passwordBytes) {
+        this.id = id;
+        this.platform = share(platform);
+        this.login = login;
+        this.passwordPrefix = share(passwordPrefix);
+        this.passwordBytes = passwordBytes;
+    }
+
+    public AccountEntry(AccountEntry other) {
+        this.id = other.id;
+        this.platform = other.platform;
+        this.login = other.login;
+        // The array is never modified in place, so the copy can share it.
+        this.passwordPrefix = other.passwordPrefix;
+        this.passwordBytes = other.passwordBytes;
+        this.passwordTagHigh = other.passwordTagHigh;
+        this.passwordTagLow = other.passwordTagLow;
+    }
+
+    // Returns the shared instance equal to the text, so repeated names cost one reference each.
+    public static String share(String text) {
+        if (text == null) return null;
+        int hash = text.hashCode();
+        Map<String, WeakReference<String>> shard = SHARED.get((hash ^ (hash >>> 16)) & (SHARD_COUNT - 1));
+        synchronized (shard) {
+            WeakReference<String> reference = shard.get(text);
+            String shared = reference == null ? null : reference.get();
+            if (shared != null) return shared;
+            shard.put(text, new WeakReference<>(text));
+            return text;
+        }
+    }
+
+    // GETTERS
+    public String getId() {
+        return id;
+    }
+
+    public String getPlatform() {
+        return platform;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public String getPassword() {
+        if (passwordBytes == null) return null;
+        if (passwordPrefix == null) return new String(passwordBytes, StandardCharsets.UTF_8);
+        return passwordPrefix + Base64.getEncoder().encodeToString(passwordBytes);
+    }
+
+    public boolean hasPasswordTag() {
+        return passwordTagHigh != 0 || passwordTagLow != 0;
+    }
+
+    // A copy of the tag, or null when none has been computed for the current password.
+    public byte[] getPasswordTag() {
+        if (!hasPasswordTag()) return null;
+        return ByteBuffer.allocate(PASSWORD_TAG_LENGTH).putLong(passwordTagHigh).putLong(passwordTagLow).array();
+    }
+
+    String getPasswordPrefix() {
+        return passwordPrefix;
+    }
+
+    byte[] getPasswordBytes() {
+        return passwordBytes;
+    }
+
+    // Approximate heap held by this entry alone, assuming a 64-bit JVM with compressed references.
+    // The platform name and password prefix are shared between entries and are not included.
+    public long estimateSize() {
+        long size = align(12 + 5 * 4 + 2 * 8);
+        size += estimateSize(id) + estimateSize(login);
+        if (passwordBytes != null) size += align(16 + passwordBytes.length);
+        return size;
+    }
+
+    // SETTERS
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public void setPlatform(String platform) {
+        this.platform = share(platform);
+    }
+
+    public void setLogin(String login) {
+        this.login = login;
+    }
+
+    // Clears the password tag, which belongs to the previous password; set the new one with setPasswordTag().
+    public void setPassword(String password) {
+        passwordPrefix = null;
+        passwordBytes = null;
+        passwordTagHigh = 0;
+        passwordTagLow = 0;
+        if (password == null) return;
+
+        int split = password.lastIndexOf(':') + 1;
+        if (split <= MAX_PREFIX_LENGTH) {
+            String encoded = password.substring(split);
+            try {
+                byte[] decoded = Base64.getDecoder().decode(encoded);
+                // Only text that encodes back to exactly the same characters, so getPassword() returns it unchanged.
+                if (Base64.getEncoder().encodeToString(decoded).equals(encoded)) {
+                    passwordPrefix = share(password.substring(0, split));
+                    passwordBytes = decoded;
+                    return;
+                }
+            } catch (IllegalArgumentException e) {
+                // Not Base64; kept as text below.
+            }
+        }
+        passwordBytes = password.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public void setPasswordTag(byte[] tag) {
+        if (tag == null) {
+            passwordTagHigh = 0;
+            passwordTagLow = 0;
+            return;
+        }
+        if (tag.length != PASSWORD_TAG_LENGTH) {
+            throw new IllegalArgumentException("Password tag must be " + PASSWORD_TAG_LENGTH + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(tag);
+        passwordTagHigh = buffer.getLong();
+        passwordTagLow = buffer.getLong();
+    }
+
+    // Approximate heap held by a String and its backing array (one byte per character when all are Latin-1).
+    public static long estimateSize(String text) {
+        if (text == null) return 0;
+        boolean latin1 = true;
+        for (int i = 0; i < text.length() && latin1; i++) {
+            latin1 = text.charAt(i) <= 0xFF;
+        }
+        return align(12 + 4 + 4 + 2) + align(16L + (latin1 ? text.length() : 2L * text.length()));
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountEntry{" +
+                "id='" + id + '\'' +
+                ", platform='" + platform + '\'' +
+                ", login='" + login + '\'' +
+                ", password='" + getPassword() +
+                '}';
+    }
+}
@@ -0,0 +1,76 @@
+package passwordmanager.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Base64;
+
+// Reads and writes entries as {"id", "platform", "login", "password"}, the same shape as before the
+// in-memory form was compacted, so the journal, JSON exports and older passwords.json files stay compatible.
+// The password tag is added as "passwordTag" (Base64) when the entry has one; readers that do not know it skip it.
+class AccountEntryAdapter extends TypeAdapter<AccountEntry> {
+
+    @Override
+    public void write(JsonWriter out, AccountEntry entry) throws IOException {
+        if (entry == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(entry.getId());
+        out.name("platform").value(entry.getPlatform());
+        out.name("login").value(entry.getLogin());
+        out.name("password").value(entry.getPassword());
+        byte[] tag = entry.getPasswordTag();
+        if (tag != null) {
+            out.name("passwordTag").value(Base64.getEncoder().encodeToString(tag));
+        }
+        out.endObject();
+    }
+
+    @Override
+    public AccountEntry read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String id = null;
+        String platform = null;
+        String login = null;
+        String password = null;
+        byte[] tag = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "id" -> id = in.nextString();
+                case "platform" -> platform = in.nextString();
+                case "login" -> login = in.nextString();
+                case "password" -> password = in.nextString();
+                case "passwordTag" -> tag = decodeTag(in.nextString());
+                default -> in.skipValue();
+            }
+        }
+        in.endObject();
+        AccountEntry entry = new AccountEntry(id, platform, login, password);
+        entry.setPasswordTag(tag);
+        return entry;
+    }
+
+    // A malformed tag is dropped rather than failing the whole entry; it is recomputed on the next reuse check.
+    private static byte[] decodeTag(String text) {
+        try {
+            byte[] tag = Base64.getDecoder().decode(text);
+            return tag.length == AccountEntry.PASSWORD_TAG_LENGTH ? tag : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package passwordmanager.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+// Binary form of an entry, as stored in the vault file: id, platform and login as UTF-8, then the password
+// as its format prefix and raw ciphertext bytes. Every field is preceded by its length, or -1 when it is null.
+// An id in UUID form is stored as its 16 bytes instead. A password tag, when the entry has one, follows the password.
+public final class AccountEntryCodec {
+
+    private static final int NULL_LENGTH = -1;
+    private static final int UUID_LENGTH = -2;
+
+    private static final byte NO_PASSWORD = 0;
+    private static final byte TEXT_PASSWORD = 1;
+    private static final byte ENCODED_PASSWORD = 2;
+    // Set in the password kind when the password tag follows the password.
+    private static final byte TAGGED = 0x10;
+
+    private AccountEntryCodec() {
+    }
+
+    public static byte[] encode(AccountEntry entry) {
+        UUID uuid = uuid(entry.getId());
+        byte[] id = uuid == null ? utf8(entry.getId()) : null;
+        byte[] platform = utf8(entry.getPlatform());
+        byte[] login = utf8(entry.getLogin());
+        byte[] prefix = utf8(entry.getPasswordPrefix());
+        byte[] password = entry.getPasswordBytes();
+        byte[] tag = entry.getPasswordTag();
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 5 * 4 + (uuid == null ? length(id) : 16) + length(platform)
+                + length(login) + length(prefix) + length(password) + length(tag));
+        if (uuid == null) {
+            put(buffer, id);
+        } else {
+            buffer.putInt(UUID_LENGTH).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        }
+        put(buffer, platform);
+        put(buffer, login);
+        byte kind = password == null ? NO_PASSWORD : prefix == null ? TEXT_PASSWORD : ENCODED_PASSWORD;
+        buffer.put(tag == null ? kind : (byte) (kind | TAGGED));
+        put(buffer, prefix);
+        put(buffer, password);
+        if (tag != null) buffer.put(tag);
+        return buffer.array();
+    }
+
+    // Reads one entry starting at the buffer's position and leaves the position just after it.
+    public static AccountEntry decode(ByteBuffer buffer) {
+        String id;
+        if (buffer.getInt(buffer.position()) == UUID_LENGTH) {
+            buffer.getInt();
+            id = new UUID(buffer.getLong(), buffer.getLong()).toString();
+        } else {
+            id = string(buffer);
+        }
+        String platform = string(buffer);
+        String login = string(buffer);
+        byte kind = buffer.get();
+        String prefix = string(buffer);
+        byte[] password = bytes(buffer);
+        byte[] tag = null;
+        if ((kind & TAGGED) != 0) {
+            tag = new byte[AccountEntry.PASSWORD_TAG_LENGTH];
+            buffer.get(tag);
+            kind &= ~TAGGED;
+        }
+
+        AccountEntry entry;
+        if (kind == NO_PASSWORD) {
+            entry = new AccountEntry(id, platform, login, null, null);
+        } else if (kind == TEXT_PASSWORD) {
+            entry = new AccountEntry(id, platform, login, null, password);
+        } else if (kind == ENCODED_PASSWORD && prefix != null && password != null) {
+            entry = new AccountEntry(id, platform, login, prefix, password);
+        } else {
+            throw new IllegalArgumentException("Invalid password field in entry " + id);
+        }
+        entry.setPasswordTag(tag);
+        return entry;
+    }
+
+    // The UUID the id is the canonical form of, or null.
+    private static UUID uuid(String id) {
+        if (id == null || id.length() != 36) return null;
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte[] utf8(String text) {
+        return text == null ? null : text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void put(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(NULL_LENGTH);
+            return;
+        }
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] bytes = bytes(buffer);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("Field length " + length + " runs past the end of the entry");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
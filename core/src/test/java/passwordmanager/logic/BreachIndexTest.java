@@ -0,0 +1,106 @@
+package passwordmanager.logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import passwordmanager.model.AccountEntry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BreachIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsBreachedPasswords() throws IOException {
+        build("password", "123456", "qwerty");
+
+        try (BreachIndex index = open()) {
+            assertEquals(3, index.size());
+            assertTrue(index.isBreached("qwerty"));
+            assertFalse(index.isBreached("Xk9#mQ2!vR7p"));
+        }
+    }
+
+    @Test
+    void reportsUnreadableEntriesAndCarriesOn() throws IOException {
+        build("password", "123456");
+        CryptoSession session = CryptoSession.withKeys(CryptoUtils.generateKey(), null);
+        AccountEntry breached = new AccountEntry("a", "alice", session.encrypt("password"));
+        AccountEntry damaged = new AccountEntry("b", "bob", "v2:AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+        AccountEntry fine = new AccountEntry("c", "carol", session.encrypt("Xk9#mQ2!vR7p"));
+        List<Long> progress = new ArrayList<>();
+
+        try (BreachIndex index = open()) {
+            BreachIndex.Report report = index.findBreached(List.of(breached, damaged, fine), session,
+                    (done, total) -> progress.add(done));
+
+            assertTrue(report.isComplete());
+            assertEquals(List.of(breached), report.getBreached());
+            assertEquals(List.of(damaged), report.getUnreadable());
+            assertEquals(List.of(3L), progress);
+        }
+    }
+
+    @Test
+    void rejectsImplausibleHeaders() throws IOException {
+        build("password");
+        File bloom = bloomFile();
+        byte[] original = Files.readAllBytes(bloom.toPath());
+        // Bit count at offset 8, number of hash functions at offset 16.
+        long[][] headers = {{0, 7}, {-64, 7}, {original.length * 8L, 7}, {64, 0}, {64, 33}, {64, Integer.MAX_VALUE}};
+        for (long[] header : headers) {
+            Files.write(bloom.toPath(), original);
+            try (RandomAccessFile raw = new RandomAccessFile(bloom, "rw")) {
+                raw.seek(8);
+                raw.writeLong(header[0]);
+                raw.writeInt((int) header[1]);
+            }
+
+            assertThrows(IOException.class, this::open, () -> "bits " + header[0] + ", functions " + header[1]);
+        }
+    }
+
+    private void build(String... passwords) throws IOException {
+        List<String> hashes = new ArrayList<>();
+        for (String password : passwords) {
+            hashes.add(sha1(password) + ":1");
+        }
+        hashes.sort(null);
+        File source = directory.resolve("source.txt").toFile();
+        Files.write(source.toPath(), hashes);
+        BreachIndex.build(source, bloomFile(), hashFile());
+    }
+
+    private BreachIndex open() throws IOException {
+        return BreachIndex.open(bloomFile(), hashFile());
+    }
+
+    private File bloomFile() {
+        return directory.resolve(BreachIndex.BLOOM_FILE).toFile();
+    }
+
+    private File hashFile() {
+        return directory.resolve(BreachIndex.HASH_FILE).toFile();
+    }
+
+    private static String sha1(String text) {
+        try {
+            return HexFormat.of().withUpperCase().formatHex(
+                    MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package passwordmanager.logic;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CryptoSessionTest {
+
+    private final SecretKeySpec key = CryptoUtils.generateKey();
+    private final CryptoSession session = CryptoSession.withKeys(key, null);
+
+    @Test
+    void equalPasswordsEncryptDifferently() {
+        String first = session.encrypt("secret");
+        String second = session.encrypt("secret");
+
+        assertTrue(first.startsWith("v3:"));
+        assertNotEquals(first, second);
+        assertEquals("secret", session.decrypt(first));
+        assertEquals("secret", session.decrypt(second));
+        assertArrayEquals("secret".toCharArray(), session.decryptChars(first));
+    }
+
+    @Test
+    void changedCiphertextFailsToDecrypt() {
+        byte[] sealed = Base64.getDecoder().decode(session.encrypt("secret").substring(3));
+        sealed[sealed.length / 2] ^= 1;
+        String tampered = "v3:" + Base64.getEncoder().encodeToString(sealed);
+
+        assertThrows(RuntimeException.class, () -> session.decrypt(tampered));
+        assertThrows(RuntimeException.class, () -> session.decrypt("v3:AAAA"));
+        assertThrows(RuntimeException.class,
+                () -> CryptoSession.withKeys(CryptoUtils.generateKey(), null).decrypt(session.encrypt("secret")));
+    }
+
+    @Test
+    void readsEntriesFromBeforeGcm() throws Exception {
+        Cipher cipher = CryptoUtils.createCipher(Cipher.ENCRYPT_MODE, key);
+        String entry = "v2:" + Base64.getEncoder().encodeToString(
+                cipher.doFinal("żółw secret".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("żółw secret", session.decrypt(entry));
+        try (SecretBuffer secret = session.decryptSecret(entry)) {
+            assertEquals("żółw secret", secret.toPlainString());
+        }
+    }
+}
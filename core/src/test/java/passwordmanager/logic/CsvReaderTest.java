@@ -0,0 +1,73 @@
+package passwordmanager.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvReaderTest {
+
+    @Test
+    void splitsPlainFields() throws IOException {
+        assertEquals(List.of(List.of("name", "url", "password"), List.of("GitHub", "https://github.com", "s3cret")),
+                rows("name,url,password\nGitHub,https://github.com,s3cret\n"));
+    }
+
+    @Test
+    void quotedFieldsKeepCommasQuotesAndLineBreaks() throws IOException {
+        assertEquals(List.of(List.of("a,b", "say \"hi\"", "two\nlines")),
+                rows("\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\"\n"));
+    }
+
+    @Test
+    void keepsEmptyFields() throws IOException {
+        assertEquals(List.of(List.of("", "x", ""), List.of("")), rows(",x,\n\n"));
+    }
+
+    @Test
+    void acceptsCrlfAndAMissingLastNewline() throws IOException {
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d")), rows("a,b\r\nc,d"));
+    }
+
+    @Test
+    void quoteInsideAnUnquotedFieldIsText() throws IOException {
+        assertEquals(List.of(List.of("5\" screen", "x")), rows("5\" screen,x\n"));
+    }
+
+    @Test
+    void countsLinesInsideQuotedFields() throws IOException {
+        try (CsvReader reader = new CsvReader(new StringReader("\"a\nb\",c\nd\n"))) {
+            reader.readRow();
+            assertEquals(3, reader.getLine());
+            assertEquals(List.of("d"), reader.readRow());
+            assertNull(reader.readRow());
+        }
+    }
+
+    @Test
+    void rejectsUnterminatedQuote() {
+        IOException error = assertThrows(IOException.class, () -> rows("a\n\"open,field\n"));
+        assertTrue(error.getMessage().startsWith("Unterminated quoted field"), error.getMessage());
+    }
+
+    @Test
+    void readsRowsAcrossBufferRefills() throws IOException {
+        String field = "x".repeat(100_000);
+        assertEquals(List.of(List.of(field, "y"), List.of("z")), rows("\"" + field + "\",y\r\nz\n"));
+    }
+
+    private static List<List<String>> rows(String csv) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(new StringReader(csv))) {
+            List<String> row;
+            while ((row = reader.readRow()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
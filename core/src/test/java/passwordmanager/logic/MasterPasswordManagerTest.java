@@ -0,0 +1,151 @@
+package passwordmanager.logic;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MasterPasswordManagerTest {
+
+    private static final String PASSWORD = "Correct-Horse-9!";
+    private static final String OTHER_PASSWORD = "Battery-Staple-7?";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void wrappedKeyUnwrapsOnlyWithItsWrappingKey() {
+        SecretKeySpec key = CryptoUtils.generateKey();
+        SecretKeySpec wrappingKey = CryptoUtils.generateKey();
+        String wrapped = CryptoUtils.wrapKey(key, wrappingKey);
+
+        assertArrayEquals(key.getEncoded(), CryptoUtils.unwrapKey(wrapped, wrappingKey).getEncoded());
+        assertNotEquals(wrapped, CryptoUtils.wrapKey(key, wrappingKey));
+        assertThrows(RuntimeException.class, () -> CryptoUtils.unwrapKey(wrapped, CryptoUtils.generateKey()));
+    }
+
+    @Test
+    void newVaultUnlocksWithItsPasswordOnly() throws IOException {
+        MasterPasswordManager manager = new MasterPasswordManager(directory.toFile());
+        manager.setPassword(PASSWORD);
+
+        CryptoSession session = manager.unlock(PASSWORD);
+        assertNotNull(session);
+        assertEquals("secret", session.decrypt(session.encrypt("secret")));
+        assertNull(manager.unlock(OTHER_PASSWORD));
+        assertTrue(manager.getIterations() >= CryptoSession.KDF_ITERATIONS);
+
+        JsonObject record = readMasterFile();
+        assertFalse(record.has("legacyKey"));
+        assertFalse(record.has("hash"));
+        assertFalse(Files.readString(masterFile().toPath()).contains(PASSWORD));
+    }
+
+    @Test
+    void changingThePasswordKeepsTheDataKey() {
+        MasterPasswordManager manager = new MasterPasswordManager(directory.toFile());
+        manager.setPassword(PASSWORD);
+        String encrypted = manager.unlock(PASSWORD).encrypt("secret");
+
+        assertFalse(manager.changePassword(OTHER_PASSWORD, PASSWORD));
+        assertTrue(manager.changePassword(PASSWORD, OTHER_PASSWORD));
+
+        assertNull(manager.unlock(PASSWORD));
+        assertEquals("secret", manager.unlock(OTHER_PASSWORD).decrypt(encrypted));
+    }
+
+    @Test
+    void upgradesTheOldestFormatAndKeepsItsEntriesReadable() throws IOException {
+        byte[] salt = new byte[16];
+        new SecureRandom().nextBytes(salt);
+        String encodedSalt = Base64.getEncoder().encodeToString(salt);
+        Files.writeString(masterFile().toPath(), sha256(PASSWORD) + "\n" + encodedSalt + "\n");
+        // Entries from before sessions existed, and v2 entries under the key derived from the password and salt.
+        String legacyEntry = CryptoUtils.encrypt("legacy secret", PASSWORD);
+        String v2Entry = CryptoSession.open(PASSWORD, salt).encrypt("v2 secret");
+
+        MasterPasswordManager manager = new MasterPasswordManager(directory.toFile());
+        assertNull(manager.unlock(OTHER_PASSWORD));
+        CryptoSession session = manager.unlock(PASSWORD);
+
+        assertEquals("legacy secret", session.decrypt(legacyEntry));
+        assertEquals("v2 secret", session.decrypt(v2Entry));
+        JsonObject record = readMasterFile();
+        assertTrue(record.has("verifier"));
+        assertTrue(record.has("legacyKey"));
+        assertFalse(record.has("hash"));
+
+        CryptoSession reopened = manager.unlock(PASSWORD);
+        assertEquals("legacy secret", reopened.decrypt(legacyEntry));
+        assertEquals("v2 secret", reopened.decrypt(v2Entry));
+    }
+
+    @Test
+    void failedUpgradeFailsTheUnlock() throws IOException {
+        Files.writeString(masterFile().toPath(), sha256(PASSWORD) + "\n");
+        // A directory where the temporary file goes makes the file unwritable, even for root.
+        Files.createDirectory(directory.resolve("master.hash.tmp"));
+
+        MasterPasswordManager manager = new MasterPasswordManager(directory.toFile());
+        assertThrows(UncheckedIOException.class, () -> manager.unlock(PASSWORD));
+        assertEquals(sha256(PASSWORD) + "\n", Files.readString(masterFile().toPath()));
+    }
+
+    @Test
+    void recalibrateRewritesTheCostOnly() {
+        MasterPasswordManager manager = new MasterPasswordManager(directory.toFile());
+        manager.setPassword(PASSWORD);
+        String encrypted = manager.unlock(PASSWORD).encrypt("secret");
+
+        assertEquals(-1, manager.recalibrate(OTHER_PASSWORD, 50));
+        int iterations = manager.recalibrate(PASSWORD, 50);
+
+        assertEquals(iterations, manager.getIterations());
+        assertEquals("secret", manager.unlock(PASSWORD).decrypt(encrypted));
+    }
+
+    @Test
+    void rejectsAnImplausibleIterationCount() throws IOException {
+        MasterPasswordManager manager = new MasterPasswordManager(directory.toFile());
+        manager.setPassword(PASSWORD);
+        JsonObject record = readMasterFile();
+
+        for (int iterations : new int[] {1_000, CryptoUtils.MIN_ITERATIONS - 1, CryptoUtils.MAX_ITERATIONS + 1}) {
+            record.addProperty("iterations", iterations);
+            Files.writeString(masterFile().toPath(), record.toString());
+
+            assertNull(manager.unlock(PASSWORD));
+            assertFalse(manager.verifyPassword(PASSWORD));
+        }
+    }
+
+    private File masterFile() {
+        return directory.resolve("master.hash").toFile();
+    }
+
+    private JsonObject readMasterFile() throws IOException {
+        return JsonParser.parseString(Files.readString(masterFile().toPath())).getAsJsonObject();
+    }
+
+    private static String sha256(String text) {
+        try {
+            return Base64.getEncoder().encodeToString(
+                    MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
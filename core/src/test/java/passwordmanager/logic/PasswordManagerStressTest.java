@@ -0,0 +1,233 @@
+package passwordmanager.logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import passwordmanager.model.AccountEntry;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A bounded run of the VaultStress benchmark: readers check snapshots and lookups while writers add, edit and
+// remove entries and the vault is saved meanwhile. Afterwards the vault, in memory and reloaded, must hold exactly
+// what the writers left behind.
+class PasswordManagerStressTest {
+
+    private static final int READERS = 4;
+    private static final int WRITERS = 2;
+    private static final int ENTRIES = 1_000;
+    private static final int WRITES = 3_000;
+
+    @TempDir
+    Path directory;
+
+    private final ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+
+    @Test
+    void snapshotsStayConsistentWhileWritersRun() throws Exception {
+        PasswordManager passwordManager = new PasswordManager(directory.toFile());
+        List<Map<String, AccountEntry>> expected = new ArrayList<>();
+        for (int i = 0; i < WRITERS; i++) {
+            expected.add(new HashMap<>());
+        }
+        List<AccountEntry> initial = new ArrayList<>();
+        String[] initialIds = new String[ENTRIES];
+        for (int i = 0; i < ENTRIES; i++) {
+            AccountEntry entry = new AccountEntry("platform-" + (i % 50), "user" + i + "@example.com", "v2:AAAA");
+            expected.get(i % WRITERS).put(entry.getId(), new AccountEntry(entry));
+            initialIds[i] = entry.getId();
+            initial.add(entry);
+        }
+        passwordManager.addEntries(initial);
+        passwordManager.saveToFile();
+
+        CountDownLatch writersDone = new CountDownLatch(WRITERS);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            threads.add(new Thread(() -> read(passwordManager, initialIds, writersDone)));
+        }
+        for (int i = 0; i < WRITERS; i++) {
+            int writer = i;
+            threads.add(new Thread(() -> {
+                try {
+                    write(passwordManager, writer, expected.get(writer));
+                } finally {
+                    writersDone.countDown();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        while (writersDone.getCount() > 0) {
+            passwordManager.saveToFile();
+            Thread.sleep(5);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        verify(passwordManager, expected, "in memory");
+        passwordManager.close();
+        PasswordManager reloaded = new PasswordManager(directory.toFile());
+        reloaded.loadFromFile();
+        verify(reloaded, expected, "reloaded from disk");
+        reloaded.close();
+
+        assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+
+    @Test
+    void lookupsNeverMissAnEntryBeingReplaced() throws Exception {
+        PasswordManager passwordManager = new PasswordManager(directory.toFile());
+        List<AccountEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            entries.add(new AccountEntry("platform-" + i, "user" + i + "@example.com", "v2:AAAA"));
+        }
+        passwordManager.addEntries(entries);
+
+        CountDownLatch writersDone = new CountDownLatch(WRITERS);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            threads.add(new Thread(() -> {
+                while (writersDone.getCount() > 0) {
+                    for (AccountEntry entry : entries) {
+                        if (passwordManager.findById(entry.getId()) == null) {
+                            report("findById(" + entry.getId() + ") missed an entry being replaced");
+                        }
+                    }
+                }
+            }));
+        }
+        for (int i = 0; i < WRITERS; i++) {
+            int writer = i;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int round = 0; round < WRITES; round++) {
+                        // Adding an entry with an id that is already there replaces it.
+                        AccountEntry replacement = new AccountEntry(entries.get(round % entries.size()));
+                        replacement.setLogin("writer" + writer + "-" + round + "@example.com");
+                        passwordManager.addEntry(replacement);
+                    }
+                } finally {
+                    writersDone.countDown();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        passwordManager.close();
+
+        assertEquals(entries.size(), passwordManager.size());
+        assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+
+    private void read(PasswordManager passwordManager, String[] initialIds, CountDownLatch writersDone) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (writersDone.getCount() > 0) {
+            int operation = random.nextInt(100);
+            if (operation < 5) {
+                checkSnapshot(passwordManager.snapshot());
+            } else if (operation < 15) {
+                String platform = "platform-" + random.nextInt(50);
+                for (AccountEntry entry : passwordManager.findByPlatform(platform)) {
+                    if (!platform.equals(entry.getPlatform())) {
+                        report("findByPlatform(" + platform + ") returned " + entry.getPlatform());
+                    }
+                }
+            } else {
+                // May have been removed meanwhile; if it is there, it must be the right one.
+                String id = initialIds[random.nextInt(initialIds.length)];
+                AccountEntry entry = passwordManager.findById(id);
+                if (entry != null && !id.equals(entry.getId())) {
+                    report("findById(" + id + ") returned " + entry.getId());
+                }
+            }
+        }
+    }
+
+    // Each writer only touches the entries it owns, so it knows their final state.
+    private static void write(PasswordManager passwordManager, int writer, Map<String, AccountEntry> owned) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<String> ids = new ArrayList<>(owned.keySet());
+        for (int sequence = 0; sequence < WRITES; sequence++) {
+            int operation = random.nextInt(10);
+            int index = ids.isEmpty() ? -1 : random.nextInt(ids.size());
+            String id = index < 0 ? null : ids.get(index);
+            if (operation < 3 || id == null) {
+                AccountEntry entry = new AccountEntry("platform-" + random.nextInt(50),
+                        "writer" + writer + "-" + sequence + "@example.com", "v2:AAAA");
+                owned.put(entry.getId(), new AccountEntry(entry));
+                ids.add(entry.getId());
+                passwordManager.addEntry(entry);
+            } else if (operation < 8) {
+                AccountEntry updated = new AccountEntry(owned.get(id));
+                updated.setLogin("edited" + sequence + "@example.com");
+                updated.setPassword("v2:BBBB");
+                owned.put(id, new AccountEntry(updated));
+                passwordManager.updateEntry(updated);
+            } else {
+                ids.set(index, ids.get(ids.size() - 1));
+                ids.remove(ids.size() - 1);
+                passwordManager.removeEntry(owned.remove(id));
+            }
+        }
+    }
+
+    // A snapshot must be internally consistent and must not change, whatever the writers do meanwhile.
+    private void checkSnapshot(Vault.Snapshot snapshot) {
+        List<AccountEntry> entries = snapshot.entries();
+        List<AccountEntry> sorted = snapshot.sortedEntries();
+        if (entries.size() != snapshot.size() || sorted.size() != snapshot.size()) {
+            report("snapshot sizes differ: " + entries.size() + ", " + sorted.size() + ", " + snapshot.size());
+            return;
+        }
+        Set<String> ids = new HashSet<>();
+        for (AccountEntry entry : entries) {
+            if (!ids.add(entry.getId())) report("snapshot holds " + entry.getId() + " twice");
+        }
+        for (AccountEntry entry : sorted) {
+            if (!ids.contains(entry.getId())) report("snapshot orders differ at " + entry.getId());
+        }
+        Thread.yield();
+        if (snapshot.entries().size() != ids.size()) report("snapshot changed while it was read");
+    }
+
+    private void verify(PasswordManager passwordManager, List<Map<String, AccountEntry>> expected, String stage) {
+        int total = 0;
+        for (Map<String, AccountEntry> owned : expected) {
+            total += owned.size();
+            for (AccountEntry entry : owned.values()) {
+                AccountEntry actual = passwordManager.findById(entry.getId());
+                if (actual == null) {
+                    report(stage + ": " + entry.getId() + " is missing");
+                } else if (!entry.getLogin().equals(actual.getLogin())
+                        || !entry.getPassword().equals(actual.getPassword())) {
+                    report(stage + ": " + entry.getId() + " has an old version");
+                }
+            }
+        }
+        if (passwordManager.size() != total) {
+            report(stage + ": " + passwordManager.size() + " entries, expected " + total);
+        }
+        checkSnapshot(passwordManager.snapshot());
+    }
+
+    // Keeps the first few failures; one bad run can otherwise report thousands.
+    private void report(String failure) {
+        if (failures.size() < 20) failures.add(failure);
+    }
+}
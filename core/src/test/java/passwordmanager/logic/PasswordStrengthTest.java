@@ -0,0 +1,75 @@
+package passwordmanager.logic;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordStrengthTest {
+
+    @Test
+    void policyNeedsLengthAndEveryClass() {
+        assertTrue(PasswordStrength.meetsPolicy("Tr0ub4d&r"));
+        assertFalse(PasswordStrength.meetsPolicy("Tr0b4d&"));
+        assertFalse(PasswordStrength.meetsPolicy("troub4d&r"));
+        assertFalse(PasswordStrength.meetsPolicy("TROUB4D&R"));
+        assertFalse(PasswordStrength.meetsPolicy("Troubad&r"));
+        assertFalse(PasswordStrength.meetsPolicy("Troub4dor"));
+        assertFalse(PasswordStrength.meetsPolicy(null));
+    }
+
+    @Test
+    void classifiesCharacters() {
+        assertEquals(PasswordStrength.ALL_CLASSES, PasswordStrength.characterClasses("aB3!"));
+        assertEquals(PasswordStrength.LOWER | PasswordStrength.DIGIT, PasswordStrength.characterClasses("abc123"));
+        // Anything outside ASCII letters and digits counts as special.
+        assertEquals(PasswordStrength.SPECIAL, PasswordStrength.characterClasses("é €"));
+    }
+
+    @Test
+    void findsRepeatsSequencesAndKeyboardWalks() {
+        assertTrue(PasswordStrength.evaluate("xaaay").has(PasswordStrength.REPEATS));
+        assertFalse(PasswordStrength.evaluate("xaay").has(PasswordStrength.REPEATS));
+        assertTrue(PasswordStrength.evaluate("x4567y").has(PasswordStrength.SEQUENCE));
+        assertTrue(PasswordStrength.evaluate("xcbay").has(PasswordStrength.SEQUENCE));
+        assertFalse(PasswordStrength.evaluate("xacey").has(PasswordStrength.SEQUENCE));
+        assertTrue(PasswordStrength.evaluate("1qwer!").has(PasswordStrength.KEYBOARD_WALK));
+        assertTrue(PasswordStrength.evaluate("ASDF").has(PasswordStrength.KEYBOARD_WALK));
+        // Staggered rows: "q", "a" and "z" sit diagonally above one another.
+        assertTrue(PasswordStrength.evaluate("qaz").has(PasswordStrength.KEYBOARD_WALK));
+    }
+
+    @Test
+    void patternsScoreLowerThanRandomText() {
+        PasswordStrength.Result random = PasswordStrength.evaluate("Xk9#mQ2!vR7p");
+        PasswordStrength.Result walk = PasswordStrength.evaluate("Qwerty123!@#");
+
+        assertTrue(random.getEntropyBits() > walk.getEntropyBits());
+        assertTrue(walk.has(PasswordStrength.KEYBOARD_WALK));
+        assertTrue(walk.has(PasswordStrength.SEQUENCE));
+    }
+
+    @Test
+    void levels() {
+        assertEquals(PasswordStrength.Level.VERY_WEAK, PasswordStrength.evaluate("").getLevel());
+        assertEquals(PasswordStrength.Level.VERY_WEAK, PasswordStrength.evaluate("aaaaaaaaaaaa").getLevel());
+        assertEquals(PasswordStrength.Level.VERY_WEAK, PasswordStrength.evaluate("password").getLevel());
+        assertEquals(PasswordStrength.Level.STRONG, PasswordStrength.evaluate("Xk9#mQ2!vR7p").getLevel());
+    }
+
+    @Test
+    void shortPasswordsAreAtMostWeak() {
+        PasswordStrength.Result result = PasswordStrength.evaluate("Xk9#mQ2");
+
+        assertTrue(result.has(PasswordStrength.TOO_SHORT));
+        assertTrue(result.getLevel().compareTo(PasswordStrength.Level.WEAK) <= 0);
+        assertTrue(result.reasons().contains("shorter than 8 characters"));
+    }
+
+    @Test
+    void reasonsNameMissingClasses() {
+        assertEquals(List.of("no uppercase letter", "no digit", "no special character"),
+                PasswordStrength.evaluate("horsebattery").reasons());
+    }
+}
@@ -0,0 +1,126 @@
+package passwordmanager.logic;
+
+import org.junit.jupiter.api.Test;
+import passwordmanager.model.AccountEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchIndexTest {
+
+    private final SearchIndex index = new SearchIndex();
+
+    @Test
+    void exactMatchComesBeforePrefixMatches() {
+        AccountEntry githubEnterprise = add("GitHub Enterprise", "carol");
+        AccountEntry git = add("Git", "alice");
+        AccountEntry github = add("GitHub", "bob");
+
+        assertEquals(List.of(git, github, githubEnterprise), index.search("git", 10));
+        assertEquals(List.of(github, githubEnterprise), index.search("  GITHUB ", 10));
+    }
+
+    @Test
+    void findsLogins() {
+        AccountEntry entry = add("Example", "alice@example.com");
+
+        assertEquals(List.of(entry), index.search("alice", 10));
+    }
+
+    @Test
+    void fuzzyMatchesRankByTrigramSimilarity() {
+        AccountEntry github = add("github", "x1");
+        AccountEntry githubEnterprise = add("githubenterprise", "x2");
+        add("gitlab", "x3");
+        add("bitbucket", "x4");
+
+        List<AccountEntry> results = index.search("githup", 10);
+
+        assertEquals(List.of(github, githubEnterprise), results.subList(0, 2));
+        assertFalse(results.stream().anyMatch(entry -> entry.getPlatform().equals("bitbucket")));
+    }
+
+    @Test
+    void repeatedTrigramsDoNotLowerTheScore() {
+        // Both share three trigrams with the query, but "aaaaaaaa" has only four distinct ones against nine, so it
+        // is the closer match although both are eight characters long. Ties would go to the older term.
+        AccountEntry mixed = add("aaaxyzaa", "x1");
+        AccountEntry repeated = add("aaaaaaaa", "x2");
+
+        assertEquals(List.of(repeated, mixed), index.search("aaaaab", 10));
+    }
+
+    @Test
+    void respectsTheLimit() {
+        for (int i = 0; i < 20; i++) {
+            add("service" + i, "login" + i);
+        }
+
+        assertEquals(5, index.search("service", 5).size());
+        assertTrue(index.search("service", 0).isEmpty());
+        assertTrue(index.search("   ", 5).isEmpty());
+    }
+
+    @Test
+    void removedEntriesAreNotFound() {
+        AccountEntry kept = add("GitHub", "alice");
+        AccountEntry removed = add("GitHub", "bob");
+        remove(removed);
+
+        assertEquals(List.of(kept), index.search("github", 10));
+        remove(kept);
+        assertTrue(index.search("github", 10).isEmpty());
+        assertTrue(index.search("githup", 10).isEmpty());
+    }
+
+    @Test
+    void staysCorrectWhileTermsComeAndGo() {
+        AccountEntry github = add("github", "alice");
+        for (int round = 0; round < 10; round++) {
+            List<AccountEntry> added = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                added.add(add("platform" + round + "-" + i, "login" + round + "-" + i));
+            }
+            for (AccountEntry entry : added) {
+                remove(entry);
+            }
+        }
+        AccountEntry gitlab = add("gitlab", "bob");
+
+        assertEquals(github, index.search("githb", 10).get(0));
+        assertEquals(List.of(github, gitlab), index.search("git", 10));
+        assertTrue(index.search("platform", 10).isEmpty());
+    }
+
+    @Test
+    void newTermsStillMatchPastThePostingBound() {
+        // 801 terms hold each of the query's first three trigrams, more than the bound allows for all three lists.
+        // The last of those lists is then checked per candidate, so the newest term keeps all three shared trigrams.
+        for (int i = 0; i < 800; i++) {
+            add("wxy" + i, "login" + i);
+        }
+        for (int i = 0; i < 900; i++) {
+            add("a" + i + "xyz", "user" + i);
+        }
+        AccountEntry newest = add("wxyq", "newest");
+
+        assertTrue(index.search("wxyz", 2_000).contains(newest));
+    }
+
+    private AccountEntry add(String platform, String login) {
+        AccountEntry entry = new AccountEntry(platform, login, "v2:AAAA");
+        index.add(entry, key(platform), key(login));
+        return entry;
+    }
+
+    private void remove(AccountEntry entry) {
+        index.remove(entry, key(entry.getPlatform()), key(entry.getLogin()));
+    }
+
+    private static String key(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+}
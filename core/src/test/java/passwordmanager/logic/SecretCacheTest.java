@@ -0,0 +1,122 @@
+package passwordmanager.logic;
+
+import org.junit.jupiter.api.Test;
+import passwordmanager.model.AccountEntry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecretCacheTest {
+
+    private final CryptoSession session = CryptoSession.withKeys(CryptoUtils.generateKey(), null);
+
+    @Test
+    void secondReadIsAHit() {
+        try (SecretCache cache = new SecretCache(session, 4, 60_000)) {
+            AccountEntry entry = entry("a", "first");
+
+            assertEquals("first", cache.reveal(entry));
+            assertEquals("first", cache.reveal(entry));
+            assertEquals(1, cache.getHits());
+            assertEquals(1, cache.getMisses());
+            assertEquals(1, cache.size());
+        }
+    }
+
+    @Test
+    void changedPasswordIsDecryptedAgain() {
+        try (SecretCache cache = new SecretCache(session, 4, 60_000)) {
+            AccountEntry entry = entry("a", "first");
+            cache.reveal(entry);
+            entry.setPassword(session.encrypt("second"));
+
+            assertEquals("second", cache.reveal(entry));
+            assertEquals(2, cache.getMisses());
+            assertEquals(0, cache.getEvictions());
+        }
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedSecret() {
+        try (SecretCache cache = new SecretCache(session, 2, 60_000)) {
+            AccountEntry a = entry("a", "one");
+            AccountEntry b = entry("b", "two");
+            AccountEntry c = entry("c", "three");
+            cache.reveal(a);
+            cache.reveal(b);
+            cache.reveal(a);
+            cache.reveal(c);
+
+            assertEquals(2, cache.size());
+            assertEquals(1, cache.getEvictions());
+            long misses = cache.getMisses();
+            cache.reveal(a);
+            assertEquals(misses, cache.getMisses());
+            cache.reveal(b);
+            assertEquals(misses + 1, cache.getMisses());
+        }
+    }
+
+    @Test
+    void idleSecretsExpire() throws InterruptedException {
+        try (SecretCache cache = new SecretCache(session, 4, 20)) {
+            AccountEntry entry = entry("a", "first");
+            cache.reveal(entry);
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (cache.size() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+
+            assertEquals(0, cache.size());
+            assertEquals(1, cache.getEvictions());
+            assertEquals("first", cache.reveal(entry));
+            assertEquals(2, cache.getMisses());
+        }
+    }
+
+    @Test
+    void clearAndInvalidateAreNotEvictions() {
+        try (SecretCache cache = new SecretCache(session, 4, 60_000)) {
+            AccountEntry a = entry("a", "one");
+            cache.reveal(a);
+            cache.reveal(entry("b", "two"));
+            cache.invalidate("a");
+            assertEquals(1, cache.size());
+            cache.clear();
+
+            assertEquals(0, cache.size());
+            assertEquals(0, cache.getEvictions());
+            assertEquals("one", cache.reveal(a));
+        }
+    }
+
+    @Test
+    void bulkReadsDoNotFillTheCache() {
+        try (SecretCache cache = new SecretCache(session, 4, 60_000)) {
+            AccountEntry entry = entry("a", "first");
+            try (SecretBuffer secret = cache.peekOrDecrypt(entry)) {
+                assertEquals("first", secret.toPlainString());
+            }
+            assertEquals(0, cache.size());
+
+            cache.reveal(entry);
+            SecretBuffer copy = cache.peekOrDecrypt(entry);
+            copy.close();
+            assertEquals("first", cache.reveal(entry));
+        }
+    }
+
+    @Test
+    void zeroCapacityCachesNothing() {
+        try (SecretCache cache = new SecretCache(session, 0, 60_000)) {
+            AccountEntry entry = entry("a", "first");
+
+            assertEquals("first", cache.reveal(entry));
+            assertEquals(0, cache.size());
+            assertEquals(0, cache.getEvictions());
+        }
+    }
+
+    private AccountEntry entry(String id, String password) {
+        return new AccountEntry(id, "platform", "login", session.encrypt(password));
+    }
+}
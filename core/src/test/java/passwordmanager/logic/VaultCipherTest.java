@@ -0,0 +1,173 @@
+package passwordmanager.logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VaultCipherTest {
+
+    private static final int CHUNK_SIZE = VaultCipher.DEFAULT_CHUNK_SIZE;
+    // A sealed chunk is its nonce, its ciphertext and its tag.
+    private static final int STRIDE = CHUNK_SIZE + 12 + 16;
+    private static final int PLAIN_LENGTH = 2 * CHUNK_SIZE + 1000;
+
+    private final VaultCipher cipher = new VaultCipher(new SecretKeySpec(new byte[32], "AES"));
+    private final byte[] plain = randomBytes(PLAIN_LENGTH);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void chunksDecryptBackToThePlaintext() throws IOException {
+        File file = encrypt(file("vault"));
+
+        assertTrue(VaultCipher.isEncrypted(file));
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            VaultCipher.ChunkReader reader = cipher.open(channel);
+            assertEquals(3, reader.chunkCount());
+            assertEquals(PLAIN_LENGTH, reader.length());
+            ByteBuffer joined = ByteBuffer.allocate(PLAIN_LENGTH);
+            // In any order: each chunk decrypts on its own.
+            for (int index : new int[]{2, 0, 1}) {
+                ByteBuffer chunk = reader.read(index);
+                joined.put(index * CHUNK_SIZE, chunk, 0, chunk.limit());
+            }
+            assertArrayEquals(plain, joined.array());
+        }
+    }
+
+    @Test
+    void alteredChunkFailsAlone() throws IOException {
+        File file = encrypt(file("vault"));
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            long position = VaultCipher.HEADER_SIZE + STRIDE + 100;
+            raw.seek(position);
+            int b = raw.read();
+            raw.seek(position);
+            raw.write(b ^ 1);
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            VaultCipher.ChunkReader reader = cipher.open(channel);
+            assertEquals(CHUNK_SIZE, reader.read(0).limit());
+            assertThrows(IOException.class, () -> reader.read(1));
+            assertEquals(1000, reader.read(2).limit());
+        }
+    }
+
+    @Test
+    void swappedChunksFail() throws IOException {
+        File file = encrypt(file("vault"));
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        byte[] first = Arrays.copyOfRange(bytes, VaultCipher.HEADER_SIZE, VaultCipher.HEADER_SIZE + STRIDE);
+        System.arraycopy(bytes, VaultCipher.HEADER_SIZE + STRIDE, bytes, VaultCipher.HEADER_SIZE, STRIDE);
+        System.arraycopy(first, 0, bytes, VaultCipher.HEADER_SIZE + STRIDE, STRIDE);
+        Files.write(file.toPath(), bytes);
+
+        assertChunkFails(file, 0);
+        assertChunkFails(file, 1);
+    }
+
+    @Test
+    void chunkFromAnotherFileFails() throws IOException {
+        File file = encrypt(file("vault"));
+        File other = encrypt(file("other"));
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        byte[] otherBytes = Files.readAllBytes(other.toPath());
+        // Same key, same plaintext and same position, but the chunk authenticates its own file's header.
+        System.arraycopy(otherBytes, VaultCipher.HEADER_SIZE, bytes, VaultCipher.HEADER_SIZE, STRIDE);
+        Files.write(file.toPath(), bytes);
+
+        assertChunkFails(file, 0);
+    }
+
+    @Test
+    void cutOffLastChunkFails() throws IOException {
+        File file = encrypt(file("vault"));
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.setLength(VaultCipher.HEADER_SIZE + 2L * STRIDE);
+        }
+
+        // Chunk 1 is now the last one in the file, but was not sealed as the last one.
+        assertChunkFails(file, 1);
+    }
+
+    @Test
+    void rejectsAnImplausibleChunkSize() throws IOException {
+        for (int chunkSize : new int[]{0, -16, CHUNK_SIZE + 1, 64 * 1024 * 1024}) {
+            File file = encrypt(file("vault" + chunkSize));
+            try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+                raw.seek(8);
+                raw.writeInt(chunkSize);
+            }
+
+            try (FileChannel channel = FileChannel.open(file.toPath())) {
+                IOException error = assertThrows(IOException.class, () -> cipher.open(channel));
+                assertEquals("Damaged encrypted vault file header", error.getMessage());
+            }
+        }
+    }
+
+    @Test
+    void journalLinesAreBoundToTheirJournalAndPosition() throws IOException {
+        byte[] journalId = VaultCipher.newJournalId();
+        String line = cipher.encryptLine("{\"op\":\"ADD\"}", journalId, 5);
+
+        assertEquals("{\"op\":\"ADD\"}", cipher.decryptLine(line, journalId, 5));
+        assertThrows(IOException.class, () -> cipher.decryptLine(line, journalId, 4));
+        assertThrows(IOException.class, () -> cipher.decryptLine(line, VaultCipher.newJournalId(), 5));
+        assertThrows(IOException.class, () -> cipher.decryptLine(line));
+        assertNotEquals(line, cipher.encryptLine("{\"op\":\"ADD\"}", journalId, 5));
+    }
+
+    @Test
+    void unboundLinesRoundTrip() throws IOException {
+        String line = cipher.encryptLine("quarantined");
+
+        assertEquals("quarantined", cipher.decryptLine(line));
+        assertThrows(IOException.class, () -> cipher.decryptLine(line, VaultCipher.newJournalId(), 0));
+        assertThrows(IOException.class, () -> cipher.decryptLine("not base64!"));
+        assertThrows(IOException.class, () -> cipher.decryptLine("AAAA"));
+        assertThrows(IOException.class,
+                () -> new VaultCipher(new SecretKeySpec(new byte[32], 0, 16, "AES")).decryptLine(line));
+    }
+
+    private File encrypt(File file) throws IOException {
+        try (VaultCipher.EncryptingStream output = cipher.encrypt(new FileOutputStream(file))) {
+            output.write(plain, 0, 5000);
+            output.write(plain, 5000, PLAIN_LENGTH - 5000);
+        }
+        return file;
+    }
+
+    private void assertChunkFails(File file, int index) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath())) {
+            VaultCipher.ChunkReader reader = cipher.open(channel);
+            IOException error = assertThrows(IOException.class, () -> reader.read(index));
+            assertEquals("Encrypted vault file chunk " + index + " failed authentication", error.getMessage());
+        }
+    }
+
+    private File file(String name) {
+        return directory.resolve(name).toFile();
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,166 @@
+package passwordmanager.logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import passwordmanager.model.AccountEntry;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VaultFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackEveryEntryInOrder() throws IOException {
+        List<AccountEntry> entries = entries(50);
+        VaultFile.write(file(), entries);
+
+        try (VaultFile vault = VaultFile.open(file())) {
+            assertEquals(50, vault.size());
+            assertEquals(ids(entries), ids(readAll(vault)));
+            assertEquals("platform7", vault.read(entries.get(7).getId()).getPlatform());
+            assertNull(vault.read(UUID.randomUUID().toString()));
+            assertNull(vault.read(null));
+        }
+    }
+
+    @Test
+    void looksUpIdsThatAreNotUuids() throws IOException {
+        VaultFile.write(file(), List.of(new AccountEntry("legacy-1", "a", "x", "v2:AAAA"),
+                new AccountEntry("legacy-2", "b", "y", "v2:AAAA")));
+
+        try (VaultFile vault = VaultFile.open(file())) {
+            assertEquals("b", vault.read("legacy-2").getPlatform());
+            assertNull(vault.read("legacy-3"));
+        }
+    }
+
+    @Test
+    void skipsARecordWithABadChecksum() throws IOException {
+        List<AccountEntry> entries = entries(3);
+        VaultFile.write(file(), entries);
+        try (RandomAccessFile raw = new RandomAccessFile(file(), "rw")) {
+            // The 32-byte header and three 24-byte index slots come first; flip a byte inside the first record's entry.
+            long position = 32 + 3 * 24 + 16 + 20;
+            raw.seek(position);
+            int b = raw.read();
+            raw.seek(position);
+            raw.write(b ^ 0xFF);
+        }
+
+        try (VaultFile vault = VaultFile.open(file())) {
+            assertEquals(ids(entries.subList(1, 3)), ids(readAll(vault)));
+            assertEquals(1, vault.getSkippedCount());
+            assertNull(vault.read(entries.get(0).getId()));
+        }
+    }
+
+    @Test
+    void updatesAndRemovesInPlace() throws IOException {
+        List<AccountEntry> entries = entries(3);
+        VaultFile.write(file(), entries);
+        long length = file().length();
+
+        try (VaultFile vault = VaultFile.openForUpdate(file())) {
+            AccountEntry changed = new AccountEntry(entries.get(1));
+            changed.setLogin("renamed");
+            assertTrue(vault.update(changed));
+            assertTrue(vault.remove(entries.get(2).getId()));
+            assertFalse(vault.remove(entries.get(2).getId()));
+            vault.force();
+        }
+
+        assertEquals(length, file().length());
+        try (VaultFile vault = VaultFile.open(file())) {
+            assertEquals(2, vault.size());
+            assertEquals(1, vault.getDeletedCount());
+            assertEquals("renamed", vault.read(entries.get(1).getId()).getLogin());
+            assertNull(vault.read(entries.get(2).getId()));
+            assertEquals(ids(entries.subList(0, 2)), ids(readAll(vault)));
+        }
+    }
+
+    @Test
+    void updateThatNoLongerFitsIsRefused() throws IOException {
+        List<AccountEntry> entries = entries(1);
+        VaultFile.write(file(), entries);
+
+        try (VaultFile vault = VaultFile.openForUpdate(file())) {
+            AccountEntry changed = new AccountEntry(entries.get(0));
+            changed.setLogin("x".repeat(100));
+            assertFalse(vault.update(changed));
+            assertFalse(vault.update(new AccountEntry("platform", "login", "v2:AAAA")));
+        }
+    }
+
+    @Test
+    void readOnlyOpenRefusesChanges() throws IOException {
+        List<AccountEntry> entries = entries(2);
+        VaultFile.write(file(), entries);
+        byte[] before = Files.readAllBytes(file().toPath());
+
+        try (VaultFile vault = VaultFile.open(file())) {
+            assertFalse(vault.update(entries.get(0)));
+            assertFalse(vault.remove(entries.get(1).getId()));
+            vault.force();
+        }
+
+        assertArrayEquals(before, Files.readAllBytes(file().toPath()));
+    }
+
+    @Test
+    void encryptedFileNeedsTheCipher() throws IOException {
+        VaultCipher cipher = new VaultCipher(new SecretKeySpec(new byte[32], "AES"));
+        List<AccountEntry> entries = entries(200);
+        VaultFile.write(file(), entries, cipher);
+
+        assertTrue(VaultCipher.isEncrypted(file()));
+        assertThrows(IOException.class, () -> VaultFile.open(file()));
+        try (VaultFile vault = VaultFile.open(file(), cipher)) {
+            assertEquals(ids(entries), ids(readAll(vault)));
+            assertEquals("platform123", vault.read(entries.get(123).getId()).getPlatform());
+            assertFalse(vault.remove(entries.get(0).getId()));
+        }
+        assertThrows(IOException.class, () -> VaultFile.openForUpdate(file()).close());
+    }
+
+    @Test
+    void rejectsFilesThatAreNotVaults() throws IOException {
+        Files.writeString(file().toPath(), "{\"entries\": []}\n".repeat(4));
+
+        assertThrows(IOException.class, () -> VaultFile.open(file()));
+    }
+
+    private File file() {
+        return directory.resolve("passwords.vault").toFile();
+    }
+
+    private static List<AccountEntry> entries(int count) {
+        List<AccountEntry> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            entries.add(new AccountEntry("platform" + i, "login" + i, "v2:AAECAwQFBgcICQoLDA0ODw=="));
+        }
+        return entries;
+    }
+
+    private static List<AccountEntry> readAll(VaultFile vault) throws IOException {
+        List<AccountEntry> entries = new ArrayList<>();
+        vault.forEach(entries::add);
+        return entries;
+    }
+
+    private static List<String> ids(List<AccountEntry> entries) {
+        return entries.stream().map(AccountEntry::getId).toList();
+    }
+}
@@ -0,0 +1,268 @@
+package passwordmanager.logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import passwordmanager.model.AccountEntry;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VaultJournalTest {
+
+    private static final VaultCipher CIPHER = new VaultCipher(new SecretKeySpec(new byte[32], "AES"));
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysRecordsInOrder() throws IOException {
+        VaultJournal journal = journal();
+        journal.append(add("a"));
+        journal.append(new VaultJournal.Record(VaultJournal.REMOVE, "a", null));
+        journal.append(add("b"));
+        journal.flushPending();
+        journal.close();
+
+        assertEquals(List.of("ADD a", "REMOVE a", "ADD b"), replay(journal()));
+    }
+
+    @Test
+    void skipsTornLastLine() throws IOException {
+        VaultJournal journal = journal();
+        journal.append(add("a"));
+        journal.append(add("b"));
+        journal.flushPending();
+        journal.close();
+        truncate(file(), 10);
+
+        assertEquals(List.of("ADD a"), replay(journal()));
+    }
+
+    @Test
+    void appendsAfterTornLineOnANewLine() throws IOException {
+        VaultJournal journal = journal();
+        journal.append(add("a"));
+        journal.append(add("b"));
+        journal.flushPending();
+        journal.close();
+        truncate(file(), 10);
+
+        VaultJournal reopened = journal();
+        reopened.append(add("c"));
+        reopened.flushPending();
+        reopened.close();
+
+        assertEquals(List.of("ADD a", "ADD c"), replay(journal()));
+    }
+
+    @Test
+    void skipsOnlyTheDamagedLine() throws IOException {
+        Files.writeString(file().toPath(), "{\"op\":\"ADD\",\"id\":\"a\"}\n{\"op\":\"ADD\",\"id\n{\"op\":\"ADD\",\"id\":\"c\"}\n",
+                StandardCharsets.UTF_8);
+
+        assertEquals(List.of("ADD a", "ADD c"), replay(journal()));
+    }
+
+    @Test
+    void rolledRecordsAreReplayedFirst() throws IOException {
+        VaultJournal journal = journal();
+        journal.append(add("a"));
+        journal.markRoll();
+        journal.append(add("b"));
+        journal.flushPending();
+
+        assertTrue(journal.hasRolledFile());
+        assertEquals(List.of("ADD a", "ADD b"), replay(journal));
+        journal.close();
+    }
+
+    @Test
+    void rollKeepsALeftoverRolledFile() throws IOException {
+        VaultJournal journal = journal();
+        journal.append(add("a"));
+        journal.markRoll();
+        journal.append(add("b"));
+        journal.markRoll();
+        journal.append(add("c"));
+        journal.flushPending();
+        journal.close();
+
+        assertEquals(List.of("ADD a", "ADD b", "ADD c"), replay(journal()));
+        journal.reset();
+        assertFalse(journal.hasRolledFile());
+        assertFalse(file().exists());
+    }
+
+    @Test
+    void sizeCountsEncodedBytes() throws IOException {
+        VaultJournal journal = journal();
+        journal.append(new VaultJournal.Record(VaultJournal.ADD, "a", new AccountEntry("a", "Żółw", "łoś", "ćma")));
+        long queued = journal.size();
+        journal.flushPending();
+        journal.close();
+
+        assertEquals(file().length(), queued);
+        assertEquals(file().length(), journal().size());
+    }
+
+    @Test
+    void encryptedTornLastLineIsSkipped() throws IOException {
+        VaultJournal journal = encryptedJournal();
+        journal.append(add("a"));
+        journal.append(add("b"));
+        journal.flushPending();
+        journal.close();
+        truncate(file(), 10);
+
+        VaultJournal reopened = encryptedJournal();
+        assertEquals(List.of("ADD a"), replay(reopened));
+        reopened.append(add("c"));
+        reopened.flushPending();
+        reopened.close();
+
+        assertEquals(List.of("ADD a", "ADD c"), replay(encryptedJournal()));
+    }
+
+    @Test
+    void droppedEncryptedLineFailsTheReplay() throws IOException {
+        writeEncrypted("a", "b", "c", "d");
+        List<String> lines = lines();
+        // Line 0 is the header. Dropping "b" makes "c" fail to authenticate, and "d" after it shows it was not torn.
+        lines.remove(2);
+        Files.write(file().toPath(), lines);
+        byte[] before = Files.readAllBytes(file().toPath());
+
+        assertThrows(UncheckedIOException.class, () -> replay(encryptedJournal()));
+        assertArrayEquals(before, Files.readAllBytes(file().toPath()));
+    }
+
+    @Test
+    void failedReplayKeepsTheJournalThroughASave() throws IOException {
+        writeEncrypted("a", "b", "c", "d");
+        List<String> lines = lines();
+        lines.remove(2);
+        Files.write(file().toPath(), lines);
+        byte[] before = Files.readAllBytes(file().toPath());
+
+        PasswordManager passwordManager = new PasswordManager(directory.toFile());
+        passwordManager.setCipher(CIPHER);
+        passwordManager.loadFromFile();
+        assertFalse(passwordManager.saveToFile());
+        passwordManager.close();
+        assertArrayEquals(before, Files.readAllBytes(file().toPath()));
+    }
+
+    @Test
+    void strippedHeaderFailsTheReplay() throws IOException {
+        writeEncrypted("a", "b");
+        List<String> lines = lines();
+        lines.remove(0);
+        Files.write(file().toPath(), lines);
+
+        assertThrows(UncheckedIOException.class, () -> replay(encryptedJournal()));
+    }
+
+    @Test
+    void damagedHeaderFailsTheReplay() throws IOException {
+        writeEncrypted("a", "b");
+        List<String> lines = lines();
+        lines.set(0, "#journal AAAA");
+        Files.write(file().toPath(), lines);
+
+        assertThrows(UncheckedIOException.class, () -> replay(encryptedJournal()));
+    }
+
+    @Test
+    void lockedJournalRefusesPlainRecords() throws IOException {
+        VaultJournal journal = journal();
+        journal.setCipher(CIPHER);
+        journal.append(add("a"));
+        journal.setCipher(null);
+
+        assertFalse(journal.isWritable());
+        assertThrows(IllegalStateException.class, () -> journal.append(add("b")));
+        journal.flushPending();
+        journal.close();
+        assertFalse(Files.readString(file().toPath()).contains("{"));
+    }
+
+    @Test
+    void lockedVaultIsNotChanged() {
+        PasswordManager passwordManager = new PasswordManager(directory.toFile());
+        passwordManager.setCipher(CIPHER);
+        AccountEntry entry = new AccountEntry("platform", "login", "v2:AAAA");
+        passwordManager.addEntry(entry);
+        passwordManager.setCipher(null);
+
+        assertThrows(IllegalStateException.class, () -> passwordManager.removeEntry(entry));
+        assertThrows(IllegalStateException.class,
+                () -> passwordManager.addEntry(new AccountEntry("platform", "other", "v2:AAAA")));
+        assertEquals(1, passwordManager.size());
+        passwordManager.close();
+    }
+
+    @Test
+    void removingAMissingEntryIsNotJournaled() {
+        PasswordManager passwordManager = new PasswordManager(directory.toFile());
+        AccountEntry entry = new AccountEntry("a", "platform", "login", "v2:AAAA");
+        passwordManager.addEntry(entry);
+        passwordManager.removeEntry(entry);
+        passwordManager.removeEntry(entry);
+        passwordManager.removeEntry(new AccountEntry("b", "platform", "login", "v2:AAAA"));
+        passwordManager.close();
+
+        assertEquals(List.of("ADD a", "REMOVE a"), replay(journal()));
+    }
+
+    private VaultJournal journal() {
+        return new VaultJournal(file().getPath());
+    }
+
+    private VaultJournal encryptedJournal() {
+        VaultJournal journal = journal();
+        journal.setCipher(CIPHER);
+        return journal;
+    }
+
+    private void writeEncrypted(String... ids) throws IOException {
+        VaultJournal journal = encryptedJournal();
+        for (String id : ids) {
+            journal.append(add(id));
+        }
+        journal.flushPending();
+        journal.close();
+    }
+
+    private List<String> lines() throws IOException {
+        return new ArrayList<>(Files.readAllLines(file().toPath()));
+    }
+
+    private File file() {
+        return directory.resolve("passwords.journal").toFile();
+    }
+
+    private static VaultJournal.Record add(String id) {
+        return new VaultJournal.Record(VaultJournal.ADD, id, new AccountEntry(id, "platform", "login", "password"));
+    }
+
+    private static List<String> replay(VaultJournal journal) {
+        List<String> records = new ArrayList<>();
+        journal.replay(record -> records.add(record.getOp() + " " + record.getId()));
+        return records;
+    }
+
+    private static void truncate(File file, int bytes) throws IOException {
+        byte[] content = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(content, content.length - bytes));
+    }
+}
@@ -0,0 +1,84 @@
+package passwordmanager.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountEntryCodecTest {
+
+    @Test
+    void roundTripsEveryPasswordKind() {
+        assertRoundTrip(new AccountEntry(UUID.randomUUID().toString(), "GitHub", "alice", "v2:AAECAwQ="));
+        assertRoundTrip(new AccountEntry(UUID.randomUUID().toString(), "GitHub", "alice", "plain text"));
+        assertRoundTrip(new AccountEntry(UUID.randomUUID().toString(), "GitHub", "alice", null));
+    }
+
+    @Test
+    void roundTripsIdsThatAreNotUuidsAndNullFields() {
+        assertRoundTrip(new AccountEntry("legacy-id", "Żółw", null, "v2:AAECAwQ="));
+        assertRoundTrip(new AccountEntry(null, null, "", ""));
+        // Upper case is not the canonical UUID form, so the id is kept as text.
+        assertRoundTrip(new AccountEntry(UUID.randomUUID().toString().toUpperCase(), "x", "y", "z"));
+    }
+
+    @Test
+    void keepsThePasswordTag() {
+        AccountEntry entry = new AccountEntry(UUID.randomUUID().toString(), "GitHub", "alice", "v2:AAECAwQ=");
+        byte[] tag = new byte[AccountEntry.PASSWORD_TAG_LENGTH];
+        tag[0] = 7;
+        tag[15] = 9;
+        entry.setPasswordTag(tag);
+
+        assertArrayEquals(tag, decode(AccountEntryCodec.encode(entry)).getPasswordTag());
+    }
+
+    @Test
+    void decodesConsecutiveEntries() {
+        AccountEntry first = new AccountEntry("a", "GitHub", "alice", "v2:AAECAwQ=");
+        AccountEntry second = new AccountEntry("b", "GitLab", "bob", "v2:BQYHCAk=");
+        byte[] a = AccountEntryCodec.encode(first);
+        byte[] b = AccountEntryCodec.encode(second);
+        ByteBuffer buffer = ByteBuffer.allocate(a.length + b.length).put(a).put(b).flip();
+
+        assertEquals("a", AccountEntryCodec.decode(buffer).getId());
+        assertEquals(a.length, buffer.position());
+        assertEquals("b", AccountEntryCodec.decode(buffer).getId());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void equalPlatformsShareOneInstance() {
+        AccountEntry first = new AccountEntry("a", new String("GitHub"), "alice", "v2:AAECAwQ=");
+        AccountEntry second = new AccountEntry("b", new String("GitHub"), "bob", "v2:BQYHCAk=");
+
+        assertSame(first.getPlatform(), second.getPlatform());
+        assertSame(first.getPlatform(), AccountEntry.share(new String("GitHub")));
+        assertNotSame(first.getPlatform(), AccountEntry.share("GitLab"));
+    }
+
+    @Test
+    void rejectsAnUnknownPasswordKind() {
+        byte[] encoded = AccountEntryCodec.encode(new AccountEntry("a", "p", "l", "plain"));
+        // id "a", platform "p" and login "l" take 4 + 1 bytes each; the password kind follows.
+        encoded[15] = 9;
+
+        assertThrows(IllegalArgumentException.class, () -> decode(encoded));
+    }
+
+    private static void assertRoundTrip(AccountEntry entry) {
+        AccountEntry decoded = decode(AccountEntryCodec.encode(entry));
+
+        assertEquals(entry.getId(), decoded.getId());
+        assertEquals(entry.getPlatform(), decoded.getPlatform());
+        assertEquals(entry.getLogin(), decoded.getLogin());
+        assertEquals(entry.getPassword(), decoded.getPassword());
+        assertFalse(decoded.hasPasswordTag());
+    }
+
+    private static AccountEntry decode(byte[] encoded) {
+        return AccountEntryCodec.decode(ByteBuffer.wrap(encoded));
+    }
+}